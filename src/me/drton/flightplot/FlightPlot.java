@@ -1,10 +1,21 @@
 package me.drton.flightplot;
 
+import me.drton.flightplot.data.LogData;
+import me.drton.flightplot.data.LogDataBuilder;
+import me.drton.flightplot.data.LogDataCache;
+import me.drton.flightplot.data.LogMessage;
+import me.drton.flightplot.data.ParamUpdate;
+import me.drton.flightplot.engine.Checkpoints;
+import me.drton.flightplot.engine.ParameterSweep;
+import me.drton.flightplot.engine.ProcessingEngine;
+import me.drton.flightplot.engine.ProcessingJob;
+import me.drton.flightplot.engine.ProcessorsGraph;
+import me.drton.flightplot.engine.ProcessorsRunner;
+import me.drton.flightplot.engine.ResultCache;
 import me.drton.flightplot.export.*;
 import me.drton.flightplot.processors.PlotProcessor;
 import me.drton.flightplot.processors.ProcessorsList;
 import me.drton.flightplot.processors.Simple;
-import me.drton.jmavlib.log.FormatErrorException;
 import me.drton.jmavlib.log.LogReader;
 import me.drton.jmavlib.log.MAVLinkLogReader;
 import me.drton.jmavlib.log.px4.MavlinkLog;
@@ -28,8 +39,6 @@ import org.jfree.chart.plot.XYPlot;
 import org.jfree.chart.renderer.AbstractRenderer;
 import org.jfree.chart.renderer.xy.XYLineAndShapeRenderer;
 import org.jfree.data.Range;
-import org.jfree.data.xy.XYSeries;
-import org.jfree.data.xy.XYSeriesCollection;
 import org.jfree.ui.Layer;
 import org.jfree.ui.RectangleAnchor;
 import org.jfree.ui.TextAnchor;
@@ -49,13 +58,13 @@ import java.awt.dnd.DropTarget;
 import java.awt.dnd.DropTargetDropEvent;
 import java.awt.event.*;
 import java.awt.geom.Ellipse2D;
+import java.awt.geom.Rectangle2D;
 import java.io.*;
 import java.lang.reflect.InvocationTargetException;
-import java.nio.charset.Charset;
 import java.text.NumberFormat;
 import java.util.*;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.ExecutionException;
 import java.util.prefs.BackingStoreException;
 import java.util.prefs.Preferences;
 
@@ -67,6 +76,22 @@ public class FlightPlot {
     private static final int TIME_MODE_BOOT = 1;
     private static final int TIME_MODE_GPS = 2;
     private static final NumberFormat doubleNumberFormat = NumberFormat.getInstance(Locale.ROOT);
+    private static final int LOAD_CHUNK_UPDATES = 5000;
+    private static final long LOAD_FIRST_PUBLISH_MS = 300;
+    private static final long LOAD_PUBLISH_INTERVAL_MS = 1000;
+    private static final int SWEEP_OVERLAY_COUNT = 3;
+    /**
+     * Part of the visible range processed before it in preview to let the processor state settle
+     */
+    private static final double PREVIEW_PREROLL = 0.5;
+    private static final long RESULT_CACHE_DEFAULT_MB = 256;
+    private static final long RESULT_DISK_CACHE_DEFAULT_MB = 1024;
+    /**
+     * Processors with results stored in the disk tier of the result cache
+     */
+    private static final Set<String> DISK_CACHED_PROCESSORS = new HashSet<String>(Arrays.asList(
+            "PositionEstimator", "PositionEstimatorKF", "TecsAnalysis", "PosPIDControlSimulator",
+            "PosRatePIDControlSimulator"));
 
     static {
         doubleNumberFormat.setGroupingUsed(false);
@@ -81,6 +106,8 @@ public class FlightPlot {
     private final Preferences preferences;
     private JFrame mainFrame;
     private JLabel statusLabel;
+    private JProgressBar loadProgressBar;
+    private JButton cancelLoadButton;
     private JPanel mainPanel;
     private JTable parametersTable;
     private JTable logTable;
@@ -102,10 +129,13 @@ public class FlightPlot {
     private JButton savePresetButton;
     private JCheckBoxMenuItem autosavePresets;
     private JCheckBoxMenuItem rememberFormats;
-    private JCheckBox fullRangeCheckBox;
+    private JCheckBoxMenuItem cacheLogs;
     private JRadioButtonMenuItem[] timeModeItems;
     private LogReader logReader = null;
-    private XYSeriesCollection dataset;
+    private LogData logData = null;
+    private LogLoader logLoader = null;
+    private LogDataCache logDataCache = new LogDataCache(LogDataCache.getDefaultDirectory());
+    private SeriesDataset dataset;
     private JFreeChart chart;
     private ColorSupplier colorSupplier;
     private ProcessorsList processorsTypesList;
@@ -117,10 +147,18 @@ public class FlightPlot {
     private FileNameExtensionFilter presetExtensionFilter = new FileNameExtensionFilter("FlightPlot Presets (*.fplot)",
             "fplot");
     private FileNameExtensionFilter parametersExtensionFilter = new FileNameExtensionFilter("Parameters (*.txt)", "txt");
-    private AtomicBoolean invokeProcessFile = new AtomicBoolean(false);
+    private ProcessingEngine processingEngine = new ProcessingEngine();
+    private ProcessorsRunner processorsRunner = new ProcessorsRunner();
+    private ProcessingEngine sweepEngine = new ProcessingEngine();
+    private ProcessingEngine previewEngine = new ProcessingEngine();
+    private Map<String, Series> sweepOverlay = Collections.emptyMap();
+    private Map<String, Series> shownOverlay = Collections.emptyMap();
+    private LogData sweepData = null;
+    private long sweepTimeOffset = 0;
     private TrackExportDialog trackExportDialog;
     private PlotExportDialog plotExportDialog;
     private CamExportDialog camExportDialog;
+    private SweepDialog sweepDialog;
     private NumberAxis domainAxisSeconds;
     private DateAxis domainAxisDate;
     private int timeMode = 0;
@@ -129,6 +167,12 @@ public class FlightPlot {
     private ProcessorPreset editingProcessor = null;
     private List<ProcessorPreset> activeProcessors = new ArrayList<ProcessorPreset>();
     private Range lastTimeRange = null;
+    private String logHash = null;
+    private ResultCache resultCache;
+    private List<List<Object>> shownKeys = new ArrayList<List<Object>>();
+    private Map<List<Object>, Checkpoints> processorsCheckpoints = new HashMap<List<Object>, Checkpoints>();
+    private LogData processedData = null;
+    private long processedTimeOffset = 0;
     private String currentPreset = null;
 
     public FlightPlot() {
@@ -142,8 +186,12 @@ public class FlightPlot {
         trackExportDialog = new TrackExportDialog(exporters);
         plotExportDialog = new PlotExportDialog(this);
         camExportDialog = new CamExportDialog();
+        sweepDialog = new SweepDialog(this);
 
         preferences = Preferences.userRoot().node(appName);
+        resultCache = new ResultCache(preferences.getLong("ResultCacheMB", RESULT_CACHE_DEFAULT_MB) << 20,
+                new File(LogDataCache.getDefaultDirectory(), "results"),
+                preferences.getLong("ResultDiskCacheMB", RESULT_DISK_CACHE_DEFAULT_MB) << 20, DISK_CACHED_PROCESSORS);
         mainFrame = new JFrame(appNameAndVersion);
         mainFrame.setContentPane(mainPanel);
         mainFrame.setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
@@ -330,12 +378,15 @@ public class FlightPlot {
                 setChartMarkers();
             }
         });
-        fullRangeCheckBox.addActionListener(new ActionListener() {
+        cancelLoadButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent actionEvent) {
-                processFile();
+                if (logLoader != null) {
+                    logLoader.cancel();
+                }
             }
         });
+        showLoadProgress(false);
 
         mainFrame.pack();
         mainFrame.setVisible(true);
@@ -361,6 +412,10 @@ public class FlightPlot {
     public static void main(String[] args)
             throws ClassNotFoundException, UnsupportedLookAndFeelException, InstantiationException,
             IllegalAccessException {
+        if (Arrays.asList(args).contains("--headless")) {
+            Headless.main(args);
+            return;
+        }
         SwingUtilities.invokeLater(new Runnable() {
             @Override
             public void run() {
@@ -503,11 +558,13 @@ public class FlightPlot {
         timeModeItems[timeMode].setSelected(true);
         autosave = preferences.getBoolean("Autosave", false);
         autosavePresets.setState(autosave);
+        cacheLogs.setState(preferences.getBoolean("CacheLogs", true));
+        logDataCache.setMaxSize(preferences.getLong("CacheLogsMB", LogDataCache.DEFAULT_MAX_SIZE >> 20) << 20);
         markerCheckBox.setSelected(preferences.getBoolean("ShowMarkers", false));
-        fullRangeCheckBox.setSelected(preferences.getBoolean("FullRange", false));
         trackExportDialog.loadPreferences(preferences);
         plotExportDialog.loadPreferences(preferences);
         camExportDialog.loadPreferences(preferences);
+        sweepDialog.loadPreferences(preferences);
     }
 
     private void loadPresetsList() {
@@ -568,11 +625,15 @@ public class FlightPlot {
             }
             preferences.put("TimeMode", Integer.toString(timeMode));
             preferences.putBoolean("Autosave", autosave);
+            preferences.putBoolean("CacheLogs", cacheLogs.getState());
+            preferences.putLong("CacheLogsMB", logDataCache.getMaxSize() >> 20);
+            preferences.putLong("ResultCacheMB", resultCache.getMemoryBudget() >> 20);
+            preferences.putLong("ResultDiskCacheMB", resultCache.getDiskBudget() >> 20);
             preferences.putBoolean("ShowMarkers", markerCheckBox.isSelected());
-            preferences.putBoolean("FullRange", fullRangeCheckBox.isSelected());
             trackExportDialog.savePreferences(preferences);
             plotExportDialog.savePreferences(preferences);
             camExportDialog.savePreferences(preferences);
+            sweepDialog.savePreferences(preferences);
             preferences.sync();
         } catch (BackingStoreException e) {
             e.printStackTrace();
@@ -599,7 +660,7 @@ public class FlightPlot {
     private void createUIComponents() throws IllegalAccessException, InstantiationException {
         // Chart panel
         processorsTypesList = new ProcessorsList();
-        dataset = new XYSeriesCollection();
+        dataset = new SeriesDataset();
         colorSupplier = new ColorSupplier();
         chart = ChartFactory.createXYLineChart("", "", "", null, PlotOrientation.VERTICAL, true, true, false);
         chart.getXYPlot().setDataset(dataset);
@@ -653,7 +714,7 @@ public class FlightPlot {
                     Range timeRange = chart.getXYPlot().getDomainAxis().getRange();
                     if (!timeRange.equals(lastTimeRange)) {
                         lastTimeRange = timeRange;
-                        processFile();
+                        updateVisibleRange();
                     }
                 }
             }
@@ -690,6 +751,9 @@ public class FlightPlot {
         parametersTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         parametersTable.getColumnModel().getColumn(1).setCellEditor(new ParamValueTableCellEditor(this));
         parametersTable.getColumnModel().getColumn(1).setCellRenderer(new ParamValueTableCellRenderer());
+        ParamValueDragger paramValueDragger = new ParamValueDragger(this, parametersTable);
+        parametersTable.addMouseListener(paramValueDragger);
+        parametersTable.addMouseMotionListener(paramValueDragger);
         parametersTable.putClientProperty("JTable.autoStartsEdit", false);
         parametersTable.putClientProperty("terminateEditOnFocusLost", true);
 
@@ -752,6 +816,47 @@ public class FlightPlot {
         rememberFormats = new JCheckBoxMenuItem("Remember Formats");
         fileMenu.add(rememberFormats);
 
+        cacheLogs = new JCheckBoxMenuItem("Cache Decoded Logs");
+        fileMenu.add(cacheLogs);
+
+        JMenuItem cacheSizeItem = new JMenuItem("Decoded Logs Cache Size...");
+        cacheSizeItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                Long size = showCacheSizeDialog("Max size of decoded logs cache, MB:", logDataCache.getMaxSize());
+                if (size != null) {
+                    logDataCache.setMaxSize(size);
+                }
+            }
+        });
+        fileMenu.add(cacheSizeItem);
+
+        JMenuItem resultCacheSizeItem = new JMenuItem("Results Memory Cache Size...");
+        resultCacheSizeItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                Long size = showCacheSizeDialog("Max size of processing results in memory, MB:",
+                        resultCache.getMemoryBudget());
+                if (size != null) {
+                    resultCache.setMemoryBudget(size);
+                }
+            }
+        });
+        fileMenu.add(resultCacheSizeItem);
+
+        JMenuItem resultDiskCacheSizeItem = new JMenuItem("Results Disk Cache Size...");
+        resultDiskCacheSizeItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                Long size = showCacheSizeDialog("Max size of processing results on disk, MB:",
+                        resultCache.getDiskBudget());
+                if (size != null) {
+                    resultCache.setDiskBudget(size);
+                }
+            }
+        });
+        fileMenu.add(resultDiskCacheSizeItem);
+
         JMenuItem exportAsImageItem = new JMenuItem("Export As Image...");
         exportAsImageItem.addActionListener(new ActionListener() {
             @Override
@@ -820,10 +925,23 @@ public class FlightPlot {
             viewMenu.add(item);
         }
 
+        // Tools menu
+        JMenu toolsMenu = new JMenu("Tools");
+
+        JMenuItem sweepItem = new JMenuItem("Parameter Sweep...");
+        sweepItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showSweepDialog();
+            }
+        });
+        toolsMenu.add(sweepItem);
+
         // Menu bar
         JMenuBar menuBar = new JMenuBar();
         menuBar.add(fileMenu);
         menuBar.add(viewMenu);
+        menuBar.add(toolsMenu);
         mainFrame.setJMenuBar(menuBar);
     }
 
@@ -841,10 +959,10 @@ public class FlightPlot {
         long logSize = 1000000;
         Range rangeOld = new Range(0.0, 1.0);
 
-        if (logReader != null) {
+        if (logData != null) {
             timeOffset = getTimeOffset(timeMode);
-            logStart = logReader.getStartMicroseconds() + timeOffset;
-            logSize = logReader.getSizeMicroseconds();
+            logStart = logData.getStartMicroseconds() + timeOffset;
+            logSize = logData.getSizeMicroseconds();
             if (logSize == 0) {
                 logSize = 1000;
             }
@@ -885,6 +1003,19 @@ public class FlightPlot {
         }
     }
 
+    /**
+     * Width of the plot data area in pixels, used as number of decimation buckets in displayed range
+     */
+    private int getDisplayPixels() {
+        Rectangle2D dataArea = chartPanel.getChartRenderingInfo().getPlotInfo().getDataArea();
+        int width = (int) dataArea.getWidth();
+        if (width <= 0) {
+            // Chart is not rendered yet
+            width = chartPanel.getWidth();
+        }
+        return width > 0 ? width : 2000;
+    }
+
     public void setStatus(String status) {
         statusLabel.setText(status);
     }
@@ -900,44 +1031,65 @@ public class FlightPlot {
 
     private void openLog(String logFileName) {
         String logFileNameLower = logFileName.toLowerCase();
+        if (!(logFileNameLower.endsWith(".bin") || logFileNameLower.endsWith(".px4log") ||
+                logFileNameLower.endsWith(".ulg") ||
+                logFileNameLower.endsWith(".mavlink") || logFileNameLower.endsWith(".tlog"))) {
+            setStatus("Log format not supported: " + logFileName);
+            return;
+        }
+        if (logLoader != null) {
+            logLoader.cancel();
+        }
+        setStatus("Opening log: " + logFileName);
+        logLoader = new LogLoader(logFileName, rememberFormats.getState(), cacheLogs.getState());
+        loadProgressBar.setValue(0);
+        loadProgressBar.setString("Opening...");
+        showLoadProgress(true);
+        logLoader.execute();
+    }
+
+    /**
+     * Create log reader for the file, called in background thread.
+     * Messages logged by the system are added to logMessages list.
+     */
+    static LogReader createLogReader(String logFileName, boolean rememberFormats, List<LogMessage> logMessages)
+            throws Exception {
+        String logFileNameLower = logFileName.toLowerCase();
         LogReader logReaderNew;
-        logsTableModel.setRowCount(0);
-        try {
-            if (logFileNameLower.endsWith(".bin") || logFileNameLower.endsWith(".px4log")) {
-                logReaderNew = new PX4LogReader(logFileName, rememberFormats.getState());
-                for (MavlinkLog loggedMsg : ((PX4LogReader)logReaderNew).getMessages()) {
-                    long t = loggedMsg.timestamp / 1000;
-                    String time = String.format("%02d:%02d:%02d:%03d", t / 1000 / 60 / 60, t / 1000 / 60, ((t / 1000) % 60), t % 1000);
-                    logsTableModel.addRow(new Object[] { time, loggedMsg.getLevelStr(),
-                            loggedMsg.message });
-                }
-            } else if (logFileNameLower.endsWith(".ulg")) {
-                ULogReader ulogReader = new ULogReader(logFileName);
-                logReaderNew = ulogReader;
-                for (MessageLog loggedMsg : ulogReader.loggedMessages) {
-                    long t = loggedMsg.timestamp / 1000;
-                    String time = String.format("%2d:%02d:%03d", t / 1000 / 60, ((t / 1000) % 60), t % 1000);
-                    logsTableModel.addRow(new Object[] { time, loggedMsg.getLevelStr(),
-                            loggedMsg.message });
-                }
-            } else if (logFileNameLower.endsWith(".mavlink") || logFileNameLower.endsWith(".tlog")) {
-                try {
-                    // for production build the following is needed to load the XML
-                    logReaderNew = new MAVLinkLogReader(logFileName, new MAVLinkSchema(FlightPlot.class.getClassLoader().getResourceAsStream("common.xml")));
-                } catch (IllegalArgumentException e) {
-                    // for debugging the following is needed to load the XML
-                    logReaderNew = new MAVLinkLogReader(logFileName,new MAVLinkSchema("common.xml"));
-                }
-            } else {
-                setStatus("Log format not supported: " + logFileName);
-                return;
+        if (logFileNameLower.endsWith(".bin") || logFileNameLower.endsWith(".px4log")) {
+            logReaderNew = new PX4LogReader(logFileName, rememberFormats);
+            for (MavlinkLog loggedMsg : ((PX4LogReader)logReaderNew).getMessages()) {
+                long t = loggedMsg.timestamp / 1000;
+                String time = String.format("%02d:%02d:%02d:%03d", t / 1000 / 60 / 60, t / 1000 / 60, ((t / 1000) % 60), t % 1000);
+                logMessages.add(new LogMessage(time, loggedMsg.getLevelStr(), loggedMsg.message));
+            }
+        } else if (logFileNameLower.endsWith(".ulg")) {
+            ULogReader ulogReader = new ULogReader(logFileName);
+            logReaderNew = ulogReader;
+            for (MessageLog loggedMsg : ulogReader.loggedMessages) {
+                long t = loggedMsg.timestamp / 1000;
+                String time = String.format("%2d:%02d:%03d", t / 1000 / 60, ((t / 1000) % 60), t % 1000);
+                logMessages.add(new LogMessage(time, loggedMsg.getLevelStr(), loggedMsg.message));
+            }
+        } else {
+            try {
+                // for production build the following is needed to load the XML
+                logReaderNew = new MAVLinkLogReader(logFileName, new MAVLinkSchema(FlightPlot.class.getClassLoader().getResourceAsStream("common.xml")));
+            } catch (IllegalArgumentException e) {
+                // for debugging the following is needed to load the XML
+                logReaderNew = new MAVLinkLogReader(logFileName,new MAVLinkSchema("common.xml"));
             }
-        } catch (Exception e) {
-            setStatus("Error: " + e);
-            e.printStackTrace();
-            return;
         }
+        return logReaderNew;
+    }
 
+    /**
+     * Called when log header, fields and parameters are read, before decoding of the data.
+     *
+     * @param logReaderNew log reader or null if the log is loaded from the cache
+     * @param logDataNew   log data, may contain no updates yet
+     */
+    private void onLogOpened(LogReader logReaderNew, LogData logDataNew, String logFileName, String logHashNew) {
         mainFrame.setTitle(appNameAndVersion + " - " + logFileName);
         if (logReader != null) {
             try {
@@ -948,20 +1100,185 @@ public class FlightPlot {
             logReader = null;
         }
         logReader = logReaderNew;
-        if (logReader.getErrors().size() > 0) {
-            setStatus("Log file opened: " + logFileName + " (errors: " + logReader.getErrors().size() + ", see console output)");
-            printLogErrors();
-        } else {
-            setStatus("Log file opened: " + logFileName);
+        logData = logDataNew;
+        logHash = logHashNew;
+        processingEngine.cancel();
+        previewEngine.cancel();
+        cancelSweep();
+        resultCache.clear();
+        processorsCheckpoints = new HashMap<List<Object>, Checkpoints>();
+        processedData = null;
+        logsTableModel.setRowCount(0);
+        for (LogMessage message : logData.getMessages()) {
+            logsTableModel.addRow(new Object[]{message.getTime(), message.getLevel(), message.getMessage()});
         }
-        logInfo.updateInfo(logReader);
-        fieldsListDialog.setFieldsList(logReader.getFields());
+        dataset.removeAllSeries();
+        logInfo.updateInfo(logData);
+        fieldsListDialog.setFieldsList(logData.getFields());
         onTimeModeChanged();
         chart.getXYPlot().getDomainAxis().setAutoRange(true);
         chart.getXYPlot().getRangeAxis().setAutoRange(true);
+    }
+
+    /**
+     * Called for decoded data, while decoding is in progress and when it's finished.
+     */
+    private void onLogDataDecoded(LogData logDataNew) {
+        logData = logDataNew;
+        long size = logData.getSizeMicroseconds();
+        int progress = size > 0 ? (int) ((logData.getLastUpdateTime() - logData.getStartMicroseconds()) * 100 / size) : 0;
+        loadProgressBar.setValue(Math.max(0, Math.min(100, progress)));
+        loadProgressBar.setString("Loading " + loadProgressBar.getValue() + "%");
         processFile();
     }
 
+    private void onLogLoaded(String logFileName, boolean cancelled) {
+        showLoadProgress(false);
+        if (cancelled) {
+            setStatus(String.format(Locale.ROOT, "Log loading cancelled, loaded %.3f s: %s",
+                    (logData.getLastUpdateTime() - logData.getStartMicroseconds()) * 1e-6, logFileName));
+        } else if (logData.getErrors().size() > 0) {
+            setStatus("Log file opened: " + logFileName + " (errors: " + logData.getErrors().size() + ", see console output)");
+            printLogErrors();
+        } else {
+            setStatus("Log file opened: " + logFileName);
+        }
+    }
+
+    private void showLoadProgress(boolean show) {
+        loadProgressBar.setVisible(show);
+        cancelLoadButton.setVisible(show);
+    }
+
+    /**
+     * Opens log in background: log reader is created first, then log data is decoded. Decoded part of the log is
+     * published periodically to show it before decoding is finished.
+     */
+    private class LogLoader extends SwingWorker<LogData, LogData> {
+        private final String logFileName;
+        private final boolean rememberFormats;
+        private final boolean useCache;
+        private volatile boolean cancelled = false;
+        private LogReader reader = null;
+        private String hash = null;
+        private boolean opened = false;
+
+        public LogLoader(String logFileName, boolean rememberFormats, boolean useCache) {
+            this.logFileName = logFileName;
+            this.rememberFormats = rememberFormats;
+            this.useCache = useCache;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        private boolean isActive() {
+            return logLoader == this;
+        }
+
+        @Override
+        protected LogData doInBackground() throws Exception {
+            File logFile = new File(logFileName);
+            // Data decoded by PX4 log reader may depend on formats remembered from previous logs
+            String cacheVariant = rememberFormats ? "RememberFormats" : "";
+            try {
+                hash = LogDataCache.getHash(logFile, cacheVariant);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            if (useCache) {
+                try {
+                    LogData cachedData = logDataCache.load(logFile, cacheVariant);
+                    if (cachedData != null) {
+                        onOpened(null, cachedData);
+                        return cachedData;
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            List<LogMessage> logMessages = new ArrayList<LogMessage>();
+            reader = createLogReader(logFileName, rememberFormats, logMessages);
+            LogDataBuilder builder = new LogDataBuilder(reader);
+            builder.setMessages(logMessages);
+            onOpened(reader, builder.build());
+            long publishTime = System.currentTimeMillis() + LOAD_FIRST_PUBLISH_MS;
+            while (!cancelled && builder.readUpdates(LOAD_CHUNK_UPDATES)) {
+                long now = System.currentTimeMillis();
+                if (now >= publishTime) {
+                    publish(builder.build());
+                    publishTime = now + LOAD_PUBLISH_INTERVAL_MS;
+                }
+            }
+            LogData logDataNew = builder.build();
+            if (useCache && !cancelled) {
+                try {
+                    logDataCache.save(logFile, cacheVariant, logDataNew);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            return logDataNew;
+        }
+
+        private void onOpened(final LogReader readerNew, final LogData logDataNew) throws Exception {
+            SwingUtilities.invokeAndWait(new Runnable() {
+                @Override
+                public void run() {
+                    if (isActive() && !cancelled) {
+                        onLogOpened(readerNew, logDataNew, logFileName, hash);
+                        opened = true;
+                    }
+                }
+            });
+        }
+
+        @Override
+        protected void process(List<LogData> chunks) {
+            if (isActive() && !cancelled) {
+                onLogDataDecoded(chunks.get(chunks.size() - 1));
+            }
+        }
+
+        @Override
+        protected void done() {
+            if (!isActive()) {
+                // Another log opened
+                if (reader != null && reader != logReader) {
+                    try {
+                        reader.close();
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+                return;
+            }
+            logLoader = null;
+            try {
+                LogData logDataNew = get();
+                if (opened) {
+                    onLogDataDecoded(logDataNew);
+                    onLogLoaded(logFileName, cancelled);
+                } else {
+                    if (reader != null) {
+                        reader.close();
+                    }
+                    showLoadProgress(false);
+                    setStatus("Log loading cancelled: " + logFileName);
+                }
+            } catch (ExecutionException e) {
+                showLoadProgress(false);
+                setStatus("Error: " + e.getCause());
+                e.getCause().printStackTrace();
+            } catch (Exception e) {
+                showLoadProgress(false);
+                setStatus("Error: " + e);
+                e.printStackTrace();
+            }
+        }
+    }
+
     public void showImportPresetDialog() {
         JFileChooser fc = new JFileChooser();
         if (lastPresetDirectory != null) {
@@ -974,17 +1291,7 @@ public class FlightPlot {
             lastPresetDirectory = fc.getCurrentDirectory();
             File file = fc.getSelectedFile();
             try {
-                byte[] b = new byte[(int) file.length()];
-                FileInputStream fileInputStream = new FileInputStream(file);
-                int n = 0;
-                while (n < b.length) {
-                    int r = fileInputStream.read(b, n, b.length - n);
-                    if (r <= 0) {
-                        throw new Exception("Read error");
-                    }
-                    n += r;
-                }
-                Preset preset = Preset.unpackJSONObject(new JSONObject(new String(b, Charset.forName("utf8"))));
+                Preset preset = Preset.readFile(file);
                 loadPreset(preset);
                 processFile();
             } catch (Exception e) {
@@ -1023,8 +1330,31 @@ public class FlightPlot {
         }
     }
 
+    /**
+     * @param size current size in bytes
+     * @return new size in bytes or null if cancelled or invalid
+     */
+    private Long showCacheSizeDialog(String message, long size) {
+        Object value = JOptionPane.showInputDialog(mainFrame, message, "Cache Size", JOptionPane.PLAIN_MESSAGE, null,
+                null, Long.toString(size >> 20));
+        if (value == null) {
+            return null;
+        }
+        try {
+            long sizeMB = Long.parseLong(value.toString().trim());
+            if (sizeMB < 0) {
+                throw new NumberFormatException("Size must be non-negative: " + sizeMB);
+            }
+            return sizeMB << 20;
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(mainFrame, "Invalid cache size: " + value, "Error",
+                    JOptionPane.ERROR_MESSAGE);
+            return null;
+        }
+    }
+
     public void showExportAsImageDialog() {
-        if (logReader == null) {
+        if (logData == null) {
             JOptionPane.showMessageDialog(mainFrame, "Log file must be opened first.", "Error",
                     JOptionPane.ERROR_MESSAGE);
             return;
@@ -1039,14 +1369,20 @@ public class FlightPlot {
     }
 
     public void showExportTrackDialog() {
-        if (logReader == null) {
+        if (logData == null) {
             JOptionPane.showMessageDialog(mainFrame, "Log file must be opened first.", "Error",
                     JOptionPane.ERROR_MESSAGE);
             return;
         }
 
+        if (logLoader != null) {
+            JOptionPane.showMessageDialog(mainFrame, "Log file is still loading.", "Error",
+                    JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
         try {
-            trackExportDialog.display(logReader, getLogRange(timeMode));
+            trackExportDialog.display(logData, getLogRange(timeMode));
         } catch (Exception e) {
             e.printStackTrace();
             showExportTrackStatusMessage("Track could not be exported.");
@@ -1054,14 +1390,20 @@ public class FlightPlot {
     }
 
     public void showCamExportDialog() {
-        if (logReader == null) {
+        if (logData == null) {
             JOptionPane.showMessageDialog(mainFrame, "Log file must be opened first.", "Error",
                     JOptionPane.ERROR_MESSAGE);
             return;
         }
 
+        if (logLoader != null) {
+            JOptionPane.showMessageDialog(mainFrame, "Log file is still loading.", "Error",
+                    JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
         try {
-            camExportDialog.display(logReader, getLogRange(timeMode));
+            camExportDialog.display(logData, getLogRange(timeMode));
         } catch (Exception e) {
             e.printStackTrace();
             showExportTrackStatusMessage("Tags could not be exported.");
@@ -1073,7 +1415,7 @@ public class FlightPlot {
     }
 
     public void showExportParametersDialog() {
-        if (logReader == null) {
+        if (logData == null) {
             JOptionPane.showMessageDialog(mainFrame, "Log file must be opened first.", "Error",
                     JOptionPane.ERROR_MESSAGE);
             return;
@@ -1090,7 +1432,7 @@ public class FlightPlot {
             }
             try {
                 FileWriter fileWriter = new FileWriter(new File(fileName));
-                List<Map.Entry<String, Object>> paramsList = new ArrayList<Map.Entry<String, Object>>(logReader.getParameters().entrySet());
+                List<Map.Entry<String, Object>> paramsList = new ArrayList<Map.Entry<String, Object>>(logData.getParameters().entrySet());
                 Collections.sort(paramsList, new Comparator<Map.Entry<String, Object>>() {
                     @Override
                     public int compare(Map.Entry<String, Object> o1, Map.Entry<String, Object> o2) {
@@ -1115,33 +1457,24 @@ public class FlightPlot {
         }
     }
 
+    /**
+     * Show views of the processed series for the current range of the chart, processors are not called.
+     */
+    private void updateVisibleRange() {
+        dataset.setVisibleRange(chart.getXYPlot().getDomainAxis().getRange(), getDisplayPixels());
+    }
+
     private void processFile() {
-        if (logReader != null) {
-            if (invokeProcessFile.compareAndSet(false, true)) {
-                final boolean notEmptyPlot = (getActiveProcessors().size() > 0);
-                if (notEmptyPlot) {
+        if (logData != null) {
+            try {
+                SeriesJob job = new SeriesJob();
+                if (job.processCount > 0) {
                     setStatus("Processing...");
                 }
-                SwingUtilities.invokeLater(new Runnable() {
-                    @Override
-                    public void run() {
-                        try {
-                            generateSeries();
-                            if (notEmptyPlot) {
-                                if (logReader.getErrors().size() > 0) {
-                                    setStatus("Log parsing errors, see console output");
-                                    printLogErrors();
-                                } else {
-                                    setStatus(" ");
-                                }
-                            }
-                        } catch (Exception e) {
-                            setStatus("Error: " + e);
-                            e.printStackTrace();
-                        }
-                        invokeProcessFile.lazySet(false);
-                    }
-                });
+                processingEngine.submit(job);
+            } catch (Exception e) {
+                setStatus("Error: " + e);
+                e.printStackTrace();
             }
         }
     }
@@ -1149,10 +1482,11 @@ public class FlightPlot {
     private void printLogErrors() {
         System.err.println("Log parsing errors:");
         int maxErrors = 100;
-        for (Exception e : logReader.getErrors().subList(0, Math.min(logReader.getErrors().size(), maxErrors))) {
-            System.err.println("\t" + e.getMessage());
+        List<String> errors = logData.getErrors();
+        for (String error : errors.subList(0, Math.min(errors.size(), maxErrors))) {
+            System.err.println("\t" + error);
         }
-        if (logReader.getErrors().size() > maxErrors) {
+        if (errors.size() > maxErrors) {
             System.err.println("\t...");
         }
     }
@@ -1162,13 +1496,13 @@ public class FlightPlot {
         long timeOffset = 0;
         if (tm == TIME_MODE_GPS) {
             // GPS time
-            timeOffset = logReader.getUTCTimeReferenceMicroseconds();
+            timeOffset = logData.getUTCTimeReferenceMicroseconds();
             if (timeOffset < 0) {
                 timeOffset = 0;
             }
         } else if (tm == TIME_MODE_LOG_START) {
             // Log start time
-            timeOffset = -logReader.getStartMicroseconds();
+            timeOffset = -logData.getStartMicroseconds();
         }
         return timeOffset;
     }
@@ -1192,104 +1526,227 @@ public class FlightPlot {
         return processors;
     }
 
-    private void generateSeries() throws IOException, FormatErrorException, InvocationTargetException, NoSuchMethodException, InstantiationException, IllegalAccessException {
-        activeProcessors.clear();
-        activeProcessors.addAll(getActiveProcessors());
-
-        dataset.removeAllSeries();
-        seriesIndex.clear();
-        PlotProcessor[] processors = new PlotProcessor[activeProcessors.size()];
+    /**
+     * Processes the whole log in the processing thread. Processors are created in the event dispatch thread from the
+     * current settings, processors with the same parameters as in the previous job are reused with their results if
+     * the log and time offset didn't change. Chart is updated only when all series are ready.
+     */
+    private class SeriesJob extends ProcessingJob<PlotProcessor[]> {
+        private final LogData data = logData;
+        private final List<ProcessorPreset> presets = getActiveProcessors();
+        private final ProcessorsGraph graph;
+        private final PlotProcessor[] processors;
+        private final int processCount;
+        private final List<List<Object>> keys = new ArrayList<List<Object>>();
+        private final boolean[] cached;
+        private final String dataHash = logHash;
+        private final boolean dataComplete = logLoader == null;
+        private final Map<List<Object>, Checkpoints> prevCheckpoints = processorsCheckpoints;
+        private final Map<List<Object>, Checkpoints> checkpoints = new HashMap<List<Object>, Checkpoints>();
+        private final long timeOffset = getTimeOffset(timeMode);
+        private final int jobTimeMode = timeMode;
+        private final double timeScale = (selectDomainAxis(timeMode) == domainAxisDate) ? 1000.0 : 1.0;
+
+        public SeriesJob() throws InvocationTargetException, NoSuchMethodException, InstantiationException, IllegalAccessException {
+            graph = new ProcessorsGraph(data, presets, processorsTypesList);
+            processors = graph.getProcessors();
+            cached = new boolean[presets.size()];
+            for (int i = 0; i < presets.size(); i++) {
+                // Decoded part of the log is identified by the number of updates while loading
+                keys.add(Arrays.<Object>asList(dataHash != null ? dataHash : data, data.getUpdatesCount(), timeOffset,
+                        graph.getKey(i)));
+                List<PlotItem> seriesList = resultCache.get(keys.get(i));
+                if (seriesList != null) {
+                    graph.setProcessed(i, seriesList);
+                    cached[i] = true;
+                }
+            }
+            processCount = graph.getProcessCount();
+        }
 
-        // Update time offset according to selected time mode
-        long timeOffset = getTimeOffset(timeMode);
+        /**
+         * @return processor type if results may be stored on disk, results can't be identified without log hash, results
+         * of the partially decoded log are not stored as they will not be used after loading
+         */
+        private String getDiskType(int i) {
+            return dataHash != null && dataComplete ? presets.get(i).getProcessorType() : null;
+        }
 
-        // Displayed log range in seconds of native log time
-        Range range = getLogRange(timeMode);
+        /**
+         * @return key of checkpoints of the processor, the same for all decoded parts of the log, or null if the
+         * processor doesn't support checkpoints
+         */
+        private List<Object> getCheckpointsKey(int i) {
+            if (dataHash == null || graph.hasDependencies(i) || processors[i].isStateless() ||
+                    !processors[i].isCheckpointable()) {
+                return null;
+            }
+            return Arrays.<Object>asList(dataHash, timeOffset, graph.getKey(i));
+        }
 
-        // Process some extra data in hidden areas
-        long timeStart = (long) ((range.getLowerBound() - range.getLength()) * 1e6);
-        long timeStop = (long) ((range.getUpperBound() + range.getLength()) * 1e6);
-        timeStart = Math.max(logReader.getStartMicroseconds(), timeStart);
-        timeStop = Math.min(logReader.getStartMicroseconds() + logReader.getSizeMicroseconds(), timeStop);
+        @Override
+        protected PlotProcessor[] process() throws Exception {
+            for (int i = 0; i < processors.length; i++) {
+                List<Object> checkpointsKey = getCheckpointsKey(i);
+                if (checkpointsKey != null && prevCheckpoints.containsKey(checkpointsKey)) {
+                    checkpoints.put(checkpointsKey, prevCheckpoints.get(checkpointsKey));
+                }
+            }
+            if (processCount == 0) {
+                return processors;
+            }
+            for (int i = 0; i < processors.length; i++) {
+                if (!cached[i]) {
+                    List<PlotItem> seriesList = resultCache.load(keys.get(i), getDiskType(i));
+                    if (seriesList != null) {
+                        graph.setProcessed(i, seriesList);
+                        cached[i] = true;
+                        continue;
+                    }
+                    List<Object> checkpointsKey = getCheckpointsKey(i);
+                    if (checkpointsKey != null) {
+                        // While the log is decoded continue processing from the end of the previously decoded part
+                        Checkpoints prev = prevCheckpoints.get(checkpointsKey);
+                        Checkpoints processorCheckpoints = prev != null ? prev.resume(data.getUpdatesCount()) : null;
+                        if (processorCheckpoints == null) {
+                            processorCheckpoints = new Checkpoints();
+                        }
+                        graph.setCheckpoints(i, processorCheckpoints);
+                        checkpoints.put(checkpointsKey, processorCheckpoints);
+                    }
+                }
+            }
+            if (!graph.process(processorsRunner, timeOffset, this)) {
+                return null;
+            }
+            for (int i = 0; i < processors.length; i++) {
+                if (!cached[i]) {
+                    resultCache.put(keys.get(i), getDiskType(i), processors[i].getSeriesList());
+                }
+            }
+            return processors;
+        }
 
-        if (fullRangeCheckBox.isSelected()) {
-            timeStart = logReader.getStartMicroseconds();
-            timeStop = logReader.getStartMicroseconds() + logReader.getSizeMicroseconds();
+        @Override
+        protected void publish(PlotProcessor[] result) {
+            processorsCheckpoints = checkpoints;
+            boolean chartValid = processedData == data && processedTimeOffset == timeOffset;
+            processedData = data;
+            processedTimeOffset = timeOffset;
+            chart.setNotify(false);
+            try {
+                if (!chartValid || !replaceSeries()) {
+                    showSeries();
+                }
+                shownKeys = keys;
+            } finally {
+                chart.setNotify(true);
+            }
+            if (processors.length > 0) {
+                if (logLoader == null && data.getErrors().size() > 0) {
+                    setStatus("Log parsing errors, see console output");
+                    printLogErrors();
+                } else {
+                    setStatus(String.format(Locale.ROOT,
+                            "Processed, result cache: %d hits, %d from disk, %d misses, %.1f MB",
+                            resultCache.getHits(), resultCache.getDiskHits(), resultCache.getMisses(),
+                            resultCache.getMemorySize() / 1048576.0));
+                }
+            }
         }
 
-        double timeScale = (selectDomainAxis(timeMode) == domainAxisDate) ? 1000.0 : 1.0;
+        @Override
+        protected void failed(Exception e) {
+            setStatus("Error: " + e);
+            e.printStackTrace();
+        }
 
-        int displayPixels = 2000;
-        double skip = range.getLength() / displayPixels;
-        if (processors.length > 0) {
-            for (int i = 0; i < activeProcessors.size(); i++) {
-                ProcessorPreset pp = activeProcessors.get(i);
-                PlotProcessor processor;
-                processor = processorsTypesList.getProcessorInstance(pp, skip, logReader.getFields());
-                processor.setFieldsList(logReader.getFields());
-                processors[i] = processor;
-            }
-            logReader.seek(timeStart);
-            logReader.clearErrors();
-            Map<String, Object> data = new HashMap<String, Object>();
-            while (true) {
-                long t;
-                data.clear();
-                try {
-                    t = logReader.readUpdate(data);
-                } catch (EOFException e) {
-                    break;
+        /**
+         * Replace only series of the reprocessed processors if the chart shows the same processors with the same
+         * series, markers are not updated so processors with markers are shown again.
+         *
+         * @return false if the chart should be rebuilt
+         */
+        private boolean replaceSeries() {
+            if (!activeProcessors.equals(presets) || shownKeys.size() != keys.size() ||
+                    dataset.getXScale() != timeScale || shownOverlay != sweepOverlay) {
+                return false;
+            }
+            for (int i = 0; i < processors.length; i++) {
+                String processorTitle = presets.get(i).getTitle();
+                List<PlotItem> items = processors[i].getSeriesList();
+                Map<String, Integer> processorSeriesIndex = seriesIndex.get(i);
+                if (items.size() != processorSeriesIndex.size()) {
+                    return false;
                 }
-                if (t > timeStop) {
-                    break;
+                for (PlotItem item : items) {
+                    Integer index = processorSeriesIndex.get(item.getTitle());
+                    if (index == null || (!keys.get(i).equals(shownKeys.get(i)) && item instanceof MarkersList) ||
+                            !dataset.getSeriesKey(index).equals(getFullTitle(item, processorTitle))) {
+                        return false;
+                    }
                 }
-                for (PlotProcessor processor : processors) {
-                    processor.process((t + timeOffset) * 1e-6, data);
+            }
+            for (int i = 0; i < processors.length; i++) {
+                if (!keys.get(i).equals(shownKeys.get(i))) {
+                    String processorTitle = presets.get(i).getTitle();
+                    for (PlotItem item : processors[i].getSeriesList()) {
+                        dataset.setSeries(seriesIndex.get(i).get(item.getTitle()), getFullTitle(item, processorTitle),
+                                item);
+                    }
                 }
             }
+            setChartColors();
+            return true;
+        }
+
+        private String getFullTitle(PlotItem item, String processorTitle) {
+            if (item instanceof Series) {
+                return ((Series) item).getFullTitle(processorTitle);
+            } else {
+                return ((MarkersList) item).getFullTitle(processorTitle);
+            }
+        }
+
+        private void showSeries() {
+            activeProcessors.clear();
+            activeProcessors.addAll(presets);
+            dataset.removeAllSeries();
+            dataset.setXScale(timeScale);
+            dataset.setVisibleRange(chart.getXYPlot().getDomainAxis().getRange(), getDisplayPixels());
+            seriesIndex.clear();
+            if (processors.length == 0) {
+                return;
+            }
             chart.getXYPlot().clearDomainMarkers();
             chart.getXYPlot().clearAnnotations();
 
-            if (logReader instanceof ULogReader) {
-                Map<String, List<ULogReader.ParamUpdate>> updateMap = ((ULogReader) logReader).parameterUpdates;
-                for (List<ULogReader.ParamUpdate> updList: updateMap.values()) {
-                    for (ULogReader.ParamUpdate upd: updList) {
-                        // add a labelled marker for each parameter update
-                        double mTime = (upd.getTimestamp() + timeOffset) * 1e-6;
-                        if (timeMode == TIME_MODE_GPS) {
-                            // time axis is msec instead of sec
-                            mTime *= 1e3;
-                        }
-                        final org.jfree.chart.plot.Marker updMarker = new ValueMarker(mTime);
-                        updMarker.setPaint(Color.black);
-                        updMarker.setLabel(upd.getName() + ":" + upd.getValue());
-                        updMarker.setLabelAnchor(RectangleAnchor.TOP_RIGHT);
-                        updMarker.setLabelTextAnchor(TextAnchor.TOP_LEFT);
-                        chart.getXYPlot().addDomainMarker(updMarker);
-                    }
+            for (ParamUpdate upd : data.getParameterUpdates()) {
+                // add a labelled marker for each parameter update
+                double mTime = (upd.getTimestamp() + timeOffset) * 1e-6;
+                if (jobTimeMode == TIME_MODE_GPS) {
+                    // time axis is msec instead of sec
+                    mTime *= 1e3;
                 }
+                final org.jfree.chart.plot.Marker updMarker = new ValueMarker(mTime);
+                updMarker.setPaint(Color.black);
+                updMarker.setLabel(upd.getName() + ":" + upd.getValue());
+                updMarker.setLabelAnchor(RectangleAnchor.TOP_RIGHT);
+                updMarker.setLabelTextAnchor(TextAnchor.TOP_LEFT);
+                chart.getXYPlot().addDomainMarker(updMarker);
             }
 
-            for (int i = 0; i < activeProcessors.size(); i++) {
-                PlotProcessor processor = processors[i];
-                String processorTitle = activeProcessors.get(i).getTitle();
+            for (int i = 0; i < processors.length; i++) {
+                String processorTitle = presets.get(i).getTitle();
                 Map<String, Integer> processorSeriesIndex = new HashMap<String, Integer>();
                 seriesIndex.add(processorSeriesIndex);
-                for (PlotItem item : processor.getSeriesList()) {
-                    if (item instanceof Series) {
-                        Series series = (Series) item;
-                        processorSeriesIndex.put(series.getTitle(), dataset.getSeriesCount());
-                        XYSeries jseries = new XYSeries(series.getFullTitle(processorTitle), false);
-                        for (XYPoint point : series) {
-                            jseries.add(point.x * timeScale, point.y, false);
-                        }
-                        dataset.addSeries(jseries);
-                    } else if (item instanceof MarkersList) {
-                        MarkersList markers = (MarkersList) item;
-                        processorSeriesIndex.put(markers.getTitle(), dataset.getSeriesCount());
-                        XYSeries jseries = new XYSeries(markers.getFullTitle(processorTitle), false);
-                        dataset.addSeries(jseries);
-                        for (Marker marker : markers) {
+                List<PlotItem> items = processors[i].getSeriesList();
+                for (int j = 0; j < items.size(); j++) {
+                    PlotItem item = items.get(j);
+                    processorSeriesIndex.put(item.getTitle(), dataset.getSeriesCount());
+                    dataset.addSeries(getFullTitle(item, processorTitle), item);
+                    if (item instanceof MarkersList) {
+                        for (Marker marker : (MarkersList) item) {
                             // shift text with a space to make it not stick at the border
                             XYTextAnnotation updateLabel = new XYTextAnnotation(" " + marker.label, marker.x * timeScale,
                                     chart.getXYPlot().getRangeAxis().getRange().getUpperBound());
@@ -1306,10 +1763,108 @@ public class FlightPlot {
                     }
                 }
             }
+            if (sweepData == data && sweepTimeOffset == timeOffset) {
+                AbstractRenderer renderer = (AbstractRenderer) chart.getXYPlot().getRendererForDataset(dataset);
+                for (Map.Entry<String, Series> entry : sweepOverlay.entrySet()) {
+                    renderer.setSeriesPaint(dataset.getSeriesCount(), Color.GRAY, false);
+                    dataset.addSeries(entry.getKey(), entry.getValue());
+                }
+            }
+            shownOverlay = sweepOverlay;
             setChartColors();
             setChartMarkers();
         }
-        chartPanel.repaint();
+    }
+
+    public void showSweepDialog() {
+        if (logData == null) {
+            JOptionPane.showMessageDialog(mainFrame, "Log file must be opened first.", "Error",
+                    JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        if (logLoader != null) {
+            JOptionPane.showMessageDialog(mainFrame, "Log file is still loading.", "Error",
+                    JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        ProcessorPreset selectedProcessor = getSelectedProcessor();
+        if (selectedProcessor == null) {
+            JOptionPane.showMessageDialog(mainFrame, "Processor to sweep must be selected.", "Error",
+                    JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        sweepDialog.display(selectedProcessor);
+    }
+
+    void runSweep(ParameterSweep sweep) {
+        sweepEngine.submit(new SweepJob(sweep));
+    }
+
+    /**
+     * Cancel running sweep and remove its candidates from the chart.
+     */
+    void cancelSweep() {
+        sweepEngine.cancel();
+        if (!sweepOverlay.isEmpty()) {
+            sweepOverlay = Collections.emptyMap();
+            sweepData = null;
+            processFile();
+        }
+    }
+
+    void applySweepValues(ProcessorPreset processorPreset, Map<String, Double> values) {
+        updatePresetParameters(processorPreset, new HashMap<String, Object>(values));
+        updatePresetEdited(true);
+        parametersTableModel.removeTableModelListener(parameterChangedListener);
+        showProcessorParameters();
+        parametersTableModel.addTableModelListener(parameterChangedListener);
+        processFile();
+    }
+
+    /**
+     * Simulates all combinations of the sweep over the current log in the background, response series of the best
+     * candidates are overlaid on the chart.
+     */
+    private class SweepJob extends ProcessingJob<List<ParameterSweep.Result>> {
+        private final ParameterSweep sweep;
+        private final LogData data = logData;
+        private final long timeOffset = getTimeOffset(timeMode);
+        private final String title = sweepDialog.getProcessorPreset().getTitle();
+
+        public SweepJob(ParameterSweep sweep) {
+            this.sweep = sweep;
+        }
+
+        @Override
+        protected List<ParameterSweep.Result> process() throws Exception {
+            return sweep.run(data, processorsTypesList, processorsRunner, SWEEP_OVERLAY_COUNT, timeOffset, this);
+        }
+
+        @Override
+        protected void publish(List<ParameterSweep.Result> results) {
+            if (results == null) {
+                return;
+            }
+            sweepDialog.setResults(results, sweep.getParameters());
+            sweepDialog.setStatus(String.format("Simulated %d combinations", results.size()));
+            Map<String, Series> overlay = new LinkedHashMap<String, Series>();
+            for (int i = 0; i < Math.min(SWEEP_OVERLAY_COUNT, results.size()); i++) {
+                Series response = results.get(i).getResponse();
+                overlay.put(response.getFullTitle(title + " #" + (i + 1)), response);
+            }
+            sweepOverlay = overlay;
+            sweepData = data;
+            sweepTimeOffset = timeOffset;
+            processFile();
+        }
+
+        @Override
+        protected void failed(Exception e) {
+            sweepDialog.setStatus("Error: " + e.getMessage());
+            e.printStackTrace();
+        }
     }
 
     private void setChartColors() {
@@ -1500,6 +2055,123 @@ public class FlightPlot {
         }
     }
 
+    /**
+     * @return value of the parameter in the row if it may be changed by dragging, or null
+     */
+    Double getDragValue(int row) {
+        ProcessorPreset selectedProcessor = getSelectedProcessor();
+        if (selectedProcessor == null) {
+            return null;
+        }
+        Object value = selectedProcessor.getParameters().get(parametersTableModel.getValueAt(row, 0).toString());
+        return value instanceof Double ? (Double) value : null;
+    }
+
+    /**
+     * Show the value while dragging and preview the processor with it in the visible range, the preset is not changed.
+     */
+    void onParameterDragged(int row, double value) {
+        ProcessorPreset selectedProcessor = getSelectedProcessor();
+        if (selectedProcessor == null) {
+            return;
+        }
+        String key = parametersTableModel.getValueAt(row, 0).toString();
+        parametersTableModel.removeTableModelListener(parameterChangedListener);
+        parametersTableModel.setValueAt(formatParameterValue(value), row, 1);
+        parametersTableModel.addTableModelListener(parameterChangedListener);
+        int index = activeProcessors.indexOf(selectedProcessor);
+        if (index >= 0 && index < seriesIndex.size() && processedData != null) {
+            ProcessorPreset previewPreset = selectedProcessor.clone();
+            previewPreset.getParameters().put(key, value);
+            previewEngine.submit(new PreviewJob(index, previewPreset));
+        }
+    }
+
+    /**
+     * Apply the value when dragging ends, the processor is processed in the full range.
+     */
+    void onParameterDragEnd(int row, double value) {
+        previewEngine.cancel();
+        setEditingProcessor();
+        parametersTableModel.setValueAt(formatParameterValue(value), row, 1);
+    }
+
+    /**
+     * Processes one shown processor with changed parameters only in the visible range of the chart and replaces its
+     * series on the chart, other processors are not processed. Processor starts in the initial state before the visible
+     * range, so the preview may differ from full processing at the start of the range.
+     */
+    private class PreviewJob extends ProcessingJob<PlotProcessor> {
+        private final int index;
+        private final ProcessorPreset preset;
+        private final LogData data = processedData;
+        private final long timeOffset = processedTimeOffset;
+        private final long timeStart;
+        private final long timeStop;
+        private final long startTime = System.nanoTime();
+        private boolean usesOutputs = false;
+
+        public PreviewJob(int index, ProcessorPreset preset) {
+            this.index = index;
+            this.preset = preset;
+            Range range = chart.getXYPlot().getDomainAxis().getRange();
+            double xScale = dataset.getXScale();
+            long start = (long) (range.getLowerBound() / xScale * 1e6) - timeOffset;
+            long stop = (long) (range.getUpperBound() / xScale * 1e6) - timeOffset;
+            timeStart = start - (long) ((stop - start) * PREVIEW_PREROLL);
+            timeStop = stop;
+        }
+
+        @Override
+        protected PlotProcessor process() throws Exception {
+            PlotProcessor processor = processorsTypesList.getProcessorInstance(preset, 0.0, data.getFields(), data);
+            Set<String> usedFields = processor.getUsedFields();
+            if (usedFields != null && !data.getFields().keySet().containsAll(usedFields)) {
+                // Outputs of other processors are not available without processing them
+                usesOutputs = true;
+                return processor;
+            }
+            if (!ProcessorsRunner.runRange(data, processor, timeStart, timeStop, timeOffset, this)) {
+                return null;
+            }
+            return processor;
+        }
+
+        @Override
+        protected void publish(PlotProcessor processor) {
+            if (processor == null) {
+                // Cancelled
+                return;
+            }
+            if (usesOutputs) {
+                setStatus("Preview is not available for processor using outputs of other processors");
+                return;
+            }
+            if (processedData != data || processedTimeOffset != timeOffset || index >= seriesIndex.size()) {
+                return;
+            }
+            String processorTitle = activeProcessors.get(index).getTitle();
+            for (PlotItem item : processor.getSeriesList()) {
+                Integer seriesIdx = seriesIndex.get(index).get(item.getTitle());
+                if (seriesIdx != null && item instanceof Series) {
+                    dataset.setSeries(seriesIdx, ((Series) item).getFullTitle(processorTitle), item);
+                }
+            }
+            // Series of the processor must be replaced by the next processing
+            if (index < shownKeys.size()) {
+                shownKeys = new ArrayList<List<Object>>(shownKeys);
+                shownKeys.set(index, null);
+            }
+            setStatus(String.format(Locale.ROOT, "Preview: %d ms", (System.nanoTime() - startTime) / 1000000));
+        }
+
+        @Override
+        protected void failed(Exception e) {
+            setStatus("Error: " + e);
+            e.printStackTrace();
+        }
+    }
+
     ColorSupplier getColorSupplier() {
         return colorSupplier;
     }
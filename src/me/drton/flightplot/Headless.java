@@ -0,0 +1,366 @@
+package me.drton.flightplot;
+
+import me.drton.flightplot.data.LogData;
+import me.drton.flightplot.data.LogDataBuilder;
+import me.drton.flightplot.data.LogMessage;
+import me.drton.flightplot.engine.ProcessorsGraph;
+import me.drton.flightplot.engine.ProcessorsRunner;
+import me.drton.flightplot.fleet.FleetReport;
+import me.drton.flightplot.processors.PlotProcessor;
+import me.drton.flightplot.processors.ProcessorsList;
+import me.drton.jmavlib.log.LogReader;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Processing of logs without UI: processors of the preset are applied to each log and all series are written to the
+ * output directory, one directory per log and one file per series. Logs are processed concurrently by a bounded pool
+ * of threads, each log is decoded to memory and released when its series are written.
+ * <p/>
+ * If the fleet report is enabled, outputs of each log are also reduced to summaries which are merged into the report,
+ * so statistics over any number of logs can be collected without keeping their series.
+ */
+public class Headless {
+    private static final List<String> LOG_EXTENSIONS = Arrays.asList("px4log", "bin", "ulg", "mavlink", "tlog");
+    /**
+     * Approximate ratio of the decoded log and processed series size in memory to the log file size
+     */
+    private static final int LOG_MEMORY_FACTOR = 4;
+
+    private final List<ProcessorPreset> presets = new ArrayList<ProcessorPreset>();
+    private final ProcessorsList processorsList;
+    private final ProcessorsRunner runner;
+    private final File outDir;
+    private final boolean binary;
+    private final long logMemoryLimit;
+    private final List<String> titles = new ArrayList<String>();
+    private FleetReport report = null;
+
+    /**
+     * @param outDir         output directory for series or null to not write series
+     * @param binary         write binary columns instead of CSV
+     * @param logMemoryLimit max estimated memory used to process one log in bytes, larger logs are skipped, 0 for no
+     *                       limit
+     */
+    public Headless(Preset preset, File outDir, boolean binary, int threads, long logMemoryLimit)
+            throws IllegalAccessException, InstantiationException {
+        for (ProcessorPreset processorPreset : preset.getProcessorPresets()) {
+            if (processorPreset.isVisible()) {
+                presets.add(processorPreset);
+                titles.add(processorPreset.getTitle());
+            }
+        }
+        this.processorsList = new ProcessorsList();
+        this.runner = new ProcessorsRunner(threads);
+        this.outDir = outDir;
+        this.binary = binary;
+        this.logMemoryLimit = logMemoryLimit;
+    }
+
+    /**
+     * Reduce outputs of all processed logs to the fleet report.
+     */
+    public void setReport(FleetReport report) {
+        this.report = report;
+    }
+
+    public static void main(String[] args) {
+        String presetFile = null;
+        String outDir = null;
+        String reportDir = null;
+        boolean binary = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long logMemory = 0;
+        List<String> paths = new ArrayList<String>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if (arg.equals("--headless")) {
+                    continue;
+                } else if (arg.equals("--preset")) {
+                    presetFile = args[++i];
+                } else if (arg.equals("--out")) {
+                    outDir = args[++i];
+                } else if (arg.equals("--aggregate")) {
+                    reportDir = args[++i];
+                } else if (arg.equals("--format")) {
+                    String format = args[++i];
+                    if (!format.equals("csv") && !format.equals("bin")) {
+                        throw new IllegalArgumentException("Unknown format: " + format);
+                    }
+                    binary = format.equals("bin");
+                } else if (arg.equals("--threads")) {
+                    threads = Integer.parseInt(args[++i]);
+                } else if (arg.equals("--log-memory")) {
+                    logMemory = Long.parseLong(args[++i]) << 20;
+                } else if (arg.startsWith("--")) {
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+                } else {
+                    paths.add(arg);
+                }
+            }
+            if (presetFile == null || (outDir == null && reportDir == null) || paths.isEmpty() || threads < 1) {
+                throw new IllegalArgumentException("Preset, output or report directory and logs must be specified");
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Error: " + e.getMessage());
+            printUsage();
+            System.exit(2);
+            return;
+        }
+        int failed;
+        try {
+            Headless headless = new Headless(Preset.readFile(new File(presetFile)),
+                    outDir == null ? null : new File(outDir), binary, threads, logMemory);
+            FleetReport report = null;
+            if (reportDir != null) {
+                report = new FleetReport();
+                headless.setReport(report);
+            }
+            failed = headless.processLogs(findLogs(paths), threads);
+            if (report != null) {
+                report.write(new File(reportDir));
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(2);
+            return;
+        }
+        System.exit(failed > 0 ? 1 : 0);
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: FlightPlot --headless --preset <preset.fplot> --out <dir> [options] <logs or dirs>");
+        System.err.println("  --aggregate <dir>   write fleet statistics of all logs to the directory: series.csv,");
+        System.err.println("                      markers.csv and histograms.csv, --out is optional with it");
+        System.err.println("  --format csv|bin    series format, csv: 'time,value' lines, bin: number of points");
+        System.err.println("                      (int) followed by times and values columns (doubles), big-endian");
+        System.err.println("  --threads N         number of logs processed concurrently, number of CPUs by default");
+        System.err.println("  --log-memory MB     skip logs which need more memory to process, no limit by default");
+        System.err.println("Directories are searched for logs recursively, times are in seconds from the log start.");
+    }
+
+    /**
+     * @return log files, directories are searched recursively
+     */
+    public static List<File> findLogs(List<String> paths) {
+        List<File> logs = new ArrayList<File>();
+        for (String path : paths) {
+            addLogs(new File(path), logs, true);
+        }
+        return logs;
+    }
+
+    private static void addLogs(File file, List<File> logs, boolean explicit) {
+        if (file.isDirectory()) {
+            File[] files = file.listFiles();
+            if (files != null) {
+                Arrays.sort(files);
+                for (File f : files) {
+                    addLogs(f, logs, false);
+                }
+            }
+        } else if (explicit || isLogFile(file)) {
+            logs.add(file);
+        }
+    }
+
+    private static boolean isLogFile(File file) {
+        String name = file.getName().toLowerCase();
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 && LOG_EXTENSIONS.contains(name.substring(dot + 1));
+    }
+
+    /**
+     * Process logs on the pool of threads.
+     *
+     * @return number of failed logs
+     */
+    public int processLogs(final List<File> logs, int threads) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final AtomicInteger done = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        List<String> outNames = getOutNames(logs);
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (int i = 0; i < logs.size(); i++) {
+            final File log = logs.get(i);
+            final File logOutDir = outDir == null ? null : new File(outDir, outNames.get(i));
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    long t0 = System.currentTimeMillis();
+                    String result;
+                    try {
+                        processLog(log, logOutDir);
+                        result = String.format(Locale.ROOT, "OK (%.1f s)", (System.currentTimeMillis() - t0) * 1e-3);
+                    } catch (Throwable e) {
+                        // Out of memory error of one log should not stop processing of others
+                        failed.incrementAndGet();
+                        result = "Error: " + e;
+                    }
+                    System.out.println(String.format("[%d/%d] %s: %s", done.incrementAndGet(), logs.size(), log,
+                            result));
+                    return null;
+                }
+            });
+        }
+        try {
+            executor.invokeAll(tasks);
+        } finally {
+            executor.shutdown();
+        }
+        System.out.println(String.format("Processed %d logs, failed: %d", logs.size(), failed.get()));
+        return failed.get();
+    }
+
+    /**
+     * @return names of the output directories, log file names made unique
+     */
+    private static List<String> getOutNames(List<File> logs) {
+        List<String> names = new ArrayList<String>();
+        Set<String> used = new HashSet<String>();
+        for (File log : logs) {
+            String name = sanitize(log.getName());
+            String unique = name;
+            for (int n = 2; used.contains(unique); n++) {
+                unique = name + "_" + n;
+            }
+            used.add(unique);
+            names.add(unique);
+        }
+        return names;
+    }
+
+    private static String sanitize(String name) {
+        return name.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    /**
+     * Decode the whole log to memory.
+     */
+    public static LogData readLog(File log) throws Exception {
+        List<LogMessage> logMessages = new ArrayList<LogMessage>();
+        LogReader reader = FlightPlot.createLogReader(log.getPath(), false, logMessages);
+        try {
+            LogDataBuilder builder = new LogDataBuilder(reader);
+            builder.setMessages(logMessages);
+            return builder.readAll();
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Process the log with the processors of the preset.
+     *
+     * @return processors with complete series, times are in seconds from the log start
+     */
+    public PlotProcessor[] process(LogData data) throws Exception {
+        ProcessorsGraph graph = new ProcessorsGraph(data, presets, processorsList);
+        graph.process(runner, -data.getStartMicroseconds(), null);
+        return graph.getProcessors();
+    }
+
+    /**
+     * Decode and process the log, check memory limit before decoding.
+     *
+     * @return processors with complete series
+     */
+    public PlotProcessor[] processLog(File log) throws Exception {
+        if (logMemoryLimit > 0 && log.length() * LOG_MEMORY_FACTOR > logMemoryLimit) {
+            throw new IOException(String.format("Log is too large: %d MB", log.length() >> 20));
+        }
+        return process(readLog(log));
+    }
+
+    private void processLog(File log, File logOutDir) throws Exception {
+        PlotProcessor[] processors = processLog(log);
+        if (report != null) {
+            report.merge(FleetReport.of(titles, processors));
+        }
+        if (logOutDir == null) {
+            return;
+        }
+        if (!logOutDir.isDirectory() && !logOutDir.mkdirs()) {
+            throw new IOException("Can't create output directory: " + logOutDir);
+        }
+        for (int i = 0; i < processors.length; i++) {
+            String processorTitle = presets.get(i).getTitle();
+            for (PlotItem item : processors[i].getSeriesList()) {
+                if (item instanceof Series) {
+                    String name = sanitize(((Series) item).getFullTitle(processorTitle));
+                    if (binary) {
+                        writeBinary((Series) item, new File(logOutDir, name + ".bin"));
+                    } else {
+                        writeCSV((Series) item, new File(logOutDir, name + ".csv"));
+                    }
+                } else {
+                    String name = sanitize(((MarkersList) item).getFullTitle(processorTitle));
+                    writeMarkers((MarkersList) item, new File(logOutDir, name + ".csv"));
+                }
+            }
+        }
+    }
+
+    private static void writeCSV(Series series, File file) throws IOException {
+        Writer writer = new BufferedWriter(new FileWriter(file), 1 << 16);
+        try {
+            writer.write("time,value\n");
+            for (int i = 0; i < series.size(); i++) {
+                writer.write(Double.toString(series.getX(i)));
+                writer.write(',');
+                writer.write(Double.toString(series.getY(i)));
+                writer.write('\n');
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static void writeBinary(Series series, File file) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+        try {
+            out.writeInt(series.size());
+            for (int i = 0; i < series.size(); i++) {
+                out.writeDouble(series.getX(i));
+            }
+            for (int i = 0; i < series.size(); i++) {
+                out.writeDouble(series.getY(i));
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void writeMarkers(MarkersList markers, File file) throws IOException {
+        Writer writer = new BufferedWriter(new FileWriter(file));
+        try {
+            writer.write("time,label\n");
+            for (Marker marker : markers) {
+                writer.write(Double.toString(marker.x));
+                writer.write(",\"");
+                writer.write(marker.label.replace("\"", "\"\""));
+                writer.write("\"\n");
+            }
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -1,6 +1,6 @@
 package me.drton.flightplot;
 
-import me.drton.jmavlib.log.LogReader;
+import me.drton.flightplot.data.LogData;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
@@ -36,39 +36,39 @@ public class LogInfo {
         mainFrame.setVisible(visible);
     }
 
-    public void updateInfo(LogReader logReader) {
+    public void updateInfo(LogData logData) {
         while (infoTableModel.getRowCount() > 0) {
             infoTableModel.removeRow(0);
         }
         while (parametersTableModel.getRowCount() > 0) {
             parametersTableModel.removeRow(0);
         }
-        if (logReader != null) {
-            infoTableModel.addRow(new Object[]{"Format", logReader.getFormat()});
-            infoTableModel.addRow(new Object[]{"System", logReader.getSystemName()});
+        if (logData != null) {
+            infoTableModel.addRow(new Object[]{"Format", logData.getFormat()});
+            infoTableModel.addRow(new Object[]{"System", logData.getSystemName()});
             infoTableModel.addRow(new Object[]{
-                    "Length, s", String.format(Locale.ROOT, "%.3f", logReader.getSizeMicroseconds() * 1e-6)});
+                    "Length, s", String.format(Locale.ROOT, "%.3f", logData.getSizeMicroseconds() * 1e-6)});
             String startTimeStr = "";
             String endTimeStr = "";
-            if (logReader.getUTCTimeReferenceMicroseconds() > 0) {
+            if (logData.getUTCTimeReferenceMicroseconds() > 0) {
                 startTimeStr = dateFormat.format(
-                        new Date((logReader.getStartMicroseconds() + logReader.getUTCTimeReferenceMicroseconds()) / 1000)) + " UTC";
+                        new Date((logData.getStartMicroseconds() + logData.getUTCTimeReferenceMicroseconds()) / 1000)) + " UTC";
                 endTimeStr = dateFormat.format(
-                        new Date((logReader.getStartMicroseconds() + logReader.getSizeMicroseconds() + logReader.getUTCTimeReferenceMicroseconds()) / 1000)) + " UTC";
+                        new Date((logData.getStartMicroseconds() + logData.getSizeMicroseconds() + logData.getUTCTimeReferenceMicroseconds()) / 1000)) + " UTC";
             }
             infoTableModel.addRow(new Object[]{
                     "Start Time", startTimeStr});
             infoTableModel.addRow(new Object[]{
                     "End Time", endTimeStr});
-            infoTableModel.addRow(new Object[]{"Updates count", logReader.getSizeUpdates()});
-            infoTableModel.addRow(new Object[]{"Errors", logReader.getErrors().size()});
-            Map<String, Object> ver = logReader.getVersion();
+            infoTableModel.addRow(new Object[]{"Updates count", logData.getSizeUpdates()});
+            infoTableModel.addRow(new Object[]{"Errors", logData.getErrors().size()});
+            Map<String, Object> ver = logData.getVersion();
             infoTableModel.addRow(new Object[]{"Hardware Version", ver.get("HW")});
             infoTableModel.addRow(new Object[]{"Firmware Version", ver.get("FW")});
             infoTableModel.addRow(new Object[]{"Firmware Tag", ver.get("Tag")});
             infoTableModel.addRow(new Object[]{"UID", ver.get("UID")});
             infoTableModel.addRow(new Object[]{"Compile Time", ver.get("CTS")});
-            Map<String, Object> parameters = logReader.getParameters();
+            Map<String, Object> parameters = logData.getParameters();
             List<String> keys = new ArrayList<String>(parameters.keySet());
             Collections.sort(keys);
             for (String key : keys) {
@@ -0,0 +1,75 @@
+package me.drton.flightplot;
+
+import javax.swing.*;
+import java.awt.event.InputEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+
+/**
+ * Changes numeric parameter values by dragging the mouse horizontally over the value cell. Value is scaled by 10 per
+ * {@link #PIXELS_PER_DECADE} pixels, zero value is changed by {@link #ZERO_STEP} per pixel, Shift makes changes 10
+ * times finer. Preview is requested while dragging, the value is applied when the drag ends.
+ */
+class ParamValueDragger extends MouseAdapter {
+    private static final double PIXELS_PER_DECADE = 200.0;
+    private static final double ZERO_STEP = 0.01;
+    private static final int DRAG_THRESHOLD = 3;
+
+    private final FlightPlot app;
+    private final JTable table;
+    private int row = -1;
+    private int startX;
+    private double startValue;
+    private double value;
+    private boolean dragging = false;
+
+    public ParamValueDragger(FlightPlot app, JTable table) {
+        this.app = app;
+        this.table = table;
+    }
+
+    @Override
+    public void mousePressed(MouseEvent e) {
+        row = -1;
+        dragging = false;
+        int r = table.rowAtPoint(e.getPoint());
+        if (r < 0 || table.columnAtPoint(e.getPoint()) != 1 || e.getClickCount() > 1) {
+            return;
+        }
+        Double v = app.getDragValue(r);
+        if (v != null) {
+            row = r;
+            startX = e.getX();
+            startValue = v;
+            value = v;
+        }
+    }
+
+    @Override
+    public void mouseDragged(MouseEvent e) {
+        if (row < 0) {
+            return;
+        }
+        int dx = e.getX() - startX;
+        if (!dragging && Math.abs(dx) < DRAG_THRESHOLD) {
+            return;
+        }
+        dragging = true;
+        double scale = (e.getModifiersEx() & InputEvent.SHIFT_DOWN_MASK) != 0 ? 0.1 : 1.0;
+        if (startValue == 0.0) {
+            value = dx * ZERO_STEP * scale;
+        } else {
+            value = startValue * Math.pow(10.0, dx * scale / PIXELS_PER_DECADE);
+        }
+        app.onParameterDragged(row, value);
+    }
+
+    @Override
+    public void mouseReleased(MouseEvent e) {
+        if (row >= 0 && dragging) {
+            app.onParameterDragEnd(row, value);
+        }
+        row = -1;
+        dragging = false;
+    }
+}
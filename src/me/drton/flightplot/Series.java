@@ -1,19 +1,118 @@
 package me.drton.flightplot;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Created by ton on 09.03.15.
+ * <p/>
+ * Points are stored in primitive arrays. Values are stored as floats while all of them can be represented as float
+ * exactly (e.g. values of float log fields passed without processing), storage is switched to doubles on the first
+ * value that can't.
+ * <p/>
+ * Added points are decimated to buckets of skipOut width (one bucket per display pixel), see {@link Decimation}.
+ * NaN values are never decimated, they are used to break the line. {@link #flush()} must be called after the last
+ * point added.
+ * <p/>
+ * Complete series may be indexed in min/max pyramid with power-of-two levels, see {@link #buildLevels()}, then
+ * decimated view of any range is created from the level matching the range without scanning all points.
  */
-public class Series extends ArrayList<XYPoint> implements PlotItem {
+public class Series implements PlotItem {
+    private static final int INITIAL_CAPACITY = 256;
+    /**
+     * Bucket size of the first pyramid level is 2^LEVEL_MIN points
+     */
+    private static final int LEVEL_MIN = 3;
+    /**
+     * Max number of points per bucket of the view decimated directly, without the pyramid
+     */
+    private static final int VIEW_POINTS_PER_BUCKET = 32;
+    /**
+     * Min number of pyramid buckets per bucket of the view
+     */
+    private static final int VIEW_LEVEL_BUCKETS_PER_BUCKET = 4;
+
+    public static enum Decimation {
+        /**
+         * Keep first point in each bucket (may lose peaks)
+         */
+        SKIP,
+        /**
+         * Keep first, last, min and max point in each bucket
+         */
+        M4,
+        /**
+         * Largest triangle three buckets, keep one point in each bucket
+         */
+        LTTB;
+
+        /**
+         * @return decimation mode by name, M4 if the name is unknown
+         */
+        public static Decimation parse(String name) {
+            for (Decimation decimation : values()) {
+                if (decimation.name().equalsIgnoreCase(name.trim())) {
+                    return decimation;
+                }
+            }
+            return M4;
+        }
+    }
+
     private final String title;
     private final double skipOut;
-    private Double lastTime = null;
-    private Double lastValue = null;
+    private final Decimation decimation;
+    private int size = 0;
+    private double[] x = new double[INITIAL_CAPACITY];
+    private float[] yFloat = new float[INITIAL_CAPACITY];
+    private double[] y = null;
+    private double minX = Double.NaN;
+    private double maxX = Double.NaN;
+    private double minY = Double.NaN;
+    private double maxY = Double.NaN;
+    private boolean monotonic = true;
+
+    // Pyramid levels, each bucket is stored as two points, min and max in original order
+    private double[][] levelX = null;
+    private double[][] levelY = null;
+    private boolean[][] levelGaps = null;
+
+    // SKIP
+    private boolean hasLast = false;
+    private double lastTime;
+    private boolean hasSkipped = false;
+    private double lastValue;
+
+    // M4 and LTTB, current bucket
+    private long bucket;
+    private int bucketSize = 0;
+    private double firstT, firstV, lastT, lastV, minT, minV, maxT, maxV;
+    private int minN, maxN;
+
+    // LTTB, points of the current and the previous bucket
+    private boolean hasAnchor = false;
+    private double anchorT, anchorV;
+    private double[] bucketT;
+    private double[] bucketV;
+    private int prevSize = 0;
+    private double[] prevT;
+    private double[] prevV;
 
     public Series(String title, double skipOut) {
+        this(title, skipOut, Decimation.M4);
+    }
+
+    public Series(String title, double skipOut, Decimation decimation) {
         this.title = title;
         this.skipOut = skipOut;
+        this.decimation = decimation;
+        if (decimation == Decimation.LTTB) {
+            bucketT = new double[16];
+            bucketV = new double[16];
+            prevT = new double[16];
+            prevV = new double[16];
+        }
     }
 
     @Override
@@ -25,16 +124,443 @@ public class Series extends ArrayList<XYPoint> implements PlotItem {
         return processorTitle + (title.isEmpty() ? "" : (":" + title));
     }
 
+    public int size() {
+        return size;
+    }
+
+    public double getX(int i) {
+        return x[i];
+    }
+
+    public double getY(int i) {
+        return y != null ? y[i] : yFloat[i];
+    }
+
+    /**
+     * @return min time of the points or NaN if the series is empty
+     */
+    public double getMinX() {
+        return minX;
+    }
+
+    public double getMaxX() {
+        return maxX;
+    }
+
+    /**
+     * @return min value of the points, NaN values are ignored, NaN if there are no values
+     */
+    public double getMinY() {
+        return minY;
+    }
+
+    public double getMaxY() {
+        return maxY;
+    }
+
+    /**
+     * @return approximate size of the points and the pyramid in bytes
+     */
+    public long getMemorySize() {
+        long bytes = (long) x.length * 8 + (y != null ? (long) y.length * 8 : (long) yFloat.length * 4);
+        if (levelX != null) {
+            for (int i = 0; i < levelX.length; i++) {
+                bytes += (long) levelX[i].length * 16 + levelGaps[i].length;
+            }
+        }
+        return bytes;
+    }
+
+    public Decimation getDecimation() {
+        return decimation;
+    }
+
     public void addPoint(double time, double value) {
-        if (lastTime != null && time - lastTime < skipOut) {
+        if (skipOut <= 0.0) {
+            add(time, value);
+            return;
+        }
+        switch (decimation) {
+            case SKIP:
+                addPointSkip(time, value);
+                break;
+            case M4:
+                addPointM4(time, value);
+                break;
+            case LTTB:
+                addPointLTTB(time, value);
+                break;
+        }
+    }
+
+    /**
+     * Add points pending in the last bucket.
+     */
+    public void flush() {
+        if (decimation == Decimation.M4) {
+            flushM4();
+        } else if (decimation == Decimation.LTTB) {
+            flushLTTB();
+        }
+    }
+
+    /**
+     * Build min/max pyramid of the points, must be called after {@link #flush()}.
+     */
+    public void buildLevels() {
+        List<double[]> xs = new ArrayList<double[]>();
+        List<double[]> ys = new ArrayList<double[]>();
+        List<boolean[]> gaps = new ArrayList<boolean[]>();
+        int firstBucketSize = 1 << LEVEL_MIN;
+        int buckets = (size + firstBucketSize - 1) / firstBucketSize;
+        if (buckets < 2) {
+            return;
+        }
+        double[] lx = new double[buckets * 2];
+        double[] ly = new double[buckets * 2];
+        boolean[] lg = new boolean[buckets];
+        for (int b = 0; b < buckets; b++) {
+            int start = b * firstBucketSize;
+            int end = Math.min(start + firstBucketSize, size);
+            int iMin = -1;
+            int iMax = -1;
+            for (int i = start; i < end; i++) {
+                double v = getY(i);
+                if (Double.isNaN(v)) {
+                    lg[b] = true;
+                } else {
+                    if (iMin < 0 || v < getY(iMin)) {
+                        iMin = i;
+                    }
+                    if (iMax < 0 || v > getY(iMax)) {
+                        iMax = i;
+                    }
+                }
+            }
+            if (iMin < 0) {
+                // Only NaN values in the bucket
+                iMin = iMax = start;
+            }
+            setBucket(lx, ly, b, x[Math.min(iMin, iMax)], getY(Math.min(iMin, iMax)), x[Math.max(iMin, iMax)],
+                    getY(Math.max(iMin, iMax)));
+        }
+        xs.add(lx);
+        ys.add(ly);
+        gaps.add(lg);
+        while (buckets > 1) {
+            double[] px = lx;
+            double[] py = ly;
+            boolean[] pg = lg;
+            int prevBuckets = buckets;
+            buckets = (prevBuckets + 1) / 2;
+            lx = new double[buckets * 2];
+            ly = new double[buckets * 2];
+            lg = new boolean[buckets];
+            for (int b = 0; b < buckets; b++) {
+                int first = b * 4;
+                int last = Math.min(first + 4, prevBuckets * 2);
+                int iMin = -1;
+                int iMax = -1;
+                for (int i = first; i < last; i++) {
+                    double v = py[i];
+                    if (!Double.isNaN(v)) {
+                        if (iMin < 0 || v < py[iMin]) {
+                            iMin = i;
+                        }
+                        if (iMax < 0 || v > py[iMax]) {
+                            iMax = i;
+                        }
+                    }
+                }
+                if (iMin < 0) {
+                    iMin = iMax = first;
+                }
+                lg[b] = pg[b * 2] || (b * 2 + 1 < prevBuckets && pg[b * 2 + 1]);
+                setBucket(lx, ly, b, px[Math.min(iMin, iMax)], py[Math.min(iMin, iMax)], px[Math.max(iMin, iMax)],
+                        py[Math.max(iMin, iMax)]);
+            }
+            xs.add(lx);
+            ys.add(ly);
+            gaps.add(lg);
+        }
+        levelX = xs.toArray(new double[xs.size()][]);
+        levelY = ys.toArray(new double[ys.size()][]);
+        levelGaps = gaps.toArray(new boolean[gaps.size()][]);
+    }
+
+    private static void setBucket(double[] lx, double[] ly, int b, double x0, double y0, double x1, double y1) {
+        lx[b * 2] = x0;
+        ly[b * 2] = y0;
+        lx[b * 2 + 1] = x1;
+        ly[b * 2 + 1] = y1;
+    }
+
+    /**
+     * Create decimated view of the points in the given time range. The view includes one point outside of the range
+     * on each side to continue the line to the borders. Number of points processed doesn't depend on number of points
+     * in the range if the pyramid is built.
+     *
+     * @param buckets number of decimation buckets in the range
+     */
+    public Series getView(double timeStart, double timeStop, int buckets) {
+        Series view = new Series(title, (timeStop - timeStart) / buckets, decimation);
+        int start = 0;
+        int end = size;
+        if (monotonic) {
+            start = Math.max(0, lowerBound(timeStart) - 1);
+            end = Math.min(size, lowerBound(timeStop) + 1);
+        }
+        int maxPoints = buckets * VIEW_POINTS_PER_BUCKET;
+        if (levelX == null || end - start <= maxPoints) {
+            for (int i = start; i < end; i++) {
+                view.addPoint(x[i], getY(i));
+            }
+        } else if (end > start) {
+            // Coarsest level with enough buckets per view bucket
+            int level = 0;
+            while (level < levelX.length - 1 &&
+                    ((end - start) >> (level + 1 + LEVEL_MIN)) >= buckets * VIEW_LEVEL_BUCKETS_PER_BUCKET) {
+                level++;
+            }
+            double[] lx = levelX[level];
+            double[] ly = levelY[level];
+            boolean[] lg = levelGaps[level];
+            int shift = level + LEVEL_MIN;
+            for (int b = start >> shift; b <= (end - 1) >> shift; b++) {
+                view.addPoint(lx[b * 2], ly[b * 2]);
+                if (lg[b]) {
+                    view.addPoint(lx[b * 2], Double.NaN);
+                }
+                if (lx[b * 2 + 1] != lx[b * 2] || ly[b * 2 + 1] != ly[b * 2]) {
+                    view.addPoint(lx[b * 2 + 1], ly[b * 2 + 1]);
+                }
+            }
+        }
+        view.flush();
+        return view;
+    }
+
+    /**
+     * @return index of the first point with time not less than the given time
+     */
+    private int lowerBound(double time) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (x[mid] < time) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private void addPointSkip(double time, double value) {
+        if (hasLast && time - lastTime < skipOut) {
             lastValue = value;
+            hasSkipped = true;
             return;
         }
-        if (lastValue != null && lastTime != null && time - lastTime > skipOut * 2) {
-            add(new XYPoint(lastTime, lastValue));
+        if (hasSkipped && time - lastTime > skipOut * 2) {
+            add(lastTime, lastValue);
         }
+        hasLast = true;
         lastTime = time;
-        lastValue = null;
-        add(new XYPoint(time, value));
+        hasSkipped = false;
+        add(time, value);
+    }
+
+    private void addPointM4(double time, double value) {
+        if (Double.isNaN(value)) {
+            flushM4();
+            add(time, value);
+            return;
+        }
+        long b = (long) Math.floor(time / skipOut);
+        if (bucketSize > 0 && b != bucket) {
+            flushM4();
+        }
+        if (bucketSize == 0) {
+            bucket = b;
+            firstT = minT = maxT = time;
+            firstV = minV = maxV = value;
+            minN = maxN = 0;
+        } else {
+            if (value < minV) {
+                minT = time;
+                minV = value;
+                minN = bucketSize;
+            }
+            if (value > maxV) {
+                maxT = time;
+                maxV = value;
+                maxN = bucketSize;
+            }
+        }
+        lastT = time;
+        lastV = value;
+        bucketSize++;
+    }
+
+    private void flushM4() {
+        if (bucketSize == 0) {
+            return;
+        }
+        // Points in original order, without duplicates
+        add(firstT, firstV);
+        int lastN = bucketSize - 1;
+        if (minN < maxN) {
+            addM4Point(minN, lastN, minT, minV);
+            addM4Point(maxN, lastN, maxT, maxV);
+        } else {
+            addM4Point(maxN, lastN, maxT, maxV);
+            addM4Point(minN, lastN, minT, minV);
+        }
+        if (lastN > 0) {
+            add(lastT, lastV);
+        }
+        bucketSize = 0;
+    }
+
+    private void addM4Point(int n, int lastN, double time, double value) {
+        if (n != 0 && n != lastN) {
+            add(time, value);
+        }
+    }
+
+    private void addPointLTTB(double time, double value) {
+        if (Double.isNaN(value)) {
+            flushLTTB();
+            add(time, value);
+            return;
+        }
+        if (!hasAnchor) {
+            // First point is always kept
+            add(time, value);
+            hasAnchor = true;
+            anchorT = time;
+            anchorV = value;
+            bucket = (long) Math.floor(time / skipOut);
+            return;
+        }
+        long b = (long) Math.floor(time / skipOut);
+        if (b != bucket) {
+            if (bucketSize > 0) {
+                if (prevSize > 0) {
+                    selectLTTB(prevT, prevV, prevSize, average(bucketT, bucketSize), average(bucketV, bucketSize));
+                }
+                double[] t = prevT;
+                double[] v = prevV;
+                prevT = bucketT;
+                prevV = bucketV;
+                prevSize = bucketSize;
+                bucketT = t;
+                bucketV = v;
+                bucketSize = 0;
+            }
+            bucket = b;
+        }
+        if (bucketSize == bucketT.length) {
+            bucketT = Arrays.copyOf(bucketT, bucketSize * 2);
+            bucketV = Arrays.copyOf(bucketV, bucketSize * 2);
+        }
+        bucketT[bucketSize] = time;
+        bucketV[bucketSize] = value;
+        bucketSize++;
+    }
+
+    private void flushLTTB() {
+        if (prevSize > 0) {
+            if (bucketSize > 0) {
+                selectLTTB(prevT, prevV, prevSize, average(bucketT, bucketSize), average(bucketV, bucketSize));
+            } else {
+                flushLastBucketLTTB(prevT, prevV, prevSize);
+            }
+        }
+        if (bucketSize > 0) {
+            flushLastBucketLTTB(bucketT, bucketV, bucketSize);
+        }
+        hasAnchor = false;
+        prevSize = 0;
+        bucketSize = 0;
+    }
+
+    private void flushLastBucketLTTB(double[] t, double[] v, int n) {
+        // Last point is always kept
+        if (n > 1) {
+            selectLTTB(t, v, n - 1, t[n - 1], v[n - 1]);
+        }
+        add(t[n - 1], v[n - 1]);
+    }
+
+    /**
+     * Add point of the bucket that forms the largest triangle with the last selected point and the next point.
+     */
+    private void selectLTTB(double[] t, double[] v, int n, double nextT, double nextV) {
+        int best = 0;
+        double bestArea = -1.0;
+        for (int i = 0; i < n; i++) {
+            double area = Math.abs((anchorT - nextT) * (v[i] - anchorV) - (anchorT - t[i]) * (nextV - anchorV));
+            if (area > bestArea) {
+                bestArea = area;
+                best = i;
+            }
+        }
+        add(t[best], v[best]);
+        anchorT = t[best];
+        anchorV = v[best];
+    }
+
+    private static double average(double[] a, int n) {
+        double sum = 0.0;
+        for (int i = 0; i < n; i++) {
+            sum += a[i];
+        }
+        return sum / n;
+    }
+
+    private void add(double time, double value) {
+        if (size == x.length) {
+            int capacity = size * 2;
+            x = Arrays.copyOf(x, capacity);
+            if (y != null) {
+                y = Arrays.copyOf(y, capacity);
+            } else {
+                yFloat = Arrays.copyOf(yFloat, capacity);
+            }
+        }
+        if (y == null && (double) (float) value != value && !Double.isNaN(value)) {
+            y = new double[x.length];
+            for (int i = 0; i < size; i++) {
+                y[i] = yFloat[i];
+            }
+            yFloat = null;
+        }
+        if (size > 0 && time < x[size - 1]) {
+            monotonic = false;
+        }
+        x[size] = time;
+        if (y != null) {
+            y[size] = value;
+        } else {
+            yFloat[size] = (float) value;
+        }
+        size++;
+        if (!(time >= minX)) {
+            minX = time;
+        }
+        if (!(time <= maxX)) {
+            maxX = time;
+        }
+        if (!Double.isNaN(value)) {
+            if (!(value >= minY)) {
+                minY = value;
+            }
+            if (!(value <= maxY)) {
+                maxY = value;
+            }
+        }
     }
 }
@@ -0,0 +1,193 @@
+package me.drton.flightplot;
+
+import org.jfree.data.DomainInfo;
+import org.jfree.data.Range;
+import org.jfree.data.RangeInfo;
+import org.jfree.data.xy.AbstractXYDataset;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Chart dataset backed by {@link Series}. Chart shows decimated views of the series for the visible range, views are
+ * created from the series pyramids when the visible range changes, so zoom and pan don't need to process the log
+ * again. Views include hidden areas of the range length on both sides to make panning smooth. Plot items other than
+ * series are shown as empty series to keep the legend and series indexes.
+ */
+public class SeriesDataset extends AbstractXYDataset implements DomainInfo, RangeInfo {
+    private final List<String> keys = new ArrayList<String>();
+    private final List<Series> seriesList = new ArrayList<Series>();
+    private final List<Series> views = new ArrayList<Series>();
+    private double xScale = 1.0;
+    private Range visibleRange = null;
+    private int pixels = 2000;
+
+    /**
+     * Set scale applied to the time of all points.
+     */
+    public void setXScale(double xScale) {
+        this.xScale = xScale;
+        updateViews();
+    }
+
+    public double getXScale() {
+        return xScale;
+    }
+
+    /**
+     * Set visible range of the chart.
+     *
+     * @param range visible range in scaled time or null to show all points
+     * @param pixels width of the visible range in pixels
+     */
+    public void setVisibleRange(Range range, int pixels) {
+        this.visibleRange = range;
+        this.pixels = pixels;
+        updateViews();
+    }
+
+    public void addSeries(String key, PlotItem item) {
+        keys.add(key);
+        Series series = item instanceof Series ? (Series) item : null;
+        seriesList.add(series);
+        views.add(createView(series));
+        fireDatasetChanged();
+    }
+
+    /**
+     * Replace series at the index keeping indexes of other series.
+     */
+    public void setSeries(int index, String key, PlotItem item) {
+        keys.set(index, key);
+        Series series = item instanceof Series ? (Series) item : null;
+        seriesList.set(index, series);
+        views.set(index, createView(series));
+        fireDatasetChanged();
+    }
+
+    public void removeAllSeries() {
+        keys.clear();
+        seriesList.clear();
+        views.clear();
+        fireDatasetChanged();
+    }
+
+    private void updateViews() {
+        for (int i = 0; i < seriesList.size(); i++) {
+            views.set(i, createView(seriesList.get(i)));
+        }
+        fireDatasetChanged();
+    }
+
+    private Series createView(Series series) {
+        if (series == null || series.size() == 0) {
+            return null;
+        }
+        double start;
+        double stop;
+        if (visibleRange != null) {
+            start = visibleRange.getLowerBound() / xScale;
+            stop = visibleRange.getUpperBound() / xScale;
+        } else {
+            start = series.getMinX();
+            stop = series.getMaxX();
+        }
+        double length = stop - start;
+        if (!(length > 0.0)) {
+            return series;
+        }
+        return series.getView(start - length, stop + length, pixels * 3);
+    }
+
+    @Override
+    public int getSeriesCount() {
+        return keys.size();
+    }
+
+    @Override
+    public Comparable getSeriesKey(int series) {
+        return keys.get(series);
+    }
+
+    @Override
+    public int getItemCount(int series) {
+        Series s = views.get(series);
+        return s == null ? 0 : s.size();
+    }
+
+    @Override
+    public Number getX(int series, int item) {
+        return getXValue(series, item);
+    }
+
+    @Override
+    public double getXValue(int series, int item) {
+        return views.get(series).getX(item) * xScale;
+    }
+
+    @Override
+    public Number getY(int series, int item) {
+        return getYValue(series, item);
+    }
+
+    @Override
+    public double getYValue(int series, int item) {
+        return views.get(series).getY(item);
+    }
+
+    @Override
+    public double getDomainLowerBound(boolean includeInterval) {
+        Range range = getDomainBounds(includeInterval);
+        return range == null ? Double.NaN : range.getLowerBound();
+    }
+
+    @Override
+    public double getDomainUpperBound(boolean includeInterval) {
+        Range range = getDomainBounds(includeInterval);
+        return range == null ? Double.NaN : range.getUpperBound();
+    }
+
+    /**
+     * @return time range of all points of the series, not only visible
+     */
+    @Override
+    public Range getDomainBounds(boolean includeInterval) {
+        double min = Double.NaN;
+        double max = Double.NaN;
+        for (Series s : seriesList) {
+            if (s != null && s.size() > 0) {
+                min = Double.isNaN(min) ? s.getMinX() : Math.min(min, s.getMinX());
+                max = Double.isNaN(max) ? s.getMaxX() : Math.max(max, s.getMaxX());
+            }
+        }
+        return Double.isNaN(min) ? null : new Range(min * xScale, max * xScale);
+    }
+
+    @Override
+    public double getRangeLowerBound(boolean includeInterval) {
+        Range range = getRangeBounds(includeInterval);
+        return range == null ? Double.NaN : range.getLowerBound();
+    }
+
+    @Override
+    public double getRangeUpperBound(boolean includeInterval) {
+        Range range = getRangeBounds(includeInterval);
+        return range == null ? Double.NaN : range.getUpperBound();
+    }
+
+    /**
+     * @return values range of the views
+     */
+    @Override
+    public Range getRangeBounds(boolean includeInterval) {
+        double min = Double.NaN;
+        double max = Double.NaN;
+        for (Series s : views) {
+            if (s != null && !Double.isNaN(s.getMinY())) {
+                min = Double.isNaN(min) ? s.getMinY() : Math.min(min, s.getMinY());
+                max = Double.isNaN(max) ? s.getMaxY() : Math.max(max, s.getMaxY());
+            }
+        }
+        return Double.isNaN(min) ? null : new Range(min, max);
+    }
+}
@@ -0,0 +1,228 @@
+package me.drton.flightplot;
+
+import me.drton.flightplot.engine.ParameterSweep;
+import me.drton.flightplot.engine.TrackingMetrics;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.KeyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.prefs.Preferences;
+
+/**
+ * Sweep of the simulator parameters: values of the parameters are entered as lists or ranges, results of all
+ * combinations are shown ranked by RMS of the tracking error, the best candidates are overlaid on the chart.
+ */
+public class SweepDialog extends JDialog {
+    private static final String DIALOG_SETTING = "SweepDialog";
+
+    private JPanel contentPane;
+    private JTable parametersTable;
+    private JTable resultsTable;
+    private JLabel statusLabel;
+    private JButton buttonRun;
+    private JButton buttonApply;
+    private JButton buttonClose;
+    private DefaultTableModel parametersTableModel;
+    private DefaultTableModel resultsTableModel;
+    private FlightPlot app;
+    private ProcessorPreset processorPreset = null;
+    private List<ParameterSweep.Result> results = Collections.emptyList();
+
+    public SweepDialog(FlightPlot app) {
+        this.app = app;
+        setContentPane(contentPane);
+        setModal(false);
+        getRootPane().setDefaultButton(buttonRun);
+
+        buttonRun.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                onRun();
+            }
+        });
+
+        buttonApply.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                onApply();
+            }
+        });
+
+        buttonClose.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                onClose();
+            }
+        });
+
+        // call onClose() when cross is clicked
+        setDefaultCloseOperation(DO_NOTHING_ON_CLOSE);
+        addWindowListener(new WindowAdapter() {
+            public void windowClosing(WindowEvent e) {
+                onClose();
+            }
+        });
+
+        // call onClose() on ESCAPE
+        contentPane.registerKeyboardAction(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                onClose();
+            }
+        }, KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), JComponent.WHEN_ANCESTOR_OF_FOCUSED_COMPONENT);
+        pack();
+    }
+
+    public void display(ProcessorPreset processorPreset) {
+        if (this.processorPreset != processorPreset) {
+            this.processorPreset = processorPreset;
+            parametersTableModel.setRowCount(0);
+            List<String> keys = new ArrayList<String>(processorPreset.getParameters().keySet());
+            Collections.sort(keys);
+            for (String key : keys) {
+                Object value = processorPreset.getParameters().get(key);
+                if (value instanceof Double) {
+                    parametersTableModel.addRow(new Object[]{key, value, ""});
+                }
+            }
+            setResults(Collections.<ParameterSweep.Result>emptyList(), null);
+        } else {
+            updateValues();
+        }
+        setTitle("Parameter Sweep: " + processorPreset.getTitle());
+        setVisible(true);
+    }
+
+    public ProcessorPreset getProcessorPreset() {
+        return processorPreset;
+    }
+
+    private void onRun() {
+        if (parametersTable.isEditing()) {
+            parametersTable.getCellEditor().stopCellEditing();
+        }
+        Map<String, List<Double>> values = new LinkedHashMap<String, List<Double>>();
+        try {
+            for (int row = 0; row < parametersTableModel.getRowCount(); row++) {
+                List<Double> list = ParameterSweep.parseValues(parametersTableModel.getValueAt(row, 2).toString());
+                if (!list.isEmpty()) {
+                    values.put(parametersTableModel.getValueAt(row, 0).toString(), list);
+                }
+            }
+            if (values.isEmpty()) {
+                throw new IllegalArgumentException("Values of parameters to sweep must be specified");
+            }
+            ParameterSweep sweep = new ParameterSweep(processorPreset, values);
+            setStatus(String.format("Simulating %d combinations...", sweep.getCandidatesCount()));
+            app.runSweep(sweep);
+        } catch (IllegalArgumentException e) {
+            setStatus("Error: " + e.getMessage());
+        }
+    }
+
+    private void onApply() {
+        int row = resultsTable.getSelectedRow();
+        if (row < 0) {
+            setStatus("Select result to apply");
+            return;
+        }
+        ParameterSweep.Result result = results.get(resultsTable.convertRowIndexToModel(row));
+        app.applySweepValues(processorPreset, result.getValues());
+        updateValues();
+    }
+
+    /**
+     * Show current values of the parameters.
+     */
+    private void updateValues() {
+        for (int i = 0; i < parametersTableModel.getRowCount(); i++) {
+            Object value = processorPreset.getParameters().get(parametersTableModel.getValueAt(i, 0).toString());
+            parametersTableModel.setValueAt(value, i, 1);
+        }
+    }
+
+    private void onClose() {
+        app.cancelSweep();
+        setVisible(false);
+    }
+
+    public void setStatus(String status) {
+        statusLabel.setText(status);
+    }
+
+    /**
+     * Show results ranked by RMS of the tracking error.
+     *
+     * @param parameters swept parameters
+     */
+    public void setResults(List<ParameterSweep.Result> results, List<String> parameters) {
+        this.results = results;
+        resultsTableModel = createResultsTableModel();
+        resultsTableModel.addColumn("#");
+        if (parameters != null) {
+            for (String parameter : parameters) {
+                resultsTableModel.addColumn(parameter);
+            }
+        }
+        resultsTableModel.addColumn("RMS");
+        resultsTableModel.addColumn("Overshoot, %");
+        resultsTableModel.addColumn("Settling, s");
+        for (int i = 0; i < results.size(); i++) {
+            ParameterSweep.Result result = results.get(i);
+            List<Object> row = new ArrayList<Object>();
+            row.add(i + 1);
+            row.addAll(result.getValues().values());
+            TrackingMetrics metrics = result.getMetrics();
+            row.add(metrics.getRMS());
+            row.add(metrics.getOvershoot() * 100.0);
+            row.add(metrics.getSettlingTime());
+            resultsTableModel.addRow(row.toArray());
+        }
+        resultsTable.setModel(resultsTableModel);
+        resultsTable.setAutoCreateRowSorter(true);
+    }
+
+    private static DefaultTableModel createResultsTableModel() {
+        return new DefaultTableModel() {
+            @Override
+            public boolean isCellEditable(int row, int col) {
+                return false;
+            }
+
+            @Override
+            public Class<?> getColumnClass(int col) {
+                // Sort numerically
+                return col == 0 ? Integer.class : Double.class;
+            }
+        };
+    }
+
+    public void savePreferences(Preferences preferences) {
+        PreferencesUtil.saveWindowPreferences(this, preferences.node(DIALOG_SETTING));
+    }
+
+    public void loadPreferences(Preferences preferences) {
+        PreferencesUtil.loadWindowPreferences(this, preferences.node(DIALOG_SETTING), -1, -1);
+    }
+
+    private void createUIComponents() {
+        parametersTableModel = new DefaultTableModel() {
+            @Override
+            public boolean isCellEditable(int row, int col) {
+                return col == 2;
+            }
+        };
+        parametersTableModel.addColumn("Parameter");
+        parametersTableModel.addColumn("Value");
+        parametersTableModel.addColumn("Sweep Values");
+        parametersTable = new JTable(parametersTableModel);
+        resultsTableModel = createResultsTableModel();
+        resultsTable = new JTable(resultsTableModel);
+        resultsTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+    }
+}
@@ -1,14 +0,0 @@
-package me.drton.flightplot;
-
-/**
- * Created by ton on 09.03.15.
- */
-public class XYPoint {
-    public final double x;
-    public final double y;
-
-    public XYPoint(double x, double y) {
-        this.x = x;
-        this.y = y;
-    }
-}
@@ -0,0 +1,247 @@
+package me.drton.flightplot.data;
+
+/**
+ * Aligns number fields of {@link LogData} from different topics to a common time grid. Each input has a cursor moving
+ * forward over the rows of its topic, so alignment to a non-decreasing grid is done in one pass over the columns with
+ * constant state per input. Inputs without values yet are NaN.
+ */
+public class Aligner {
+    public static enum Interpolation {
+        /**
+         * Last value not newer than the grid time (zero-order hold)
+         */
+        HOLD,
+        /**
+         * Linear interpolation between the values before and after the grid time
+         */
+        LINEAR,
+        /**
+         * Spherical linear interpolation of quaternion, applied to groups of four consecutive inputs (w, x, y, z)
+         */
+        SLERP;
+
+        /**
+         * @return interpolation by name, HOLD if the name is unknown
+         */
+        public static Interpolation parse(String name) {
+            for (Interpolation interpolation : values()) {
+                if (interpolation.name().equalsIgnoreCase(name.trim())) {
+                    return interpolation;
+                }
+            }
+            return HOLD;
+        }
+    }
+
+    private final Interpolation[] interpolations;
+    private final long tolerance;
+    private final Column[] columns;
+    private final long[][] timestamps;
+    private final int[] sizes;
+    // Cursor: rows before it are not newer than the last grid time
+    private final int[] cursors;
+    // Last row with value before the cursor or -1
+    private final int[] lastRows;
+    // First row with value at or after the cursor
+    private final int[] nextRows;
+
+    /**
+     * @param ids         IDs of the fields, fields with negative IDs are always NaN
+     * @param tolerance   max age of the held value or max interval between interpolated values in microseconds, the
+     *                    value is NaN if exceeded, 0 for no limit
+     */
+    public Aligner(LogData data, int[] ids, Interpolation[] interpolations, long tolerance) {
+        this.interpolations = interpolations;
+        this.tolerance = tolerance;
+        this.columns = new Column[ids.length];
+        this.timestamps = new long[ids.length][];
+        this.sizes = new int[ids.length];
+        this.cursors = new int[ids.length];
+        this.lastRows = new int[ids.length];
+        this.nextRows = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] >= 0) {
+                Topic topic = data.getTopics()[data.getFieldTopics()[ids[i]]];
+                columns[i] = data.getFieldColumns()[ids[i]];
+                timestamps[i] = topic.getTimestamps();
+                sizes[i] = topic.size();
+            }
+            lastRows[i] = -1;
+            nextRows[i] = -1;
+        }
+        for (int i = 0; i < ids.length; i++) {
+            if (interpolations[i] == Interpolation.SLERP) {
+                if (i + 4 > ids.length) {
+                    throw new IllegalArgumentException("SLERP requires four quaternion fields");
+                }
+                for (int j = i + 1; j < i + 4; j++) {
+                    if (interpolations[j] != Interpolation.SLERP || timestamps[j] != timestamps[i]) {
+                        throw new IllegalArgumentException("SLERP requires four quaternion fields of the same topic");
+                    }
+                }
+                i += 3;
+            }
+        }
+    }
+
+    public Aligner(LogData data, int[] ids, Interpolation interpolation, long tolerance) {
+        this(data, ids, fill(ids.length, interpolation), tolerance);
+    }
+
+    private static Interpolation[] fill(int n, Interpolation interpolation) {
+        Interpolation[] interpolations = new Interpolation[n];
+        for (int i = 0; i < n; i++) {
+            interpolations[i] = interpolation;
+        }
+        return interpolations;
+    }
+
+    /**
+     * Align inputs to the grid times from index from to index to (exclusive), value of input i at times[k] is
+     * written to out[i][k]. Grid times must be non-decreasing, also between calls.
+     *
+     * @return index of the first grid time when all inputs have values, or to if there is no such time
+     */
+    public int align(long[] times, int from, int to, double[][] out) {
+        int firstReady = to;
+        for (int k = from; k < to; k++) {
+            long t = times[k];
+            boolean ready = true;
+            for (int i = 0; i < columns.length; i++) {
+                if (columns[i] == null) {
+                    out[i][k] = Double.NaN;
+                    ready = false;
+                    continue;
+                }
+                advance(i, t);
+                if (lastRows[i] < 0) {
+                    out[i][k] = Double.NaN;
+                    ready = false;
+                    if (interpolations[i] == Interpolation.SLERP) {
+                        out[i + 1][k] = out[i + 2][k] = out[i + 3][k] = Double.NaN;
+                        i += 3;
+                    }
+                    continue;
+                }
+                switch (interpolations[i]) {
+                    case HOLD:
+                        out[i][k] = hold(i, t);
+                        break;
+                    case LINEAR:
+                        out[i][k] = linear(i, t);
+                        break;
+                    case SLERP:
+                        slerp(i, t, out, k);
+                        i += 3;
+                        break;
+                }
+            }
+            if (ready && firstReady == to) {
+                firstReady = k;
+            }
+        }
+        return firstReady;
+    }
+
+    private void advance(int i, long t) {
+        long[] ts = timestamps[i];
+        int row = cursors[i];
+        while (row < sizes[i] && ts[row] <= t) {
+            if (hasValue(i, row)) {
+                lastRows[i] = row;
+            }
+            row++;
+        }
+        cursors[i] = row;
+        if (nextRows[i] < row) {
+            int next = row;
+            while (next < sizes[i] && !hasValue(i, next)) {
+                next++;
+            }
+            nextRows[i] = next;
+        }
+    }
+
+    private boolean hasValue(int i, int row) {
+        Column column = columns[i];
+        return column.isPresent(row) && (column.isNumber() || column.getValue(row) instanceof Number);
+    }
+
+    private double hold(int i, long t) {
+        int row = lastRows[i];
+        if (tolerance > 0 && t - timestamps[i][row] > tolerance) {
+            return Double.NaN;
+        }
+        return columns[i].getDouble(row);
+    }
+
+    /**
+     * @return interpolation factor between the last and the next rows, 0 to hold the last value, NaN if the interval
+     * exceeds tolerance
+     */
+    private double factor(int i, long t) {
+        int row0 = lastRows[i];
+        int row1 = nextRows[i];
+        long t0 = timestamps[i][row0];
+        if (t == t0 || row1 >= sizes[i]) {
+            return tolerance > 0 && t - t0 > tolerance ? Double.NaN : 0.0;
+        }
+        long t1 = timestamps[i][row1];
+        if (tolerance > 0 && t1 - t0 > tolerance) {
+            return Double.NaN;
+        }
+        return (double) (t - t0) / (t1 - t0);
+    }
+
+    private double linear(int i, long t) {
+        double f = factor(i, t);
+        if (Double.isNaN(f)) {
+            return Double.NaN;
+        }
+        double v0 = columns[i].getDouble(lastRows[i]);
+        if (f == 0.0) {
+            return v0;
+        }
+        return v0 + (columns[i].getDouble(nextRows[i]) - v0) * f;
+    }
+
+    private void slerp(int i, long t, double[][] out, int k) {
+        double f = factor(i, t);
+        int row0 = lastRows[i];
+        int row1 = nextRows[i];
+        if (Double.isNaN(f) || f == 0.0) {
+            for (int j = 0; j < 4; j++) {
+                out[i + j][k] = Double.isNaN(f) ? Double.NaN : columns[i + j].getDouble(row0);
+            }
+            return;
+        }
+        double dot = 0.0;
+        for (int j = 0; j < 4; j++) {
+            dot += columns[i + j].getDouble(row0) * columns[i + j].getDouble(row1);
+        }
+        // Take the shortest path, q and -q are the same rotation
+        double sign = dot < 0.0 ? -1.0 : 1.0;
+        dot *= sign;
+        double w0;
+        double w1;
+        if (dot > 0.9995) {
+            w0 = 1.0 - f;
+            w1 = f;
+        } else {
+            double theta = Math.acos(dot);
+            double sinTheta = Math.sin(theta);
+            w0 = Math.sin((1.0 - f) * theta) / sinTheta;
+            w1 = Math.sin(f * theta) / sinTheta;
+        }
+        double norm = 0.0;
+        for (int j = 0; j < 4; j++) {
+            double q = w0 * columns[i + j].getDouble(row0) + w1 * sign * columns[i + j].getDouble(row1);
+            out[i + j][k] = q;
+            norm += q * q;
+        }
+        norm = Math.sqrt(norm);
+        for (int j = 0; j < 4; j++) {
+            out[i + j][k] /= norm;
+        }
+    }
+}
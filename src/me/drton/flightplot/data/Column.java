@@ -0,0 +1,150 @@
+package me.drton.flightplot.data;
+
+/**
+ * Values of one log field, stored in a primitive array of the type the reader decoded it as.
+ * Row numbers are shared with the timestamps of the owning {@link Topic}.
+ */
+public class Column {
+    public static enum Type {
+        DOUBLE,
+        FLOAT,
+        LONG,
+        INT,
+        SHORT,
+        BYTE,
+        CHAR,
+        BOOLEAN,
+        OBJECT,
+    }
+
+    private final String name;
+    private final Type type;
+    private final int size;
+    private final double[] doubles;
+    private final float[] floats;
+    private final long[] longs;
+    private final int[] ints;
+    private final Object[] objects;
+    private final long[] missing;
+
+    Column(String name, Type type, int size, double[] doubles, float[] floats, long[] longs, int[] ints,
+           Object[] objects, long[] missing) {
+        this.name = name;
+        this.type = type;
+        this.size = size;
+        this.doubles = doubles;
+        this.floats = floats;
+        this.longs = longs;
+        this.ints = ints;
+        this.objects = objects;
+        this.missing = missing;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    double[] getDoubles() {
+        return doubles;
+    }
+
+    float[] getFloats() {
+        return floats;
+    }
+
+    long[] getLongs() {
+        return longs;
+    }
+
+    int[] getInts() {
+        return ints;
+    }
+
+    Object[] getObjects() {
+        return objects;
+    }
+
+    long[] getMissing() {
+        return missing;
+    }
+
+    /**
+     * @return true if values of this column are passed to processors as {@link Number}
+     */
+    public boolean isNumber() {
+        return type != Type.CHAR && type != Type.BOOLEAN && type != Type.OBJECT;
+    }
+
+    public boolean isPresent(int row) {
+        if (row >= size) {
+            return false;
+        }
+        return missing == null || (row >> 6) >= missing.length || (missing[row >> 6] & (1L << row)) == 0;
+    }
+
+    public double getDouble(int row) {
+        switch (type) {
+            case DOUBLE:
+                return doubles[row];
+            case FLOAT:
+                return floats[row];
+            case LONG:
+                return longs[row];
+            case OBJECT:
+                Object v = objects[row];
+                return v instanceof Number ? ((Number) v).doubleValue() : Double.NaN;
+            default:
+                return ints[row];
+        }
+    }
+
+    public long getLong(int row) {
+        switch (type) {
+            case DOUBLE:
+                return (long) doubles[row];
+            case FLOAT:
+                return (long) floats[row];
+            case LONG:
+                return longs[row];
+            case OBJECT:
+                Object v = objects[row];
+                return v instanceof Number ? ((Number) v).longValue() : 0;
+            default:
+                return ints[row];
+        }
+    }
+
+    /**
+     * Get value boxed to the same class as returned by the log reader.
+     */
+    public Object getValue(int row) {
+        switch (type) {
+            case DOUBLE:
+                return doubles[row];
+            case FLOAT:
+                return floats[row];
+            case LONG:
+                return longs[row];
+            case INT:
+                return ints[row];
+            case SHORT:
+                return (short) ints[row];
+            case BYTE:
+                return (byte) ints[row];
+            case CHAR:
+                return (char) ints[row];
+            case BOOLEAN:
+                return ints[row] != 0;
+            default:
+                return objects[row];
+        }
+    }
+}
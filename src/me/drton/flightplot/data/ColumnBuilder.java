@@ -0,0 +1,191 @@
+package me.drton.flightplot.data;
+
+import java.util.Arrays;
+
+/**
+ * Growable storage for one column while the log is being decoded.
+ */
+class ColumnBuilder {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final String name;
+    private final TopicBuilder topic;
+    private final Column.Type type;
+    private int size = 0;
+    private double[] doubles;
+    private float[] floats;
+    private long[] longs;
+    private int[] ints;
+    private Object[] objects;
+    private long[] missing;
+
+    ColumnBuilder(String name, TopicBuilder topic, Object firstValue) {
+        this.name = name;
+        this.topic = topic;
+        this.type = typeOf(firstValue);
+        switch (type) {
+            case DOUBLE:
+                doubles = new double[INITIAL_CAPACITY];
+                break;
+            case FLOAT:
+                floats = new float[INITIAL_CAPACITY];
+                break;
+            case LONG:
+                longs = new long[INITIAL_CAPACITY];
+                break;
+            case OBJECT:
+                objects = new Object[INITIAL_CAPACITY];
+                break;
+            default:
+                ints = new int[INITIAL_CAPACITY];
+                break;
+        }
+    }
+
+    private static Column.Type typeOf(Object value) {
+        if (value instanceof Double) {
+            return Column.Type.DOUBLE;
+        } else if (value instanceof Float) {
+            return Column.Type.FLOAT;
+        } else if (value instanceof Long) {
+            return Column.Type.LONG;
+        } else if (value instanceof Integer) {
+            return Column.Type.INT;
+        } else if (value instanceof Short) {
+            return Column.Type.SHORT;
+        } else if (value instanceof Byte) {
+            return Column.Type.BYTE;
+        } else if (value instanceof Character) {
+            return Column.Type.CHAR;
+        } else if (value instanceof Boolean) {
+            return Column.Type.BOOLEAN;
+        } else {
+            return Column.Type.OBJECT;
+        }
+    }
+
+    String getName() {
+        return name;
+    }
+
+    TopicBuilder getTopic() {
+        return topic;
+    }
+
+    private void ensureCapacity(int capacity) {
+        int length = capacity();
+        if (capacity <= length) {
+            return;
+        }
+        int newLength = Math.max(capacity, length * 2);
+        switch (type) {
+            case DOUBLE:
+                doubles = Arrays.copyOf(doubles, newLength);
+                break;
+            case FLOAT:
+                floats = Arrays.copyOf(floats, newLength);
+                break;
+            case LONG:
+                longs = Arrays.copyOf(longs, newLength);
+                break;
+            case OBJECT:
+                objects = Arrays.copyOf(objects, newLength);
+                break;
+            default:
+                ints = Arrays.copyOf(ints, newLength);
+                break;
+        }
+    }
+
+    private int capacity() {
+        switch (type) {
+            case DOUBLE:
+                return doubles.length;
+            case FLOAT:
+                return floats.length;
+            case LONG:
+                return longs.length;
+            case OBJECT:
+                return objects.length;
+            default:
+                return ints.length;
+        }
+    }
+
+    private void setMissing(int row) {
+        int word = row >> 6;
+        if (missing == null) {
+            missing = new long[Math.max(word + 1, 4)];
+        } else if (word >= missing.length) {
+            missing = Arrays.copyOf(missing, Math.max(word + 1, missing.length * 2));
+        }
+        missing[word] |= 1L << row;
+    }
+
+    private void clearMissing(int row) {
+        int word = row >> 6;
+        if (missing != null && word < missing.length) {
+            missing[word] &= ~(1L << row);
+        }
+    }
+
+    /**
+     * Pad column with missing values up to the given size.
+     */
+    void pad(int newSize) {
+        if (newSize <= size) {
+            return;
+        }
+        ensureCapacity(newSize);
+        for (int row = size; row < newSize; row++) {
+            setMissing(row);
+        }
+        size = newSize;
+    }
+
+    /**
+     * Set value in the given row, row must be the last or the next one.
+     */
+    void set(int row, Object value) {
+        pad(row);
+        ensureCapacity(row + 1);
+        boolean valid = true;
+        if (type == Column.Type.OBJECT) {
+            objects[row] = value;
+        } else if (value instanceof Number) {
+            Number n = (Number) value;
+            switch (type) {
+                case DOUBLE:
+                    doubles[row] = n.doubleValue();
+                    break;
+                case FLOAT:
+                    floats[row] = n.floatValue();
+                    break;
+                case LONG:
+                    longs[row] = n.longValue();
+                    break;
+                default:
+                    ints[row] = n.intValue();
+                    break;
+            }
+        } else if (value instanceof Boolean && type == Column.Type.BOOLEAN) {
+            ints[row] = (Boolean) value ? 1 : 0;
+        } else if (value instanceof Character && type == Column.Type.CHAR) {
+            ints[row] = (Character) value;
+        } else {
+            valid = false;
+        }
+        if (valid) {
+            clearMissing(row);
+        } else {
+            setMissing(row);
+        }
+        if (row >= size) {
+            size = row + 1;
+        }
+    }
+
+    Column build() {
+        return new Column(name, type, size, doubles, floats, longs, ints, objects, missing);
+    }
+}
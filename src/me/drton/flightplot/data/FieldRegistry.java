@@ -0,0 +1,11 @@
+package me.drton.flightplot.data;
+
+/**
+ * Resolves field names to dense integer IDs.
+ */
+public interface FieldRegistry {
+    /**
+     * @return field ID or -1 if the field is not present
+     */
+    int getFieldId(String field);
+}
@@ -0,0 +1,86 @@
+package me.drton.flightplot.data;
+
+/**
+ * Samples number fields of {@link LogData} on the grid of updates. Value of a field at an update is the last number
+ * value of the field present in this or one of the previous sampled updates, i.e. the value seen by a processor that
+ * keeps last values of the fields. Ranges of updates must be sampled in order.
+ */
+public class FieldSampler {
+    private final LogData data;
+    private final Column[] columns;
+    private final int[] topics;
+    private final double[] values;
+    private final boolean[] set;
+    private int unset;
+
+    /**
+     * @param ids IDs of the fields, fields with negative IDs never get values
+     */
+    public FieldSampler(LogData data, int[] ids) {
+        this.data = data;
+        this.columns = new Column[ids.length];
+        this.topics = new int[ids.length];
+        this.values = new double[ids.length];
+        this.set = new boolean[ids.length];
+        this.unset = ids.length;
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] >= 0) {
+                columns[i] = data.getFieldColumns()[ids[i]];
+                topics[i] = data.getFieldTopics()[ids[i]];
+            } else {
+                topics[i] = -1;
+            }
+        }
+    }
+
+    /**
+     * @return true if all fields got values
+     */
+    public boolean isReady() {
+        return unset == 0;
+    }
+
+    /**
+     * Sample updates from start to stop (exclusive), values at update u are written to out[field][u - start].
+     *
+     * @return number of first sampled updates before all fields got values, values of these updates are undefined
+     */
+    public int sample(int start, int stop, double[][] out) {
+        int[] updateEntries = data.getUpdateEntries();
+        int[] entryTopics = data.getEntryTopics();
+        int[] entryRows = data.getEntryRows();
+        int notReady = 0;
+        for (int u = start; u < stop; u++) {
+            for (int e = updateEntries[u]; e < updateEntries[u + 1]; e++) {
+                int topic = entryTopics[e];
+                int row = entryRows[e];
+                for (int i = 0; i < topics.length; i++) {
+                    if (topics[i] == topic && columns[i].isPresent(row)) {
+                        Column column = columns[i];
+                        if (column.isNumber()) {
+                            values[i] = column.getDouble(row);
+                        } else {
+                            Object v = column.getValue(row);
+                            if (!(v instanceof Number)) {
+                                continue;
+                            }
+                            values[i] = ((Number) v).doubleValue();
+                        }
+                        if (!set[i]) {
+                            set[i] = true;
+                            unset--;
+                        }
+                    }
+                }
+            }
+            if (unset > 0) {
+                notReady = u - start + 1;
+            } else {
+                for (int i = 0; i < values.length; i++) {
+                    out[i][u - start] = values[i];
+                }
+            }
+        }
+        return notReady;
+    }
+}
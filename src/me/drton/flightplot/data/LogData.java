@@ -0,0 +1,414 @@
+package me.drton.flightplot.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Log decoded into memory. Values are stored per topic in primitive columns, the original sequence of updates is
+ * kept as references to topic rows, so updates can be replayed in the same order as the log reader returned them.
+ */
+public class LogData implements FieldRegistry {
+    /**
+     * Number of updates in one block of the seek index
+     */
+    static final int SEEK_INDEX_BLOCK = 256;
+
+    private final String format;
+    private final String systemName;
+    private final long sizeUpdates;
+    private final Map<String, String> fields;
+    private final Map<String, Object> version;
+    private final Map<String, Object> parameters;
+    private final List<LogMessage> messages;
+    private final List<String> errors;
+    private final long startMicroseconds;
+    private final long sizeMicroseconds;
+    private final long utcTimeReferenceMicroseconds;
+    private final List<ParamUpdate> parameterUpdates;
+    private final Topic[] topics;
+    private final Map<String, Column> columns;
+    private final Map<String, Integer> fieldIds = new HashMap<String, Integer>();
+    private final Column[] fieldColumns;
+    private final int[] fieldTopics;
+    private final int updatesCount;
+    private final long[] updateTimes;
+    private final long[] seekIndex;
+    private final int[] updateEntries;
+    private final int[] entryTopics;
+    private final int[] entryRows;
+
+    LogData(String format, String systemName, long sizeUpdates, Map<String, String> fields,
+            Map<String, Object> version, Map<String, Object> parameters, List<LogMessage> messages, List<String> errors,
+            long startMicroseconds, long sizeMicroseconds, long utcTimeReferenceMicroseconds,
+            List<ParamUpdate> parameterUpdates, Topic[] topics, Map<String, Column> columns, List<String> fieldOrder,
+            int updatesCount, long[] updateTimes, long[] seekIndex, int[] updateEntries, int[] entryTopics,
+            int[] entryRows) {
+        this.format = format;
+        this.systemName = systemName;
+        this.sizeUpdates = sizeUpdates;
+        this.fields = fields;
+        this.version = version;
+        this.parameters = parameters;
+        this.messages = messages;
+        this.errors = errors;
+        this.startMicroseconds = startMicroseconds;
+        this.sizeMicroseconds = sizeMicroseconds;
+        this.utcTimeReferenceMicroseconds = utcTimeReferenceMicroseconds;
+        this.parameterUpdates = parameterUpdates;
+        this.topics = topics;
+        this.columns = columns;
+        this.updatesCount = updatesCount;
+        this.updateTimes = updateTimes;
+        this.seekIndex = seekIndex;
+        this.updateEntries = updateEntries;
+        this.entryTopics = entryTopics;
+        this.entryRows = entryRows;
+        Map<String, Integer> columnTopics = new HashMap<String, Integer>();
+        for (int i = 0; i < topics.length; i++) {
+            for (Column column : topics[i].getColumns()) {
+                columnTopics.put(column.getName(), i);
+            }
+        }
+        this.fieldColumns = new Column[fieldOrder.size()];
+        this.fieldTopics = new int[fieldColumns.length];
+        for (int id = 0; id < fieldColumns.length; id++) {
+            String field = fieldOrder.get(id);
+            fieldIds.put(field, id);
+            fieldColumns[id] = columns.get(field);
+            fieldTopics[id] = columnTopics.get(field);
+        }
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public String getSystemName() {
+        return systemName;
+    }
+
+    /**
+     * @return number of updates in the log as reported by the log reader
+     */
+    public long getSizeUpdates() {
+        return sizeUpdates;
+    }
+
+    public Map<String, String> getFields() {
+        return fields;
+    }
+
+    public Map<String, Object> getVersion() {
+        return version;
+    }
+
+    public Map<String, Object> getParameters() {
+        return parameters;
+    }
+
+    public List<LogMessage> getMessages() {
+        return messages;
+    }
+
+    /**
+     * @return messages of the errors occurred while decoding the log
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public long getStartMicroseconds() {
+        return startMicroseconds;
+    }
+
+    public long getSizeMicroseconds() {
+        return sizeMicroseconds;
+    }
+
+    public long getUTCTimeReferenceMicroseconds() {
+        return utcTimeReferenceMicroseconds;
+    }
+
+    /**
+     * @return parameter changes logged during the flight, empty if not supported by the log format
+     */
+    public List<ParamUpdate> getParameterUpdates() {
+        return parameterUpdates;
+    }
+
+    /**
+     * @return time of the last decoded update, may be less than the log end if the log is still being decoded
+     */
+    public long getLastUpdateTime() {
+        return updatesCount > 0 ? updateTimes[updatesCount - 1] : startMicroseconds;
+    }
+
+    public Topic[] getTopics() {
+        return topics;
+    }
+
+    /**
+     * @return column of the field or null if the field has no values
+     */
+    public Column getColumn(String field) {
+        return columns.get(field);
+    }
+
+    /**
+     * Field IDs are assigned in order of the first appearance of the fields in the updates, so a field keeps its ID in
+     * all snapshots of the same log decoded progressively.
+     */
+    @Override
+    public int getFieldId(String field) {
+        Integer id = fieldIds.get(field);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @return times of the values of the field, empty if the field is not present
+     */
+    public long[] getFieldTimes(int id) {
+        if (id < 0) {
+            return new long[0];
+        }
+        Column column = fieldColumns[id];
+        Topic topic = topics[fieldTopics[id]];
+        int count = 0;
+        for (int row = 0; row < topic.size(); row++) {
+            if (column.isPresent(row)) {
+                count++;
+            }
+        }
+        long[] times = new long[count];
+        count = 0;
+        for (int row = 0; row < topic.size(); row++) {
+            if (column.isPresent(row)) {
+                times[count++] = topic.getTimestamp(row);
+            }
+        }
+        return times;
+    }
+
+    /**
+     * @return names of the fields in order of their IDs
+     */
+    List<String> getFieldOrder() {
+        List<String> order = new ArrayList<String>(fieldColumns.length);
+        for (Column column : fieldColumns) {
+            order.add(column.getName());
+        }
+        return order;
+    }
+
+    Column[] getFieldColumns() {
+        return fieldColumns;
+    }
+
+    int[] getFieldTopics() {
+        return fieldTopics;
+    }
+
+    public int getUpdatesCount() {
+        return updatesCount;
+    }
+
+    public long getUpdateTime(int update) {
+        return updateTimes[update];
+    }
+
+    long[] getUpdateTimes() {
+        return updateTimes;
+    }
+
+    long[] getSeekIndex() {
+        return seekIndex;
+    }
+
+    int[] getUpdateEntries() {
+        return updateEntries;
+    }
+
+    int[] getEntryTopics() {
+        return entryTopics;
+    }
+
+    int[] getEntryRows() {
+        return entryRows;
+    }
+
+    /**
+     * Find first update with time not less than the given time.
+     * Seek index contains max update time up to the end of each block of updates, binary search in it gives the first
+     * block that may contain such update, then only this block is scanned if update times are monotonic.
+     *
+     * @return update index or updates count if there are no such updates
+     */
+    public int seek(long time) {
+        int blocks = updatesCount / SEEK_INDEX_BLOCK;
+        int lo = 0;
+        int hi = blocks;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (seekIndex[mid] < time) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        for (int i = lo * SEEK_INDEX_BLOCK; i < updatesCount; i++) {
+            if (updateTimes[i] >= time) {
+                return i;
+            }
+        }
+        return updatesCount;
+    }
+
+    /**
+     * Put all values of the update to the map, in the same way as {@link me.drton.jmavlib.log.LogReader} does.
+     *
+     * @return time of the update
+     */
+    public long readUpdate(int update, Map<String, Object> data) {
+        for (int e = updateEntries[update]; e < updateEntries[update + 1]; e++) {
+            int row = entryRows[e];
+            for (Column column : topics[entryTopics[e]].getColumns()) {
+                if (column.isPresent(row)) {
+                    data.put(column.getName(), column.getValue(row));
+                }
+            }
+        }
+        return updateTimes[update];
+    }
+
+    /**
+     * Put values of the projected fields of the update to the map, topics without projected fields are skipped.
+     *
+     * @return time of the update
+     */
+    public long readUpdate(int update, Map<String, Object> data, Projection projection) {
+        for (int e = updateEntries[update]; e < updateEntries[update + 1]; e++) {
+            Column[] projected = projection.topicColumns[entryTopics[e]];
+            if (projected != null) {
+                int row = entryRows[e];
+                for (Column column : projected) {
+                    if (column.isPresent(row)) {
+                        data.put(column.getName(), column.getValue(row));
+                    }
+                }
+            }
+        }
+        return updateTimes[update];
+    }
+
+    /**
+     * Create log data with additional fields, e.g. outputs of processors. Each field is put to its own topic. A value
+     * joins the first update with the same time that has no value of this field yet, otherwise a new update is
+     * inserted. Fields of this log keep their IDs.
+     *
+     * @param times  times of the values of each field in the log time base, in microseconds, non-decreasing
+     * @param values values of each field
+     */
+    public LogData withFields(String[] names, long[][] times, double[][] values) {
+        int derivedCount = 0;
+        Topic[] topicsNew = Arrays.copyOf(topics, topics.length + names.length);
+        Map<String, Column> columnsNew = new HashMap<String, Column>(columns);
+        Map<String, String> fieldsNew = new HashMap<String, String>(fields);
+        List<String> fieldOrderNew = getFieldOrder();
+        for (int i = 0; i < names.length; i++) {
+            Column column = new Column(names[i], Column.Type.DOUBLE, values[i].length, values[i], null, null, null,
+                    null, null);
+            topicsNew[topics.length + i] = new Topic(names[i], times[i].length, times[i], new Column[]{column});
+            columnsNew.put(names[i], column);
+            fieldsNew.put(names[i], "double");
+            fieldOrderNew.add(names[i]);
+            derivedCount += times[i].length;
+        }
+        int entriesCount = updateEntries[updatesCount];
+        long[] updateTimesNew = new long[updatesCount + derivedCount];
+        int[] updateEntriesNew = new int[updatesCount + derivedCount + 1];
+        int[] entryTopicsNew = new int[entriesCount + derivedCount];
+        int[] entryRowsNew = new int[entriesCount + derivedCount];
+        int[] cursors = new int[names.length];
+        int u = 0;
+        int uNew = 0;
+        int e = 0;
+        while (true) {
+            long time = Long.MAX_VALUE;
+            for (int i = 0; i < names.length; i++) {
+                if (cursors[i] < times[i].length) {
+                    time = Math.min(time, times[i][cursors[i]]);
+                }
+            }
+            boolean original = u < updatesCount && updateTimes[u] <= time;
+            if (!original && time == Long.MAX_VALUE) {
+                break;
+            }
+            updateEntriesNew[uNew] = e;
+            if (original) {
+                time = updateTimes[u];
+                for (int eOld = updateEntries[u]; eOld < updateEntries[u + 1]; eOld++) {
+                    entryTopicsNew[e] = entryTopics[eOld];
+                    entryRowsNew[e] = entryRows[eOld];
+                    e++;
+                }
+                u++;
+            }
+            for (int i = 0; i < names.length; i++) {
+                if (cursors[i] < times[i].length && times[i][cursors[i]] == time) {
+                    entryTopicsNew[e] = topics.length + i;
+                    entryRowsNew[e] = cursors[i]++;
+                    e++;
+                }
+            }
+            updateTimesNew[uNew++] = time;
+        }
+        updateEntriesNew[uNew] = e;
+        long[] seekIndexNew = new long[uNew / SEEK_INDEX_BLOCK + 1];
+        long maxTime = Long.MIN_VALUE;
+        for (int i = 0; i < uNew; i++) {
+            maxTime = Math.max(maxTime, updateTimesNew[i]);
+            if ((i + 1) % SEEK_INDEX_BLOCK == 0) {
+                seekIndexNew[i / SEEK_INDEX_BLOCK] = maxTime;
+            }
+        }
+        return new LogData(format, systemName, sizeUpdates, fieldsNew, version, parameters, messages, errors,
+                startMicroseconds, sizeMicroseconds, utcTimeReferenceMicroseconds, parameterUpdates, topicsNew,
+                columnsNew, fieldOrderNew, uNew, updateTimesNew, seekIndexNew, updateEntriesNew, entryTopicsNew, entryRowsNew);
+    }
+
+    /**
+     * Create projection on the given fields.
+     *
+     * @param fields set of field names or null to include all fields
+     */
+    public Projection project(Set<String> fields) {
+        Column[][] topicColumns = new Column[topics.length][];
+        for (int i = 0; i < topics.length; i++) {
+            List<Column> projected = new ArrayList<Column>();
+            for (Column column : topics[i].getColumns()) {
+                if (fields == null || fields.contains(column.getName())) {
+                    projected.add(column);
+                }
+            }
+            if (!projected.isEmpty()) {
+                topicColumns[i] = projected.toArray(new Column[projected.size()]);
+            }
+        }
+        return new Projection(topicColumns);
+    }
+
+    /**
+     * Subset of the log fields to read, columns are resolved once per topic.
+     */
+    public static class Projection {
+        private final Column[][] topicColumns;
+
+        private Projection(Column[][] topicColumns) {
+            this.topicColumns = topicColumns;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package me.drton.flightplot.data;
+
+import me.drton.jmavlib.log.FormatErrorException;
+import me.drton.jmavlib.log.LogReader;
+import me.drton.jmavlib.log.ulog.ULogReader;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads all updates from {@link LogReader} once and stores them in {@link LogData}.
+ */
+public class LogDataBuilder {
+    private final LogReader reader;
+    private final Map<String, TopicBuilder> topics = new HashMap<String, TopicBuilder>();
+    private final List<TopicBuilder> topicsList = new ArrayList<TopicBuilder>();
+    private final Map<String, ColumnBuilder> columns = new HashMap<String, ColumnBuilder>();
+    private final List<String> fieldOrder = new ArrayList<String>();
+    private final Map<String, Object> update = new HashMap<String, Object>();
+    private List<ParamUpdate> parameterUpdates = null;
+    private List<LogMessage> messages = new ArrayList<LogMessage>();
+    private int updatesCount = 0;
+    private long[] updateTimes = new long[1024];
+    private long[] seekIndex = new long[16];
+    private long maxUpdateTime = Long.MIN_VALUE;
+    private int[] updateEntries = new int[1025];
+    private int entriesCount = 0;
+    private int[] entryTopics = new int[1024];
+    private int[] entryRows = new int[1024];
+
+    public LogDataBuilder(LogReader reader) throws IOException, FormatErrorException {
+        this.reader = reader;
+        reader.seek(0);
+    }
+
+    /**
+     * Set messages logged by the system, they are not passed as updates by the log reader.
+     */
+    public void setMessages(List<LogMessage> messages) {
+        this.messages = messages;
+    }
+
+    /**
+     * Read all updates until end of the log.
+     */
+    public LogData readAll() throws IOException, FormatErrorException {
+        while (readUpdates(Integer.MAX_VALUE)) {
+        }
+        return build();
+    }
+
+    /**
+     * Read next updates from the log reader.
+     *
+     * @param maxUpdates max number of updates to read
+     * @return false if end of the log reached
+     */
+    public boolean readUpdates(int maxUpdates) throws IOException, FormatErrorException {
+        for (int i = 0; i < maxUpdates; i++) {
+            update.clear();
+            long t;
+            try {
+                t = reader.readUpdate(update);
+            } catch (EOFException e) {
+                return false;
+            }
+            addUpdate(t, update);
+        }
+        return true;
+    }
+
+    private static String getTopicName(String field) {
+        int i = field.indexOf('.');
+        return i < 0 ? field : field.substring(0, i);
+    }
+
+    private TopicBuilder getTopic(String name) {
+        TopicBuilder topic = topics.get(name);
+        if (topic == null) {
+            topic = new TopicBuilder(name, topicsList.size());
+            topics.put(name, topic);
+            topicsList.add(topic);
+        }
+        return topic;
+    }
+
+    private void addUpdate(long time, Map<String, Object> data) {
+        int u = updatesCount;
+        if (u == updateTimes.length) {
+            updateTimes = Arrays.copyOf(updateTimes, u * 2);
+            updateEntries = Arrays.copyOf(updateEntries, u * 2 + 1);
+        }
+        updateTimes[u] = time;
+        updateEntries[u] = entriesCount;
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            String field = entry.getKey();
+            ColumnBuilder column = columns.get(field);
+            if (column == null) {
+                column = getTopic(getTopicName(field)).addColumn(field, entry.getValue());
+                columns.put(field, column);
+                fieldOrder.add(field);
+            }
+            TopicBuilder topic = column.getTopic();
+            int row = topic.addRow(u, time);
+            if (row < 0) {
+                row = topic.getLastRow();
+            } else {
+                addEntry(topic.getIndex(), row);
+            }
+            column.set(row, entry.getValue());
+        }
+        updateEntries[u + 1] = entriesCount;
+        updatesCount = u + 1;
+        maxUpdateTime = Math.max(maxUpdateTime, time);
+        if (updatesCount % LogData.SEEK_INDEX_BLOCK == 0) {
+            int block = updatesCount / LogData.SEEK_INDEX_BLOCK - 1;
+            if (block == seekIndex.length) {
+                seekIndex = Arrays.copyOf(seekIndex, block * 2);
+            }
+            seekIndex[block] = maxUpdateTime;
+        }
+    }
+
+    private void addEntry(int topic, int row) {
+        if (entriesCount == entryTopics.length) {
+            entryTopics = Arrays.copyOf(entryTopics, entriesCount * 2);
+            entryRows = Arrays.copyOf(entryRows, entriesCount * 2);
+        }
+        entryTopics[entriesCount] = topic;
+        entryRows[entriesCount] = row;
+        entriesCount++;
+    }
+
+    /**
+     * Create {@link LogData} with all updates read so far.
+     */
+    public LogData build() {
+        if (parameterUpdates == null) {
+            parameterUpdates = new ArrayList<ParamUpdate>();
+            if (reader instanceof ULogReader) {
+                for (List<ULogReader.ParamUpdate> updList : ((ULogReader) reader).parameterUpdates.values()) {
+                    for (ULogReader.ParamUpdate upd : updList) {
+                        parameterUpdates.add(new ParamUpdate(upd.getName(), upd.getValue(), upd.getTimestamp()));
+                    }
+                }
+            }
+        }
+        Topic[] topicsArr = new Topic[topicsList.size()];
+        Map<String, Column> columnsMap = new HashMap<String, Column>();
+        for (int i = 0; i < topicsArr.length; i++) {
+            topicsArr[i] = topicsList.get(i).build();
+            for (Column column : topicsArr[i].getColumns()) {
+                columnsMap.put(column.getName(), column);
+            }
+        }
+        List<String> errors = new ArrayList<String>();
+        for (Exception e : reader.getErrors()) {
+            errors.add(e.getMessage());
+        }
+        return new LogData(reader.getFormat(), reader.getSystemName(), reader.getSizeUpdates(), reader.getFields(),
+                reader.getVersion(), reader.getParameters(), messages, errors, reader.getStartMicroseconds(),
+                reader.getSizeMicroseconds(), reader.getUTCTimeReferenceMicroseconds(), parameterUpdates, topicsArr,
+                columnsMap, fieldOrder, updatesCount, updateTimes, seekIndex, updateEntries, entryTopics, entryRows);
+    }
+}
@@ -0,0 +1,600 @@
+package me.drton.flightplot.data;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistent cache of decoded logs. Each log is stored in a binary file in the cache directory, the file is named by
+ * the hash of the log content and is valid only while size and modification time of the log are the same.
+ * Reopening a cached log doesn't depend on the log decoder. Cache files are memory-mapped on load only to read arrays in
+ * bulk, arrays are copied to the heap and the mapping is not kept, so loaded data takes the same memory as decoded.
+ * <p/>
+ * Total size of the cache files is limited, least recently used files are deleted after saving.
+ */
+public class LogDataCache {
+    private static final int MAGIC = 0x46504C44;
+    private static final int FORMAT_VERSION = 3;
+    private static final int HASH_BLOCK_SIZE = 1 << 20;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+    private static final String CACHE_FILE_EXTENSION = ".fplc";
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_DOUBLE = 1;
+    private static final byte TYPE_FLOAT = 2;
+    private static final byte TYPE_LONG = 3;
+    private static final byte TYPE_INT = 4;
+    private static final byte TYPE_SHORT = 5;
+    private static final byte TYPE_BYTE = 6;
+    private static final byte TYPE_CHAR = 7;
+    private static final byte TYPE_BOOLEAN = 8;
+    private static final byte TYPE_STRING = 9;
+    private static final byte TYPE_LIST = 10;
+    private static final byte TYPE_MAP = 11;
+
+    public static final long DEFAULT_MAX_SIZE = 2048L << 20;
+
+    private final File directory;
+    private volatile long maxSize = DEFAULT_MAX_SIZE;
+
+    public LogDataCache(File directory) {
+        this.directory = directory;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @param maxSize max total size of the cache files in bytes, applied on the next save
+     */
+    public void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public static File getDefaultDirectory() {
+        return new File(new File(System.getProperty("user.home"), ".flightplot"), "cache");
+    }
+
+    /**
+     * Load cached log data.
+     *
+     * @param logFile log file
+     * @param variant log reader options that affect decoded data
+     * @return cached log data or null if the log is not cached or the cache is outdated
+     */
+    public LogData load(File logFile, String variant) throws IOException {
+        byte[] hash = hash(logFile, variant);
+        File cacheFile = getCacheFile(hash);
+        if (!cacheFile.isFile()) {
+            return null;
+        }
+        RandomAccessFile file = new RandomAccessFile(cacheFile, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION ||
+                    buffer.getLong() != logFile.length() || buffer.getLong() != logFile.lastModified()) {
+                return null;
+            }
+            byte[] cachedHash = new byte[hash.length];
+            buffer.get(cachedHash);
+            if (!Arrays.equals(cachedHash, hash)) {
+                return null;
+            }
+            LogData data = readData(buffer);
+            // Modification time of the cache file is the time of last use
+            cacheFile.setLastModified(System.currentTimeMillis());
+            return data;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Cache file is truncated: " + cacheFile, e);
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Save decoded log data to the cache, replacing outdated cache of the same log if any.
+     *
+     * @param logFile log file
+     * @param variant log reader options that affect decoded data
+     * @param data    completely decoded log data
+     */
+    public void save(File logFile, String variant, LogData data) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't create cache directory: " + directory);
+        }
+        byte[] hash = hash(logFile, variant);
+        File cacheFile = getCacheFile(hash);
+        File tmpFile = File.createTempFile("log", ".tmp", directory);
+        boolean ok = false;
+        try {
+            FileOutputStream stream = new FileOutputStream(tmpFile);
+            try {
+                Writer writer = new Writer(stream.getChannel());
+                writer.putInt(MAGIC);
+                writer.putInt(FORMAT_VERSION);
+                writer.putLong(logFile.length());
+                writer.putLong(logFile.lastModified());
+                writer.putBytes(hash);
+                writeData(writer, data);
+                writer.flush();
+            } finally {
+                stream.close();
+            }
+            if (cacheFile.exists() && !cacheFile.delete()) {
+                throw new IOException("Can't replace cache file: " + cacheFile);
+            }
+            if (!tmpFile.renameTo(cacheFile)) {
+                throw new IOException("Can't rename cache file: " + tmpFile);
+            }
+            ok = true;
+        } finally {
+            if (!ok) {
+                tmpFile.delete();
+            }
+        }
+        deleteOldFiles(directory, CACHE_FILE_EXTENSION, maxSize);
+    }
+
+    /**
+     * Delete least recently modified files with the extension while their total size exceeds the max size, the most
+     * recent file is always kept.
+     */
+    public static void deleteOldFiles(File directory, String extension, long maxSize) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        List<File> cacheFiles = new ArrayList<File>();
+        final Map<File, Long> modified = new HashMap<File, Long>();
+        for (File file : files) {
+            if (file.isFile() && file.getName().endsWith(extension)) {
+                cacheFiles.add(file);
+                // File may be touched while sorting
+                modified.put(file, file.lastModified());
+            }
+        }
+        Collections.sort(cacheFiles, new Comparator<File>() {
+            @Override
+            public int compare(File o1, File o2) {
+                return modified.get(o2).compareTo(modified.get(o1));
+            }
+        });
+        long size = 0;
+        for (int i = 0; i < cacheFiles.size(); i++) {
+            File file = cacheFiles.get(i);
+            size += file.length();
+            if (i > 0 && size > maxSize && !file.delete()) {
+                System.err.println("Can't delete cache file: " + file);
+            }
+        }
+    }
+
+    private File getCacheFile(byte[] hash) {
+        return new File(directory, toHex(hash) + CACHE_FILE_EXTENSION);
+    }
+
+    /**
+     * @return hash of the log content as hex string, the same as used to name the cache file
+     */
+    public static String getHash(File logFile, String variant) throws IOException {
+        return toHex(hash(logFile, variant));
+    }
+
+    private static String toHex(byte[] hash) {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : hash) {
+            hex.append(String.format("%02x", b & 0xFF));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Hash of the log size, the reader options and the first and the last blocks of the log file.
+     */
+    private static byte[] hash(File logFile, String variant) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        RandomAccessFile file = new RandomAccessFile(logFile, "r");
+        try {
+            long size = file.length();
+            digest.update(ByteBuffer.allocate(8).putLong(0, size));
+            digest.update(variant.getBytes(UTF8));
+            byte[] block = new byte[(int) Math.min(size, HASH_BLOCK_SIZE)];
+            file.readFully(block);
+            digest.update(block);
+            if (size > HASH_BLOCK_SIZE) {
+                file.seek(size - block.length);
+                file.readFully(block);
+                digest.update(block);
+            }
+        } finally {
+            file.close();
+        }
+        return digest.digest();
+    }
+
+    private static void writeData(Writer writer, LogData data) throws IOException {
+        writer.putValue(data.getFormat());
+        writer.putValue(data.getSystemName());
+        writer.putLong(data.getSizeUpdates());
+        writer.putLong(data.getStartMicroseconds());
+        writer.putLong(data.getSizeMicroseconds());
+        writer.putLong(data.getUTCTimeReferenceMicroseconds());
+        writer.putValue(data.getFields());
+        writer.putValue(data.getVersion());
+        writer.putValue(data.getParameters());
+        writer.putInt(data.getMessages().size());
+        for (LogMessage message : data.getMessages()) {
+            writer.putValue(message.getTime());
+            writer.putValue(message.getLevel());
+            writer.putValue(message.getMessage());
+        }
+        writer.putValue(data.getErrors());
+        writer.putInt(data.getParameterUpdates().size());
+        for (ParamUpdate update : data.getParameterUpdates()) {
+            writer.putValue(update.getName());
+            writer.putValue(update.getValue());
+            writer.putLong(update.getTimestamp());
+        }
+        Topic[] topics = data.getTopics();
+        writer.putInt(topics.length);
+        for (Topic topic : topics) {
+            writer.putValue(topic.getName());
+            writer.putInt(topic.size());
+            writer.putLongs(topic.getTimestamps(), topic.size());
+            writer.putInt(topic.getColumns().length);
+            for (Column column : topic.getColumns()) {
+                writeColumn(writer, column);
+            }
+        }
+        writer.putValue(data.getFieldOrder());
+        int updatesCount = data.getUpdatesCount();
+        int[] updateEntries = data.getUpdateEntries();
+        int entriesCount = updateEntries[updatesCount];
+        writer.putInt(updatesCount);
+        writer.putLongs(data.getUpdateTimes(), updatesCount);
+        writer.putLongs(data.getSeekIndex(), updatesCount / LogData.SEEK_INDEX_BLOCK);
+        writer.putInts(updateEntries, updatesCount + 1);
+        writer.putInt(entriesCount);
+        writer.putInts(data.getEntryTopics(), entriesCount);
+        writer.putInts(data.getEntryRows(), entriesCount);
+    }
+
+    private static void writeColumn(Writer writer, Column column) throws IOException {
+        int size = column.size();
+        writer.putValue(column.getName());
+        writer.putInt(column.getType().ordinal());
+        writer.putInt(size);
+        switch (column.getType()) {
+            case DOUBLE:
+                writer.putDoubles(column.getDoubles(), size);
+                break;
+            case FLOAT:
+                writer.putFloats(column.getFloats(), size);
+                break;
+            case LONG:
+                writer.putLongs(column.getLongs(), size);
+                break;
+            case OBJECT:
+                Object[] objects = column.getObjects();
+                for (int i = 0; i < size; i++) {
+                    writer.putValue(objects[i]);
+                }
+                break;
+            default:
+                writer.putInts(column.getInts(), size);
+                break;
+        }
+        long[] missing = column.getMissing();
+        if (missing == null) {
+            writer.putInt(-1);
+        } else {
+            int words = Math.min(missing.length, (size + 63) >> 6);
+            writer.putInt(words);
+            writer.putLongs(missing, words);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static LogData readData(ByteBuffer buffer) throws IOException {
+        String format = (String) readValue(buffer);
+        String systemName = (String) readValue(buffer);
+        long sizeUpdates = buffer.getLong();
+        long startMicroseconds = buffer.getLong();
+        long sizeMicroseconds = buffer.getLong();
+        long utcTimeReferenceMicroseconds = buffer.getLong();
+        Map<String, String> fields = (Map<String, String>) readValue(buffer);
+        Map<String, Object> version = (Map<String, Object>) readValue(buffer);
+        Map<String, Object> parameters = (Map<String, Object>) readValue(buffer);
+        int messagesCount = buffer.getInt();
+        List<LogMessage> messages = new ArrayList<LogMessage>(messagesCount);
+        for (int i = 0; i < messagesCount; i++) {
+            messages.add(new LogMessage((String) readValue(buffer), (String) readValue(buffer),
+                    (String) readValue(buffer)));
+        }
+        List<String> errors = (List<String>) readValue(buffer);
+        int parameterUpdatesCount = buffer.getInt();
+        List<ParamUpdate> parameterUpdates = new ArrayList<ParamUpdate>(parameterUpdatesCount);
+        for (int i = 0; i < parameterUpdatesCount; i++) {
+            parameterUpdates.add(new ParamUpdate((String) readValue(buffer), readValue(buffer), buffer.getLong()));
+        }
+        Topic[] topics = new Topic[buffer.getInt()];
+        Map<String, Column> columns = new HashMap<String, Column>();
+        for (int i = 0; i < topics.length; i++) {
+            String name = (String) readValue(buffer);
+            int size = buffer.getInt();
+            long[] timestamps = getLongs(buffer, size);
+            Column[] topicColumns = new Column[buffer.getInt()];
+            for (int j = 0; j < topicColumns.length; j++) {
+                topicColumns[j] = readColumn(buffer);
+                columns.put(topicColumns[j].getName(), topicColumns[j]);
+            }
+            topics[i] = new Topic(name, size, timestamps, topicColumns);
+        }
+        List<String> fieldOrder = (List<String>) readValue(buffer);
+        int updatesCount = buffer.getInt();
+        long[] updateTimes = getLongs(buffer, updatesCount);
+        long[] seekIndex = getLongs(buffer, updatesCount / LogData.SEEK_INDEX_BLOCK);
+        int[] updateEntries = getInts(buffer, updatesCount + 1);
+        int entriesCount = buffer.getInt();
+        int[] entryTopics = getInts(buffer, entriesCount);
+        int[] entryRows = getInts(buffer, entriesCount);
+        return new LogData(format, systemName, sizeUpdates, fields, version, parameters, messages, errors,
+                startMicroseconds, sizeMicroseconds, utcTimeReferenceMicroseconds, parameterUpdates, topics, columns,
+                fieldOrder, updatesCount, updateTimes, seekIndex, updateEntries, entryTopics, entryRows);
+    }
+
+    private static Column readColumn(ByteBuffer buffer) throws IOException {
+        String name = (String) readValue(buffer);
+        Column.Type type = Column.Type.values()[buffer.getInt()];
+        int size = buffer.getInt();
+        double[] doubles = null;
+        float[] floats = null;
+        long[] longs = null;
+        int[] ints = null;
+        Object[] objects = null;
+        switch (type) {
+            case DOUBLE:
+                doubles = new double[size];
+                buffer.asDoubleBuffer().get(doubles);
+                buffer.position(buffer.position() + size * 8);
+                break;
+            case FLOAT:
+                floats = new float[size];
+                buffer.asFloatBuffer().get(floats);
+                buffer.position(buffer.position() + size * 4);
+                break;
+            case LONG:
+                longs = getLongs(buffer, size);
+                break;
+            case OBJECT:
+                objects = new Object[size];
+                for (int i = 0; i < size; i++) {
+                    objects[i] = readValue(buffer);
+                }
+                break;
+            default:
+                ints = getInts(buffer, size);
+                break;
+        }
+        int missingWords = buffer.getInt();
+        long[] missing = missingWords < 0 ? null : getLongs(buffer, missingWords);
+        return new Column(name, type, size, doubles, floats, longs, ints, objects, missing);
+    }
+
+    private static long[] getLongs(ByteBuffer buffer, int size) {
+        long[] values = new long[size];
+        buffer.asLongBuffer().get(values);
+        buffer.position(buffer.position() + size * 8);
+        return values;
+    }
+
+    private static int[] getInts(ByteBuffer buffer, int size) {
+        int[] values = new int[size];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + size * 4);
+        return values;
+    }
+
+    private static Object readValue(ByteBuffer buffer) throws IOException {
+        byte type = buffer.get();
+        switch (type) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_DOUBLE:
+                return buffer.getDouble();
+            case TYPE_FLOAT:
+                return buffer.getFloat();
+            case TYPE_LONG:
+                return buffer.getLong();
+            case TYPE_INT:
+                return buffer.getInt();
+            case TYPE_SHORT:
+                return buffer.getShort();
+            case TYPE_BYTE:
+                return buffer.get();
+            case TYPE_CHAR:
+                return buffer.getChar();
+            case TYPE_BOOLEAN:
+                return buffer.get() != 0;
+            case TYPE_STRING:
+                byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                return new String(bytes, UTF8);
+            case TYPE_LIST:
+                int listSize = buffer.getInt();
+                List<Object> list = new ArrayList<Object>(listSize);
+                for (int i = 0; i < listSize; i++) {
+                    list.add(readValue(buffer));
+                }
+                return list;
+            case TYPE_MAP:
+                int mapSize = buffer.getInt();
+                Map<Object, Object> map = new LinkedHashMap<Object, Object>();
+                for (int i = 0; i < mapSize; i++) {
+                    Object key = readValue(buffer);
+                    map.put(key, readValue(buffer));
+                }
+                return map;
+            default:
+                throw new IOException("Invalid value type in cache file: " + type);
+        }
+    }
+
+    /**
+     * Writes cache file via a byte buffer, arrays are written in bulk.
+     */
+    private static class Writer {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+
+        Writer(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private void ensure(int size) throws IOException {
+            if (buffer.remaining() < size) {
+                flush();
+            }
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+        }
+
+        void putBytes(byte[] bytes) throws IOException {
+            if (bytes.length > buffer.capacity()) {
+                flush();
+                ByteBuffer wrapped = ByteBuffer.wrap(bytes);
+                while (wrapped.hasRemaining()) {
+                    channel.write(wrapped);
+                }
+            } else {
+                ensure(bytes.length);
+                buffer.put(bytes);
+            }
+        }
+
+        void putLongs(long[] values, int size) throws IOException {
+            int i = 0;
+            while (i < size) {
+                ensure(8);
+                int n = Math.min(size - i, buffer.remaining() / 8);
+                buffer.asLongBuffer().put(values, i, n);
+                buffer.position(buffer.position() + n * 8);
+                i += n;
+            }
+        }
+
+        void putDoubles(double[] values, int size) throws IOException {
+            int i = 0;
+            while (i < size) {
+                ensure(8);
+                int n = Math.min(size - i, buffer.remaining() / 8);
+                buffer.asDoubleBuffer().put(values, i, n);
+                buffer.position(buffer.position() + n * 8);
+                i += n;
+            }
+        }
+
+        void putFloats(float[] values, int size) throws IOException {
+            int i = 0;
+            while (i < size) {
+                ensure(4);
+                int n = Math.min(size - i, buffer.remaining() / 4);
+                buffer.asFloatBuffer().put(values, i, n);
+                buffer.position(buffer.position() + n * 4);
+                i += n;
+            }
+        }
+
+        void putInts(int[] values, int size) throws IOException {
+            int i = 0;
+            while (i < size) {
+                ensure(4);
+                int n = Math.min(size - i, buffer.remaining() / 4);
+                buffer.asIntBuffer().put(values, i, n);
+                buffer.position(buffer.position() + n * 4);
+                i += n;
+            }
+        }
+
+        void putValue(Object value) throws IOException {
+            ensure(9);
+            if (value == null) {
+                buffer.put(TYPE_NULL);
+            } else if (value instanceof Double) {
+                buffer.put(TYPE_DOUBLE).putDouble((Double) value);
+            } else if (value instanceof Float) {
+                buffer.put(TYPE_FLOAT).putFloat((Float) value);
+            } else if (value instanceof Long) {
+                buffer.put(TYPE_LONG).putLong((Long) value);
+            } else if (value instanceof Integer) {
+                buffer.put(TYPE_INT).putInt((Integer) value);
+            } else if (value instanceof Short) {
+                buffer.put(TYPE_SHORT).putShort((Short) value);
+            } else if (value instanceof Byte) {
+                buffer.put(TYPE_BYTE).put((Byte) value);
+            } else if (value instanceof Character) {
+                buffer.put(TYPE_CHAR).putChar((Character) value);
+            } else if (value instanceof Boolean) {
+                buffer.put(TYPE_BOOLEAN).put((byte) ((Boolean) value ? 1 : 0));
+            } else if (value instanceof String) {
+                byte[] bytes = ((String) value).getBytes(UTF8);
+                buffer.put(TYPE_STRING).putInt(bytes.length);
+                putBytes(bytes);
+            } else if (value instanceof List) {
+                List<?> list = (List<?>) value;
+                buffer.put(TYPE_LIST).putInt(list.size());
+                for (Object item : list) {
+                    putValue(item);
+                }
+            } else if (value instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) value;
+                buffer.put(TYPE_MAP).putInt(map.size());
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    putValue(entry.getKey());
+                    putValue(entry.getValue());
+                }
+            } else {
+                throw new IOException("Value type not supported by cache: " + value.getClass().getName());
+            }
+        }
+    }
+}
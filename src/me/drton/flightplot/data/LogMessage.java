@@ -0,0 +1,31 @@
+package me.drton.flightplot.data;
+
+/**
+ * Text message logged by the system.
+ */
+public class LogMessage {
+    private final String time;
+    private final String level;
+    private final String message;
+
+    public LogMessage(String time, String level, String message) {
+        this.time = time;
+        this.level = level;
+        this.message = message;
+    }
+
+    /**
+     * @return time of the message formatted for display
+     */
+    public String getTime() {
+        return time;
+    }
+
+    public String getLevel() {
+        return level;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
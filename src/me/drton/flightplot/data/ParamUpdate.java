@@ -0,0 +1,28 @@
+package me.drton.flightplot.data;
+
+/**
+ * Parameter value change logged during the flight.
+ */
+public class ParamUpdate {
+    private final String name;
+    private final Object value;
+    private final long timestamp;
+
+    public ParamUpdate(String name, Object value, long timestamp) {
+        this.name = name;
+        this.value = value;
+        this.timestamp = timestamp;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
@@ -0,0 +1,38 @@
+package me.drton.flightplot.data;
+
+/**
+ * Decoded messages of one log topic: timestamps and a column per field, all sharing the same row numbers.
+ */
+public class Topic {
+    private final String name;
+    private final int size;
+    private final long[] timestamps;
+    private final Column[] columns;
+
+    Topic(String name, int size, long[] timestamps, Column[] columns) {
+        this.name = name;
+        this.size = size;
+        this.timestamps = timestamps;
+        this.columns = columns;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getTimestamp(int row) {
+        return timestamps[row];
+    }
+
+    long[] getTimestamps() {
+        return timestamps;
+    }
+
+    public Column[] getColumns() {
+        return columns;
+    }
+}
@@ -0,0 +1,67 @@
+package me.drton.flightplot.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Growable storage for one topic while the log is being decoded.
+ */
+class TopicBuilder {
+    private final String name;
+    private final int index;
+    private final List<ColumnBuilder> columns = new ArrayList<ColumnBuilder>();
+    private long[] timestamps = new long[64];
+    private int size = 0;
+    private int lastUpdate = -1;
+
+    TopicBuilder(String name, int index) {
+        this.name = name;
+        this.index = index;
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    int size() {
+        return size;
+    }
+
+    ColumnBuilder addColumn(String field, Object firstValue) {
+        ColumnBuilder column = new ColumnBuilder(field, this, firstValue);
+        columns.add(column);
+        return column;
+    }
+
+    /**
+     * Get row for the given update, a new row is added on the first call for each update.
+     *
+     * @return row index or -1 if the row already exists
+     */
+    int addRow(int update, long time) {
+        if (update == lastUpdate) {
+            return -1;
+        }
+        lastUpdate = update;
+        if (size == timestamps.length) {
+            timestamps = Arrays.copyOf(timestamps, size * 2);
+        }
+        timestamps[size++] = time;
+        return size - 1;
+    }
+
+    int getLastRow() {
+        return size - 1;
+    }
+
+    Topic build() {
+        Column[] cols = new Column[columns.size()];
+        for (int i = 0; i < cols.length; i++) {
+            ColumnBuilder column = columns.get(i);
+            column.pad(size);
+            cols[i] = column.build();
+        }
+        return new Topic(name, size, timestamps, cols);
+    }
+}
@@ -0,0 +1,116 @@
+package me.drton.flightplot.data;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reusable view of one update of {@link LogData}. Values are accessed by field ID directly from the columns, without
+ * boxing and without allocations per update. Map representation of the update is created on demand.
+ */
+public class UpdateView {
+    private final LogData data;
+    private final LogData.Projection projection;
+    private final Column[] fieldColumns;
+    private final int[] fieldTopics;
+    private final int[] topicUpdates;
+    private final int[] topicRows;
+    private final Map<String, Object> map = new HashMap<String, Object>();
+    private int update = -1;
+    private boolean mapValid = false;
+
+    /**
+     * @param projection fields included in the map representation of the update
+     */
+    public UpdateView(LogData data, LogData.Projection projection) {
+        this.data = data;
+        this.projection = projection;
+        this.fieldColumns = data.getFieldColumns();
+        this.fieldTopics = data.getFieldTopics();
+        this.topicUpdates = new int[data.getTopics().length];
+        this.topicRows = new int[topicUpdates.length];
+        Arrays.fill(topicUpdates, -1);
+    }
+
+    /**
+     * Move the view to the given update.
+     *
+     * @return time of the update
+     */
+    public long setUpdate(int update) {
+        this.update = update;
+        mapValid = false;
+        int[] updateEntries = data.getUpdateEntries();
+        int[] entryTopics = data.getEntryTopics();
+        int[] entryRows = data.getEntryRows();
+        for (int e = updateEntries[update]; e < updateEntries[update + 1]; e++) {
+            topicUpdates[entryTopics[e]] = update;
+            topicRows[entryTopics[e]] = entryRows[e];
+        }
+        return data.getUpdateTime(update);
+    }
+
+    /**
+     * @return true if the update contains value of the field
+     */
+    public boolean has(int id) {
+        if (id < 0) {
+            return false;
+        }
+        int topic = fieldTopics[id];
+        return topicUpdates[topic] == update && fieldColumns[id].isPresent(topicRows[topic]);
+    }
+
+    /**
+     * @return true if the update contains value of the field and the value is a number
+     */
+    public boolean hasNumber(int id) {
+        if (!has(id)) {
+            return false;
+        }
+        Column column = fieldColumns[id];
+        return column.isNumber() || column.getValue(topicRows[fieldTopics[id]]) instanceof Number;
+    }
+
+    /**
+     * @return value of the field or NaN if the update doesn't contain it
+     */
+    public double getDouble(int id) {
+        if (!has(id)) {
+            return Double.NaN;
+        }
+        return fieldColumns[id].getDouble(topicRows[fieldTopics[id]]);
+    }
+
+    /**
+     * @return value of the field or 0 if the update doesn't contain it
+     */
+    public long getLong(int id) {
+        if (!has(id)) {
+            return 0;
+        }
+        return fieldColumns[id].getLong(topicRows[fieldTopics[id]]);
+    }
+
+    /**
+     * @return boxed value of the field or null if the update doesn't contain it
+     */
+    public Object getValue(int id) {
+        if (!has(id)) {
+            return null;
+        }
+        return fieldColumns[id].getValue(topicRows[fieldTopics[id]]);
+    }
+
+    /**
+     * Get the update as map of projected fields. The map is reused, it's valid until the next update.
+     */
+    public Map<String, Object> asMap() {
+        if (!mapValid) {
+            map.clear();
+            data.readUpdate(update, map, projection);
+            mapValid = true;
+        }
+        return map;
+    }
+}
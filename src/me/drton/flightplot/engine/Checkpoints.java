@@ -0,0 +1,157 @@
+package me.drton.flightplot.engine;
+
+import me.drton.flightplot.MarkersList;
+import me.drton.flightplot.PlotItem;
+import me.drton.flightplot.Series;
+import me.drton.flightplot.processors.PlotProcessor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Snapshots of the processor state taken at regular intervals of updates during one pass over the log, see
+ * {@link PlotProcessor#createCheckpoint()}. Processing of any range of updates may be started from the nearest
+ * checkpoint with the same result as processing from the beginning of the log.
+ */
+public class Checkpoints {
+    /**
+     * Interval between checkpoints in updates, checkpoints are taken at the updates with index multiple of it
+     */
+    public static final int INTERVAL = 1 << 16;
+
+    private final List<Checkpoint> checkpoints;
+    private final int start;
+    private final PlotProcessor restored;
+    private List<PlotItem> seriesList = null;
+
+    private static class Checkpoint {
+        final int update;
+        final PlotProcessor state;
+        // Number of points in each series when the checkpoint is taken
+        final int[] sizes;
+
+        Checkpoint(int update, PlotProcessor state, int[] sizes) {
+            this.update = update;
+            this.state = state;
+            this.sizes = sizes;
+        }
+    }
+
+    public Checkpoints() {
+        this(new ArrayList<Checkpoint>(), 0, null);
+    }
+
+    private Checkpoints(List<Checkpoint> checkpoints, int start, PlotProcessor restored) {
+        this.checkpoints = checkpoints;
+        this.start = start;
+        this.restored = restored;
+    }
+
+    /**
+     * @return first update to process, 0 or the update of the checkpoint the processing is resumed from
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * @return processor restored from the checkpoint or null if processing is not resumed
+     */
+    public PlotProcessor getRestored() {
+        return restored;
+    }
+
+    /**
+     * Take checkpoint of the processor before processing the update.
+     */
+    public synchronized void add(int update, PlotProcessor processor) {
+        if (!checkpoints.isEmpty() && checkpoints.get(checkpoints.size() - 1).update >= update) {
+            return;
+        }
+        PlotProcessor state = processor.createCheckpoint();
+        if (state == null) {
+            return;
+        }
+        List<PlotItem> items = processor.getSeriesList();
+        int[] sizes = new int[items.size()];
+        for (int i = 0; i < sizes.length; i++) {
+            PlotItem item = items.get(i);
+            sizes[i] = item instanceof Series ? ((Series) item).size() : ((MarkersList) item).size();
+        }
+        checkpoints.add(new Checkpoint(update, state, sizes));
+    }
+
+    /**
+     * Set complete series of the processor after the pass, checkpoints may be restored after this.
+     */
+    public synchronized void setSeriesList(List<PlotItem> seriesList) {
+        this.seriesList = seriesList;
+    }
+
+    /**
+     * @return index of the last checkpoint not after the update or -1
+     */
+    private int find(int update) {
+        int idx = -1;
+        for (int i = 0; i < checkpoints.size() && checkpoints.get(i).update <= update; i++) {
+            idx = i;
+        }
+        return idx;
+    }
+
+    /**
+     * @return update of the last checkpoint not after the update or -1 if there is no such checkpoint
+     */
+    public synchronized int getCheckpointUpdate(int update) {
+        int idx = find(update);
+        return idx < 0 ? -1 : checkpoints.get(idx).update;
+    }
+
+    /**
+     * Restore the processor at the last checkpoint not after the update. Series of the restored processor contain the
+     * points added before the checkpoint.
+     *
+     * @param withPoints copy points added before the checkpoint to the restored processor
+     * @return restored processor or null if there is no checkpoint or the pass is not complete
+     */
+    public synchronized PlotProcessor restore(int update, boolean withPoints) {
+        int idx = find(update);
+        if (idx < 0 || seriesList == null) {
+            return null;
+        }
+        Checkpoint checkpoint = checkpoints.get(idx);
+        PlotProcessor processor = checkpoint.state.createCheckpoint();
+        if (withPoints) {
+            List<PlotItem> items = processor.getSeriesList();
+            for (int i = 0; i < items.size(); i++) {
+                PlotItem item = items.get(i);
+                if (item instanceof Series) {
+                    Series series = (Series) item;
+                    Series processed = (Series) seriesList.get(i);
+                    for (int j = 0; j < checkpoint.sizes[i]; j++) {
+                        series.addPoint(processed.getX(j), processed.getY(j));
+                    }
+                } else {
+                    ((MarkersList) item).addAll(((MarkersList) seriesList.get(i)).subList(0, checkpoint.sizes[i]));
+                }
+            }
+        }
+        return processor;
+    }
+
+    /**
+     * Resume processing from the last checkpoint not after the update, e.g. when more updates of the log are decoded.
+     * These checkpoints are not modified.
+     *
+     * @return checkpoints of the resumed pass with the restored processor or null if there is no checkpoint
+     */
+    public synchronized Checkpoints resume(int update) {
+        int idx = find(update);
+        PlotProcessor processor = restore(update, true);
+        if (processor == null) {
+            return null;
+        }
+        return new Checkpoints(new ArrayList<Checkpoint>(checkpoints.subList(0, idx + 1)),
+                checkpoints.get(idx).update, processor);
+    }
+}
@@ -0,0 +1,221 @@
+package me.drton.flightplot.engine;
+
+import me.drton.flightplot.PlotItem;
+import me.drton.flightplot.ProcessorPreset;
+import me.drton.flightplot.Series;
+import me.drton.flightplot.data.LogData;
+import me.drton.flightplot.processors.PlotProcessor;
+import me.drton.flightplot.processors.ProcessorsList;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sweep of processor parameters over a grid of values. All combinations are simulated over the same decoded log,
+ * candidates are processed in parallel in batches and scored by {@link TrackingMetrics} of the response series relative
+ * to the setpoint series, e.g. "Pos" and "Pos SP". Response series are kept only for the best candidates, so memory
+ * doesn't depend on the grid size.
+ */
+public class ParameterSweep {
+    public static final int MAX_CANDIDATES = 100000;
+    private static final String[][] TRACKING_SERIES = new String[][]{{"Pos SP", "Pos"}, {"Rate SP", "Rate"}};
+
+    private final ProcessorPreset preset;
+    private final Map<String, List<Double>> values;
+    private final int candidatesCount;
+
+    public static class Result {
+        private final Map<String, Double> values;
+        private final TrackingMetrics metrics;
+        private Series response;
+
+        private Result(Map<String, Double> values, TrackingMetrics metrics, Series response) {
+            this.values = values;
+            this.metrics = metrics;
+            this.response = response;
+        }
+
+        /**
+         * @return values of the swept parameters
+         */
+        public Map<String, Double> getValues() {
+            return values;
+        }
+
+        public TrackingMetrics getMetrics() {
+            return metrics;
+        }
+
+        /**
+         * @return response series of the candidate or null if only metrics are kept
+         */
+        public Series getResponse() {
+            return response;
+        }
+    }
+
+    /**
+     * @param values values of the swept parameters, other parameters are taken from the preset
+     * @throws IllegalArgumentException if there are no values or too many combinations
+     */
+    public ParameterSweep(ProcessorPreset preset, Map<String, List<Double>> values) {
+        this.preset = preset;
+        this.values = new LinkedHashMap<String, List<Double>>(values);
+        long count = 1;
+        for (Map.Entry<String, List<Double>> entry : values.entrySet()) {
+            if (entry.getValue().isEmpty()) {
+                throw new IllegalArgumentException("No values of parameter \"" + entry.getKey() + "\"");
+            }
+            count *= entry.getValue().size();
+            if (count > MAX_CANDIDATES) {
+                throw new IllegalArgumentException("Too many combinations, max " + MAX_CANDIDATES);
+            }
+        }
+        this.candidatesCount = (int) count;
+    }
+
+    /**
+     * Parse values of parameter: list separated by commas, e.g. "0.1, 0.2, 0.5", or range "start:stop:count" with
+     * evenly spaced values, e.g. "0.1:0.5:5".
+     *
+     * @throws NumberFormatException if the values can't be parsed
+     */
+    public static List<Double> parseValues(String s) {
+        List<Double> list = new ArrayList<Double>();
+        s = s.trim();
+        if (s.isEmpty()) {
+            return list;
+        }
+        if (s.contains(":")) {
+            String[] p = s.split(":");
+            if (p.length != 3) {
+                throw new NumberFormatException("Range must be \"start:stop:count\": " + s);
+            }
+            double start = Double.parseDouble(p[0].trim());
+            double stop = Double.parseDouble(p[1].trim());
+            int count = Integer.parseInt(p[2].trim());
+            if (count < 1) {
+                throw new NumberFormatException("Invalid count of values: " + s);
+            }
+            for (int i = 0; i < count; i++) {
+                list.add(count == 1 ? start : start + (stop - start) * i / (count - 1));
+            }
+        } else {
+            for (String v : s.split(",")) {
+                list.add(Double.parseDouble(v.trim()));
+            }
+        }
+        return list;
+    }
+
+    /**
+     * @return names of the swept parameters
+     */
+    public List<String> getParameters() {
+        return new ArrayList<String>(values.keySet());
+    }
+
+    public int getCandidatesCount() {
+        return candidatesCount;
+    }
+
+    /**
+     * @return values of the swept parameters of the candidate
+     */
+    public Map<String, Double> getCandidate(int idx) {
+        Map<String, Double> candidate = new LinkedHashMap<String, Double>();
+        for (Map.Entry<String, List<Double>> entry : values.entrySet()) {
+            List<Double> list = entry.getValue();
+            candidate.put(entry.getKey(), list.get(idx % list.size()));
+            idx /= list.size();
+        }
+        return candidate;
+    }
+
+    /**
+     * @return preset of the processor with parameters of the candidate
+     */
+    public ProcessorPreset getCandidatePreset(Map<String, Double> candidate) {
+        ProcessorPreset candidatePreset = preset.clone();
+        Map<String, Object> parameters = new HashMap<String, Object>(preset.getParameters());
+        parameters.putAll(candidate);
+        candidatePreset.setParameters(parameters);
+        return candidatePreset;
+    }
+
+    /**
+     * Simulate all candidates over the log.
+     *
+     * @param keepBest   number of the best candidates to keep response series of
+     * @param timeOffset offset added to update times, in microseconds
+     * @param job        job checked for cancellation, may be null
+     * @return results of all candidates sorted by RMS of the tracking error or null if cancelled
+     * @throws IllegalArgumentException if the processor has no setpoint and response series
+     */
+    public List<Result> run(LogData data, ProcessorsList processorsList, ProcessorsRunner runner, int keepBest,
+                            long timeOffset, ProcessingJob<?> job) throws Exception {
+        List<Result> results = new ArrayList<Result>();
+        Comparator<Result> byRMS = new Comparator<Result>() {
+            @Override
+            public int compare(Result o1, Result o2) {
+                return Double.compare(getScore(o1), getScore(o2));
+            }
+        };
+        // A few candidates per worker to keep workers busy while limiting memory used by series
+        int batchSize = runner.getThreads() * 2;
+        for (int start = 0; start < candidatesCount; start += batchSize) {
+            List<PlotProcessor> processors = new ArrayList<PlotProcessor>();
+            List<Map<String, Double>> candidates = new ArrayList<Map<String, Double>>();
+            for (int i = start; i < Math.min(start + batchSize, candidatesCount); i++) {
+                Map<String, Double> candidate = getCandidate(i);
+                candidates.add(candidate);
+                processors.add(processorsList.getProcessorInstance(getCandidatePreset(candidate), 0.0,
+                        data.getFields(), data));
+            }
+            if (!runner.run(data, processors, timeOffset, job)) {
+                return null;
+            }
+            for (int i = 0; i < processors.size(); i++) {
+                Series[] tracking = getTrackingSeries(processors.get(i).getSeriesList());
+                results.add(new Result(candidates.get(i), TrackingMetrics.calculate(tracking[0], tracking[1]),
+                        tracking[1]));
+            }
+            Collections.sort(results, byRMS);
+            for (int i = keepBest; i < results.size(); i++) {
+                results.get(i).response = null;
+            }
+        }
+        return results;
+    }
+
+    private static double getScore(Result result) {
+        double rms = result.metrics.getRMS();
+        return Double.isNaN(rms) ? Double.POSITIVE_INFINITY : rms;
+    }
+
+    /**
+     * @return setpoint and response series
+     * @throws IllegalArgumentException if the processor has no setpoint and response series
+     */
+    private static Series[] getTrackingSeries(List<PlotItem> seriesList) {
+        Map<String, Series> seriesByTitle = new HashMap<String, Series>();
+        for (PlotItem item : seriesList) {
+            if (item instanceof Series) {
+                seriesByTitle.put(item.getTitle(), (Series) item);
+            }
+        }
+        for (String[] pair : TRACKING_SERIES) {
+            Series setpoint = seriesByTitle.get(pair[0]);
+            Series response = seriesByTitle.get(pair[1]);
+            if (setpoint != null && response != null) {
+                return new Series[]{setpoint, response};
+            }
+        }
+        throw new IllegalArgumentException("Processor has no setpoint and response series");
+    }
+}
@@ -0,0 +1,72 @@
+package me.drton.flightplot.engine;
+
+import javax.swing.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs processing jobs in a background thread. Only the latest submitted job matters: jobs submitted while another
+ * one is queued replace it, running job is cancelled cooperatively, results of outdated jobs are never published.
+ */
+public class ProcessingEngine {
+    private final AtomicLong generation = new AtomicLong(0);
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "Processing");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    boolean isCurrent(long gen) {
+        return generation.get() == gen;
+    }
+
+    /**
+     * Submit new job, cancels all previously submitted jobs.
+     */
+    public <T> void submit(final ProcessingJob<T> job) {
+        job.attach(this, generation.incrementAndGet());
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (job.isCancelled()) {
+                    // Newer job already submitted
+                    return;
+                }
+                try {
+                    final T result = job.process();
+                    if (!job.isCancelled()) {
+                        SwingUtilities.invokeLater(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (!job.isCancelled()) {
+                                    job.publish(result);
+                                }
+                            }
+                        });
+                    }
+                } catch (final Exception e) {
+                    SwingUtilities.invokeLater(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (!job.isCancelled()) {
+                                job.failed(e);
+                            }
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    /**
+     * Cancel all submitted jobs.
+     */
+    public void cancel() {
+        generation.incrementAndGet();
+    }
+}
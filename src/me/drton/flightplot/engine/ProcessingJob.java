@@ -0,0 +1,42 @@
+package me.drton.flightplot.engine;
+
+/**
+ * Job executed by {@link ProcessingEngine}. {@link #process()} runs in the processing thread and should check
+ * {@link #isCancelled()} periodically, {@link #publish(Object)} and {@link #failed(Exception)} run in the event
+ * dispatch thread and are called only if no newer job was submitted.
+ */
+public abstract class ProcessingJob<T> {
+    private ProcessingEngine engine;
+    private long generation;
+
+    void attach(ProcessingEngine engine, long generation) {
+        this.engine = engine;
+        this.generation = generation;
+    }
+
+    /**
+     * @return true if newer job was submitted and results of this job will be discarded
+     */
+    public boolean isCancelled() {
+        return engine == null || !engine.isCurrent(generation);
+    }
+
+    /**
+     * Do the work in the processing thread.
+     *
+     * @return result or null if cancelled
+     */
+    protected abstract T process() throws Exception;
+
+    /**
+     * Show the result, called in the event dispatch thread.
+     */
+    protected abstract void publish(T result);
+
+    /**
+     * Report the error, called in the event dispatch thread.
+     */
+    protected void failed(Exception e) {
+        e.printStackTrace();
+    }
+}
@@ -0,0 +1,221 @@
+package me.drton.flightplot.engine;
+
+import me.drton.flightplot.PlotItem;
+import me.drton.flightplot.ProcessorPreset;
+import me.drton.flightplot.Series;
+import me.drton.flightplot.data.LogData;
+import me.drton.flightplot.processors.PlotProcessor;
+import me.drton.flightplot.processors.ProcessorsList;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Processors connected by their outputs: processor may use series of other processors as fields named by the full
+ * series title, e.g. "Title:Series". Processors are processed level by level in topological order, each processor
+ * once, outputs are passed to the next levels in memory as additional fields of the log.
+ */
+public class ProcessorsGraph {
+    private final LogData data;
+    private final List<ProcessorPreset> presets;
+    private final ProcessorsList processorsList;
+    private final Map<String, String> fieldsList;
+    private final PlotProcessor[] processors;
+    private final boolean[] processed;
+    private final Checkpoints[] checkpoints;
+    private final List<Set<Integer>> dependencies;
+    private final List<List<Integer>> levels;
+    private final List<List<Object>> keys = new ArrayList<List<Object>>();
+
+    /**
+     * Create processors and sort them by dependencies.
+     *
+     * @throws IllegalArgumentException if processors depend on each other cyclically
+     */
+    public ProcessorsGraph(LogData data, List<ProcessorPreset> presets, ProcessorsList processorsList)
+            throws InvocationTargetException, NoSuchMethodException, InstantiationException, IllegalAccessException {
+        this.data = data;
+        this.presets = presets;
+        this.processorsList = processorsList;
+        this.processors = new PlotProcessor[presets.size()];
+        this.processed = new boolean[presets.size()];
+        this.checkpoints = new Checkpoints[presets.size()];
+        List<String> titles = new ArrayList<String>();
+        List<Set<String>> outputs = new ArrayList<Set<String>>();
+        fieldsList = new HashMap<String, String>(data.getFields());
+        for (int i = 0; i < processors.length; i++) {
+            ProcessorPreset preset = presets.get(i);
+            // Keep all points, series are decimated for the displayed range when shown
+            processors[i] = processorsList.getProcessorInstance(preset, 0.0, data.getFields(), data);
+            titles.add(preset.getTitle());
+            outputs.add(ProcessorsList.getOutputs(preset.getTitle(), processors[i]));
+            for (String output : outputs.get(i)) {
+                if (!fieldsList.containsKey(output)) {
+                    fieldsList.put(output, "double");
+                }
+            }
+        }
+        if (fieldsList.size() > data.getFields().size()) {
+            // Outputs may be used as fields
+            for (int i = 0; i < processors.length; i++) {
+                processors[i] = processorsList.getProcessorInstance(presets.get(i), 0.0, fieldsList, data);
+            }
+        }
+        dependencies = ProcessorsList.getDependencies(outputs, Arrays.asList(processors));
+        levels = ProcessorsList.sortByDependencies(titles, dependencies);
+        for (int i = 0; i < processors.length; i++) {
+            keys.add(null);
+        }
+        for (List<Integer> level : levels) {
+            for (int i : level) {
+                List<Object> key = getProcessorKey(presets.get(i));
+                for (int dep : dependencies.get(i)) {
+                    key.add(keys.get(dep));
+                }
+                keys.set(i, key);
+            }
+        }
+    }
+
+    /**
+     * Key of processor results in cache, results are valid while processor type and parameters are the same.
+     * Parameters are sorted by name to make the key independent of the parameters order.
+     */
+    private static List<Object> getProcessorKey(ProcessorPreset processorPreset) {
+        return new ArrayList<Object>(Arrays.<Object>asList(processorPreset.getProcessorType(),
+                new TreeMap<String, Object>(processorPreset.getParameters())));
+    }
+
+    /**
+     * @return key of processor results, includes keys of all processors it depends on
+     */
+    public List<Object> getKey(int i) {
+        return keys.get(i);
+    }
+
+    public PlotProcessor[] getProcessors() {
+        return processors;
+    }
+
+    public boolean isProcessed(int i) {
+        return processed[i];
+    }
+
+    /**
+     * Use already processed series of the processor, e.g. from cache.
+     */
+    public void setProcessed(int i, List<PlotItem> seriesList) {
+        processors[i].setSeriesList(seriesList);
+        processed[i] = true;
+    }
+
+    public boolean hasDependencies(int i) {
+        return !dependencies.get(i).isEmpty();
+    }
+
+    /**
+     * Take checkpoints of the processor without dependencies during processing, processing is resumed from the
+     * restored processor if the checkpoints are resumed. Fields of the restored processor are resolved again, as fields
+     * first seen after the checkpoint had no IDs in the previously decoded part of the log.
+     */
+    public void setCheckpoints(int i, Checkpoints processorCheckpoints) {
+        if (hasDependencies(i)) {
+            throw new IllegalArgumentException("Checkpoints of processor with dependencies are not supported");
+        }
+        checkpoints[i] = processorCheckpoints;
+        if (processorCheckpoints.getRestored() != null) {
+            processors[i] = processorCheckpoints.getRestored();
+            processors[i].resolveFields(data);
+        }
+    }
+
+    /**
+     * @return number of processors to process
+     */
+    public int getProcessCount() {
+        int count = 0;
+        for (boolean p : processed) {
+            if (!p) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Process all not processed processors.
+     *
+     * @param timeOffset offset added to update times, in microseconds
+     * @param job        job checked for cancellation, may be null
+     * @return false if cancelled
+     */
+    public boolean process(ProcessorsRunner runner, long timeOffset, ProcessingJob<?> job) throws Exception {
+        for (List<Integer> level : levels) {
+            Set<Integer> inputs = new HashSet<Integer>();
+            for (int i : level) {
+                if (!processed[i]) {
+                    inputs.addAll(dependencies.get(i));
+                }
+            }
+            LogData levelData = inputs.isEmpty() ? data : withOutputs(inputs, timeOffset);
+            List<PlotProcessor> toProcess = new ArrayList<PlotProcessor>();
+            List<Checkpoints> toProcessCheckpoints = new ArrayList<Checkpoints>();
+            for (int i : level) {
+                if (!processed[i]) {
+                    if (!dependencies.get(i).isEmpty()) {
+                        // Resolve outputs of other processors as fields
+                        processors[i] = processorsList.getProcessorInstance(presets.get(i), 0.0, fieldsList,
+                                levelData);
+                    }
+                    toProcess.add(processors[i]);
+                    toProcessCheckpoints.add(checkpoints[i]);
+                }
+            }
+            if (!toProcess.isEmpty() && !runner.run(levelData, toProcess, toProcessCheckpoints, timeOffset, job)) {
+                return false;
+            }
+            for (int i : level) {
+                if (!processed[i] && checkpoints[i] != null) {
+                    checkpoints[i].setSeriesList(processors[i].getSeriesList());
+                }
+                processed[i] = true;
+            }
+        }
+        return true;
+    }
+
+    private LogData withOutputs(Set<Integer> inputs, long timeOffset) {
+        List<String> names = new ArrayList<String>();
+        List<Series> seriesList = new ArrayList<Series>();
+        for (int i : inputs) {
+            for (PlotItem item : processors[i].getSeriesList()) {
+                if (item instanceof Series) {
+                    String name = ((Series) item).getFullTitle(presets.get(i).getTitle());
+                    if (!data.getFields().containsKey(name) && !names.contains(name)) {
+                        names.add(name);
+                        seriesList.add((Series) item);
+                    }
+                }
+            }
+        }
+        long[][] times = new long[names.size()][];
+        double[][] values = new double[names.size()][];
+        for (int i = 0; i < times.length; i++) {
+            Series series = seriesList.get(i);
+            times[i] = new long[series.size()];
+            values[i] = new double[series.size()];
+            for (int j = 0; j < series.size(); j++) {
+                times[i][j] = Math.round(series.getX(j) * 1e6) - timeOffset;
+                values[i][j] = series.getY(j);
+            }
+        }
+        return data.withFields(names.toArray(new String[names.size()]), times, values);
+    }
+}
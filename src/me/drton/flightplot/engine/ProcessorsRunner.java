@@ -0,0 +1,195 @@
+package me.drton.flightplot.engine;
+
+import me.drton.flightplot.data.LogData;
+import me.drton.flightplot.data.UpdateView;
+import me.drton.flightplot.processors.PlotProcessor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs processors over decoded log on a pool of worker threads. Processors are independent, each one is run by a
+ * single worker that reads the shared immutable {@link LogData} through its own {@link UpdateView}, so every processor
+ * gets all updates in the log order. Batch capable processors process all updates at once. Updates range of stateless
+ * processors is split to time chunks processed in parallel by copies of the processor, results are concatenated.
+ * Processors with {@link Checkpoints} process updates one by one and may start from a checkpoint.
+ */
+public class ProcessorsRunner {
+    private static final int MIN_CHUNK_UPDATES = 65536;
+    private final ExecutorService executor;
+    private final int threads;
+
+    public ProcessorsRunner() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ProcessorsRunner(int threads) {
+        this.threads = threads;
+        executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private int count = 0;
+
+            @Override
+            public synchronized Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "Processor-" + (count++));
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Process all updates of the log and finish the processors, returns when all processors are done.
+     *
+     * @param timeOffset offset added to update times, in microseconds
+     * @param job        job checked for cancellation, may be null
+     * @return false if cancelled, processors results are incomplete in this case
+     */
+    public boolean run(LogData data, List<PlotProcessor> processors, long timeOffset, ProcessingJob<?> job)
+            throws Exception {
+        return run(data, processors, null, timeOffset, job);
+    }
+
+    /**
+     * Process all updates of the log taking checkpoints of the processors, see {@link Checkpoints}. Processors with
+     * checkpoints process updates one by one starting from {@link Checkpoints#getStart()}.
+     *
+     * @param checkpoints checkpoints for each processor, null for processors without checkpoints, or null
+     * @param timeOffset  offset added to update times, in microseconds
+     * @param job         job checked for cancellation, may be null
+     * @return false if cancelled, processors results are incomplete in this case
+     */
+    public boolean run(final LogData data, List<PlotProcessor> processors, List<Checkpoints> checkpoints,
+                       final long timeOffset, final ProcessingJob<?> job) throws Exception {
+        long timeStop = data.getStartMicroseconds() + data.getSizeMicroseconds();
+        int updatesCount = data.getUpdatesCount();
+        final int updateStart = data.seek(data.getStartMicroseconds());
+        int stop = updateStart;
+        while (stop < updatesCount && data.getUpdateTime(stop) <= timeStop) {
+            stop++;
+        }
+        final int updateStop = stop;
+        List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>();
+        List<PlotProcessor[]> chunked = new ArrayList<PlotProcessor[]>();
+        int chunks = Math.min(threads, (updateStop - updateStart) / MIN_CHUNK_UPDATES);
+        for (int i = 0; i < processors.size(); i++) {
+            PlotProcessor processor = processors.get(i);
+            Checkpoints processorCheckpoints = checkpoints == null ? null : checkpoints.get(i);
+            if (processorCheckpoints != null) {
+                tasks.add(createTask(processor, data, Math.max(updateStart, processorCheckpoints.getStart()),
+                        updateStop, timeOffset, job, processorCheckpoints));
+            } else if (processor.isStateless() && chunks > 1) {
+                PlotProcessor[] copies = new PlotProcessor[chunks];
+                copies[0] = processor;
+                for (int c = 0; c < chunks; c++) {
+                    if (c > 0) {
+                        copies[c] = processor.createCopy();
+                    }
+                    int from = updateStart + (int) ((long) (updateStop - updateStart) * c / chunks);
+                    int to = updateStart + (int) ((long) (updateStop - updateStart) * (c + 1) / chunks);
+                    tasks.add(createTask(copies[c], data, from, to, timeOffset, job, false, null));
+                }
+                chunked.add(copies);
+            } else {
+                tasks.add(createTask(processor, data, updateStart, updateStop, timeOffset, job, true, null));
+            }
+        }
+        boolean completed = true;
+        for (Future<Boolean> future : executor.invokeAll(tasks)) {
+            try {
+                completed &= future.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof Exception) {
+                    throw (Exception) cause;
+                }
+                throw e;
+            }
+        }
+        if (!completed) {
+            return false;
+        }
+        for (PlotProcessor[] copies : chunked) {
+            for (int c = 1; c < copies.length; c++) {
+                copies[0].append(copies[c]);
+            }
+            copies[0].finish();
+        }
+        return true;
+    }
+
+    /**
+     * Process updates in the time range by one processor in the calling thread and finish it, e.g. for quick preview
+     * of the processor in the visible range. Processor starts in the initial state at the start of the range.
+     *
+     * @param timeStart  start of the range in log time, in microseconds
+     * @param timeStop   end of the range in log time, in microseconds
+     * @param timeOffset offset added to update times, in microseconds
+     * @param job        job checked for cancellation, may be null
+     * @return false if cancelled
+     */
+    public static boolean runRange(LogData data, PlotProcessor processor, long timeStart, long timeStop,
+                                   long timeOffset, ProcessingJob<?> job) throws Exception {
+        int updatesCount = data.getUpdatesCount();
+        int updateStart = data.seek(timeStart);
+        int updateStop = updateStart;
+        while (updateStop < updatesCount && data.getUpdateTime(updateStop) <= timeStop) {
+            updateStop++;
+        }
+        return createTask(processor, data, updateStart, updateStop, timeOffset, job, true, null).call();
+    }
+
+    private static Callable<Boolean> createTask(PlotProcessor processor, LogData data, int updateStart, int updateStop,
+                                                long timeOffset, ProcessingJob<?> job, Checkpoints checkpoints) {
+        return createTask(processor, data, updateStart, updateStop, timeOffset, job, true, checkpoints);
+    }
+
+    /**
+     * @param complete    process batch if supported and finish the processor
+     * @param checkpoints checkpoints to take during processing, updates are processed one by one in this case
+     */
+    private static Callable<Boolean> createTask(final PlotProcessor processor, final LogData data, final int updateStart,
+                                                final int updateStop, final long timeOffset,
+                                                final ProcessingJob<?> job, final boolean complete,
+                                                final Checkpoints checkpoints) {
+        return new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                if (job != null && job.isCancelled()) {
+                    return false;
+                }
+                if (checkpoints != null || !complete ||
+                        !processor.processBatch(data, updateStart, updateStop, timeOffset)) {
+                    UpdateView update = new UpdateView(data, data.project(processor.getUsedFields()));
+                    for (int u = updateStart; u < updateStop; u++) {
+                        if ((u & 0x3FF) == 0 && job != null && job.isCancelled()) {
+                            return false;
+                        }
+                        if (checkpoints != null && u % Checkpoints.INTERVAL == 0) {
+                            checkpoints.add(u, processor);
+                        }
+                        long t = update.setUpdate(u);
+                        processor.process((t + timeOffset) * 1e-6, update);
+                    }
+                }
+                if (checkpoints != null) {
+                    // Processing may be continued from the last update when more updates are decoded
+                    checkpoints.add(updateStop, processor);
+                }
+                if (complete) {
+                    processor.finish();
+                }
+                return true;
+            }
+        };
+    }
+}
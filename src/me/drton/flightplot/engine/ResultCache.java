@@ -0,0 +1,329 @@
+package me.drton.flightplot.engine;
+
+import me.drton.flightplot.Marker;
+import me.drton.flightplot.MarkersList;
+import me.drton.flightplot.PlotItem;
+import me.drton.flightplot.Series;
+import me.drton.flightplot.data.LogDataCache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Two-tier cache of processor results. Memory tier keeps series of recently used keys while their total size fits in
+ * the memory budget, least recently used results are evicted first. Results of expensive processor types are also
+ * stored on disk, file is named by the hash of the key, so they survive restarts and eviction from memory. Total size
+ * of the files is limited, least recently used files are deleted on write.
+ * <p/>
+ * Key must identify the log content, the time range and the processor type and parameters, and its string
+ * representation must be the same in all sessions to use the disk tier.
+ */
+public class ResultCache {
+    private static final int MAGIC = 0x46504C52;
+    private static final int FORMAT_VERSION = 2;
+    private static final String CACHE_FILE_EXTENSION = ".fplr";
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final byte ITEM_SERIES = 0;
+    private static final byte ITEM_MARKERS = 1;
+
+    private long memoryBudget;
+    private final File directory;
+    private volatile long diskBudget;
+    private final Set<String> diskTypes;
+    private final LinkedHashMap<List<Object>, Entry> entries = new LinkedHashMap<List<Object>, Entry>(16, 0.75f, true);
+    private long memorySize = 0;
+    private int hits = 0;
+    private int diskHits = 0;
+    private int misses = 0;
+
+    private static class Entry {
+        final List<PlotItem> seriesList;
+        final long size;
+
+        Entry(List<PlotItem> seriesList, long size) {
+            this.seriesList = seriesList;
+            this.size = size;
+        }
+    }
+
+    /**
+     * @param memoryBudget max size of the results in memory in bytes
+     * @param directory    disk tier directory or null to keep results in memory only
+     * @param diskBudget   max size of the results on disk in bytes
+     * @param diskTypes    processor types which results are stored on disk
+     */
+    public ResultCache(long memoryBudget, File directory, long diskBudget, Set<String> diskTypes) {
+        this.memoryBudget = memoryBudget;
+        this.directory = directory;
+        this.diskBudget = diskBudget;
+        this.diskTypes = diskTypes;
+    }
+
+    /**
+     * @return results from memory or null if not found
+     */
+    public synchronized List<PlotItem> get(List<Object> key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        hits++;
+        return entry.seriesList;
+    }
+
+    /**
+     * Load results from disk to memory, call after {@link #get(List)} returned null.
+     *
+     * @param processorType type of the processor, only results of the disk types are stored on disk, null if results
+     *                      must not be stored on disk
+     * @return results or null if not found
+     */
+    public List<PlotItem> load(List<Object> key, String processorType) {
+        List<PlotItem> seriesList = null;
+        if (isOnDisk(processorType)) {
+            try {
+                File file = getCacheFile(key);
+                seriesList = readFile(file, key.toString());
+                if (seriesList != null) {
+                    // Modification time of the file is the time of last use
+                    file.setLastModified(System.currentTimeMillis());
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        synchronized (this) {
+            if (seriesList == null) {
+                misses++;
+            } else {
+                diskHits++;
+                putMemory(key, seriesList);
+            }
+        }
+        return seriesList;
+    }
+
+    /**
+     * Add complete results of the processor.
+     *
+     * @param processorType type of the processor, only results of the disk types are stored on disk, null if results
+     *                      must not be stored on disk, e.g. results of a partially decoded log
+     */
+    public void put(List<Object> key, String processorType, List<PlotItem> seriesList) {
+        synchronized (this) {
+            putMemory(key, seriesList);
+        }
+        if (isOnDisk(processorType)) {
+            try {
+                writeFile(getCacheFile(key), key.toString(), seriesList);
+                LogDataCache.deleteOldFiles(directory, CACHE_FILE_EXTENSION, diskBudget);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    public synchronized long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * @param memoryBudget max size of the results in memory in bytes, least recently used results are evicted
+     */
+    public synchronized void setMemoryBudget(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+        evict();
+    }
+
+    public long getDiskBudget() {
+        return diskBudget;
+    }
+
+    /**
+     * @param diskBudget max size of the results on disk in bytes, applied on the next write
+     */
+    public void setDiskBudget(long diskBudget) {
+        this.diskBudget = diskBudget;
+    }
+
+    /**
+     * Remove all results from memory, results on disk are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        memorySize = 0;
+    }
+
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    public synchronized int getDiskHits() {
+        return diskHits;
+    }
+
+    public synchronized int getMisses() {
+        return misses;
+    }
+
+    public synchronized long getMemorySize() {
+        return memorySize;
+    }
+
+    private boolean isOnDisk(String processorType) {
+        return directory != null && processorType != null && diskTypes.contains(processorType);
+    }
+
+    private void putMemory(List<Object> key, List<PlotItem> seriesList) {
+        Entry old = entries.remove(key);
+        if (old != null) {
+            memorySize -= old.size;
+        }
+        Entry entry = new Entry(seriesList, getSize(seriesList));
+        entries.put(key, entry);
+        memorySize += entry.size;
+        evict();
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<List<Object>, Entry>> iterator = entries.entrySet().iterator();
+        // Keep the last added results even if they don't fit in the budget
+        while (memorySize > memoryBudget && entries.size() > 1) {
+            memorySize -= iterator.next().getValue().size;
+            iterator.remove();
+        }
+    }
+
+    private static long getSize(List<PlotItem> seriesList) {
+        long size = 0;
+        for (PlotItem item : seriesList) {
+            if (item instanceof Series) {
+                size += ((Series) item).getMemorySize();
+            } else {
+                size += ((MarkersList) item).size() * 64L;
+            }
+        }
+        return size;
+    }
+
+    private File getCacheFile(List<Object> key) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        StringBuilder name = new StringBuilder();
+        for (byte b : digest.digest(key.toString().getBytes(UTF8))) {
+            name.append(String.format("%02x", b & 0xFF));
+        }
+        name.append(CACHE_FILE_EXTENSION);
+        return new File(directory, name.toString());
+    }
+
+    private static List<PlotItem> readFile(File file, String key) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            // Key is stored to check that the file is not for another key with the same hash
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !in.readUTF().equals(key)) {
+                return null;
+            }
+            int count = in.readInt();
+            List<PlotItem> seriesList = new ArrayList<PlotItem>(count);
+            for (int i = 0; i < count; i++) {
+                byte type = in.readByte();
+                String title = in.readUTF();
+                if (type == ITEM_SERIES) {
+                    Series series = new Series(title, 0.0, Series.Decimation.parse(in.readUTF()));
+                    int size = in.readInt();
+                    for (int j = 0; j < size; j++) {
+                        series.addPoint(in.readDouble(), in.readDouble());
+                    }
+                    series.flush();
+                    series.buildLevels();
+                    seriesList.add(series);
+                } else {
+                    MarkersList markers = new MarkersList(title);
+                    int size = in.readInt();
+                    for (int j = 0; j < size; j++) {
+                        markers.addMarker(in.readDouble(), in.readUTF());
+                    }
+                    seriesList.add(markers);
+                }
+            }
+            return seriesList;
+        } finally {
+            in.close();
+        }
+    }
+
+    private void writeFile(File file, String key, List<PlotItem> seriesList) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't create cache directory: " + directory);
+        }
+        File tmpFile = File.createTempFile("result", ".tmp", directory);
+        boolean ok = false;
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeUTF(key);
+                out.writeInt(seriesList.size());
+                for (PlotItem item : seriesList) {
+                    if (item instanceof Series) {
+                        Series series = (Series) item;
+                        out.writeByte(ITEM_SERIES);
+                        out.writeUTF(series.getTitle());
+                        out.writeUTF(series.getDecimation().name());
+                        out.writeInt(series.size());
+                        for (int j = 0; j < series.size(); j++) {
+                            out.writeDouble(series.getX(j));
+                            out.writeDouble(series.getY(j));
+                        }
+                    } else {
+                        MarkersList markers = (MarkersList) item;
+                        out.writeByte(ITEM_MARKERS);
+                        out.writeUTF(markers.getTitle());
+                        out.writeInt(markers.size());
+                        for (Marker marker : markers) {
+                            out.writeDouble(marker.x);
+                            out.writeUTF(marker.label);
+                        }
+                    }
+                }
+            } finally {
+                out.close();
+            }
+            if (file.exists() && !file.delete()) {
+                throw new IOException("Can't replace cache file: " + file);
+            }
+            if (!tmpFile.renameTo(file)) {
+                throw new IOException("Can't rename cache file: " + tmpFile);
+            }
+            ok = true;
+        } finally {
+            if (!ok) {
+                tmpFile.delete();
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package me.drton.flightplot.engine;
+
+import me.drton.flightplot.Series;
+
+/**
+ * Tracking error metrics of the response series relative to the setpoint series. Setpoint is sampled with hold at the
+ * response points. Step is a transition of the setpoint from one held value to another, overshoot and settling time are
+ * calculated for each step large enough relative to the setpoint range. Settling time is measured from the start of the
+ * transition until the error stays within the band.
+ */
+public class TrackingMetrics {
+    /**
+     * Setpoint is considered constant while it stays within this fraction of its range
+     */
+    private static final double STEP_TOLERANCE = 0.02;
+    /**
+     * Setpoint must be held for this time in seconds to complete the step, faster changes are parts of one transition,
+     * e.g. a ramp
+     */
+    private static final double MIN_HOLD_TIME = 0.5;
+    /**
+     * Min step amplitude as a fraction of the setpoint range
+     */
+    private static final double MIN_STEP = 0.1;
+    /**
+     * Response is settled when the error stays within this fraction of the step amplitude
+     */
+    private static final double SETTLING_BAND = 0.05;
+
+    private final double rms;
+    private final double overshoot;
+    private final double settlingTime;
+    private final int steps;
+
+    private TrackingMetrics(double rms, double overshoot, double settlingTime, int steps) {
+        this.rms = rms;
+        this.overshoot = overshoot;
+        this.settlingTime = settlingTime;
+        this.steps = steps;
+    }
+
+    public static TrackingMetrics calculate(Series setpoint, Series response) {
+        double spMin = Double.NaN;
+        double spMax = Double.NaN;
+        for (int i = 0; i < setpoint.size(); i++) {
+            double sp = setpoint.getY(i);
+            if (!(sp >= spMin)) {
+                spMin = sp;
+            }
+            if (!(sp <= spMax)) {
+                spMax = sp;
+            }
+        }
+        double range = spMax - spMin;
+        double errSum = 0.0;
+        int count = 0;
+        double overshootMax = 0.0;
+        double settlingSum = 0.0;
+        int steps = 0;
+        // Last held setpoint and start of the transition from it
+        double heldSP = Double.NaN;
+        double transitionStart = Double.NaN;
+        // Current segment of constant setpoint
+        double segmentSP = Double.NaN;
+        double segmentStart = 0.0;
+        double segmentEnd = 0.0;
+        double amplitude = 0.0;
+        double segmentOvershoot = 0.0;
+        double lastOutside = Double.NaN;
+        int spIdx = -1;
+        for (int i = 0; i <= response.size(); i++) {
+            boolean end = i == response.size();
+            double t = Double.NaN;
+            double sp = Double.NaN;
+            if (!end) {
+                t = response.getX(i);
+                while (spIdx + 1 < setpoint.size() && setpoint.getX(spIdx + 1) <= t) {
+                    spIdx++;
+                }
+                if (spIdx < 0) {
+                    continue;
+                }
+                sp = setpoint.getY(spIdx);
+            }
+            if (end || Double.isNaN(segmentSP) || Math.abs(sp - segmentSP) > STEP_TOLERANCE * range) {
+                if (!Double.isNaN(segmentSP) && (end || segmentEnd - segmentStart >= MIN_HOLD_TIME)) {
+                    // Setpoint is held, complete the transition
+                    if (!Double.isNaN(heldSP) && Math.abs(amplitude) >= MIN_STEP * range && range > 0.0) {
+                        overshootMax = Math.max(overshootMax, segmentOvershoot);
+                        settlingSum += (Double.isNaN(lastOutside) ? segmentStart : lastOutside) - transitionStart;
+                        steps++;
+                    }
+                    heldSP = segmentSP;
+                    transitionStart = Double.NaN;
+                }
+                if (end) {
+                    break;
+                }
+                segmentSP = sp;
+                segmentStart = t;
+                if (Double.isNaN(transitionStart)) {
+                    transitionStart = t;
+                }
+                amplitude = sp - heldSP;
+                segmentOvershoot = 0.0;
+                lastOutside = Double.NaN;
+            }
+            segmentEnd = t;
+            double y = response.getY(i);
+            if (Double.isNaN(y) || Double.isNaN(sp)) {
+                continue;
+            }
+            double err = sp - y;
+            errSum += err * err;
+            count++;
+            if (amplitude != 0.0 && !Double.isNaN(amplitude)) {
+                segmentOvershoot = Math.max(segmentOvershoot, -err / amplitude);
+                if (Math.abs(err) > SETTLING_BAND * Math.abs(amplitude)) {
+                    lastOutside = t;
+                }
+            }
+        }
+        return new TrackingMetrics(count > 0 ? Math.sqrt(errSum / count) : Double.NaN,
+                steps > 0 ? overshootMax : Double.NaN, steps > 0 ? settlingSum / steps : Double.NaN, steps);
+    }
+
+    /**
+     * @return RMS of the tracking error
+     */
+    public double getRMS() {
+        return rms;
+    }
+
+    /**
+     * @return max overshoot relative to the step amplitude, NaN if there are no steps
+     */
+    public double getOvershoot() {
+        return overshoot;
+    }
+
+    /**
+     * @return mean settling time of the steps in seconds, NaN if there are no steps
+     */
+    public double getSettlingTime() {
+        return settlingTime;
+    }
+
+    public int getSteps() {
+        return steps;
+    }
+}
@@ -1,6 +1,5 @@
 package me.drton.flightplot.export;
 
-import me.drton.jmavlib.log.px4.PX4LogReader;
 
 import javax.sound.midi.Track;
 import java.io.*;
@@ -91,7 +90,7 @@ public abstract class AbstractTrackExporter implements TrackExporter {
                 writeGroupStart("Alternate Position");
 
                 if (haveGps) {
-                    trackReader.getLogReader().seek(0);
+                    trackReader.seek(0);
 
                     flightMode = "GPS";
                     writeTrackPartStart("GPS");
@@ -119,7 +118,7 @@ public abstract class AbstractTrackExporter implements TrackExporter {
                 }
 
                 if (haveVision) {
-                    trackReader.getLogReader().seek(0);
+                    trackReader.seek(0);
 
                     flightMode = "vision";
                     writeTrackPartStart("Vision");
@@ -155,8 +154,8 @@ public abstract class AbstractTrackExporter implements TrackExporter {
                 writeGroupEnd();
             }
 
-            if (trackReader.getLogReader() instanceof PX4LogReader) {
-                Map<String, Object> parameters = ((PX4LogReader)trackReader.getLogReader()).getParameters();
+            if (trackReader instanceof PX4TrackReader) {
+                Map<String, Object> parameters = trackReader.getLogData().getParameters();
 
                 writeGroupStart("RTL Points");
 
@@ -1,7 +1,6 @@
 package me.drton.flightplot.export;
 
-import me.drton.jmavlib.log.FormatErrorException;
-import me.drton.jmavlib.log.LogReader;
+import me.drton.flightplot.data.LogData;
 
 import java.io.EOFException;
 import java.io.IOException;
@@ -11,20 +10,29 @@ import java.util.Map;
  * Created by ada on 23.12.13.
  */
 public abstract class AbstractTrackReader implements TrackReader {
-    public final LogReader reader;
+    public final LogData logData;
+    private int update;
     private long timeNext = 0;
     protected final TrackReaderConfiguration config;
 
-    public AbstractTrackReader(LogReader reader, TrackReaderConfiguration config) throws IOException, FormatErrorException {
-        this.reader = reader;
+    public AbstractTrackReader(LogData logData, TrackReaderConfiguration config) {
+        this.logData = logData;
         this.config = config;
-        this.reader.seek(this.config.getTimeStart());
+        seek(this.config.getTimeStart());
     }
 
-    protected long readUpdate(Map<String, Object> data) throws IOException, FormatErrorException {
+    @Override
+    public void seek(long time) {
+        update = logData.seek(time);
+    }
+
+    protected long readUpdate(Map<String, Object> data) throws IOException {
         long t;
         while (true) {
-            t = reader.readUpdate(data);
+            if (update >= logData.getUpdatesCount()) {
+                throw new EOFException("End of log reached.");
+            }
+            t = logData.readUpdate(update++, data);
             if (t > config.getTimeEnd()) {
                 throw new EOFException("Reached configured export limit.");
             }
@@ -39,7 +47,7 @@ public abstract class AbstractTrackReader implements TrackReader {
     }
 
     @Override
-    public LogReader getLogReader() {
-        return reader;
+    public LogData getLogData() {
+        return logData;
     }
 }
@@ -1,9 +1,8 @@
 package me.drton.flightplot.export;
 
 import me.drton.flightplot.PreferencesUtil;
+import me.drton.flightplot.data.LogData;
 import me.drton.jmavlib.conversion.RotationConversion;
-import me.drton.jmavlib.log.FormatErrorException;
-import me.drton.jmavlib.log.LogReader;
 import org.apache.commons.imaging.ImageReadException;
 import org.apache.commons.imaging.ImageWriteException;
 import org.apache.commons.imaging.Imaging;
@@ -63,7 +62,7 @@ public class CamExportDialog extends JDialog {
 
     private CamExporterConfiguration exporterConfiguration = new CamExporterConfiguration();
     private TrackReaderConfiguration readerConfiguration = new TrackReaderConfiguration();
-    private LogReader logReader;
+    private LogData logData;
     private Range chartRange;
     private boolean stopExport;
 
@@ -126,7 +125,7 @@ public class CamExportDialog extends JDialog {
             @Override
             public void mouseClicked(MouseEvent mouseEvent) {
                 if (!exportDataInChartCheckBox.isSelected()) {
-                    timeEndField.setText(stringFromMicroseconds(logReader.getSizeMicroseconds()));
+                    timeEndField.setText(stringFromMicroseconds(logData.getSizeMicroseconds()));
                 }
             }
         });
@@ -163,20 +162,20 @@ public class CamExportDialog extends JDialog {
                 (int) (s / 3600), s / 60 % 60, s % 60, ms);
     }
 
-    public void display(LogReader logReader, Range chartRange) {
-        if (logReader == null) {
+    public void display(LogData logData, Range chartRange) {
+        if (logData == null) {
             throw new RuntimeException("Log not opened");
         }
-        this.logReader = logReader;
+        this.logData = logData;
         this.chartRange = chartRange;
-        readerConfiguration.setTimeStart(logReader.getStartMicroseconds());
-        readerConfiguration.setTimeEnd(logReader.getStartMicroseconds() + logReader.getSizeMicroseconds());
+        readerConfiguration.setTimeStart(logData.getStartMicroseconds());
+        readerConfiguration.setTimeEnd(logData.getStartMicroseconds() + logData.getSizeMicroseconds());
         updateDialogFromConfiguration();
         setVisible(true);
     }
 
     private double getLogSizeInSeconds() {
-        return logReader.getSizeMicroseconds() / 1000000.0;
+        return logData.getSizeMicroseconds() / 1000000.0;
     }
 
     private File getDestinationFile(String extension, String description) {
@@ -248,16 +247,11 @@ public class CamExportDialog extends JDialog {
                         writer.write("imagename,latitude,longitude,altitude,pitch,roll,yaw");
                         writer.newLine();
 
-                        logReader.seek(readerConfiguration.getTimeStart());
+                        int update = logData.seek(readerConfiguration.getTimeStart());
                         Map<String, Object> data = new HashMap<String, Object>();
-                        while (true) {
+                        for (; update < logData.getUpdatesCount(); update++) {
                             data.clear();
-                            long t;
-                            try {
-                                t = logReader.readUpdate(data);
-                            } catch (EOFException e) {
-                                break;  // End of file
-                            }
+                            long t = logData.readUpdate(update, data);
 
                             if (t > readerConfiguration.getTimeEnd()) {
                                 break;
@@ -427,8 +421,6 @@ public class CamExportDialog extends JDialog {
                     }
                 } catch (IOException e) {
                     e.printStackTrace();
-                } catch (FormatErrorException e) {
-                    e.printStackTrace();
                 } catch (InterruptedException e) {
                     setStatus("Exported canceled", false);
                 }
@@ -512,8 +504,8 @@ public class CamExportDialog extends JDialog {
         if (exportDataInChartCheckBox.isSelected()) {
             timeStartField.setEnabled(false);
             timeEndField.setEnabled(false);
-            timeStartLabel.setText(formatTime((long) (chartRange.getLowerBound() * 1000000) - logReader.getStartMicroseconds()));
-            timeEndLabel.setText(formatTime((long) (chartRange.getUpperBound() * 1000000) - logReader.getStartMicroseconds()));
+            timeStartLabel.setText(formatTime((long) (chartRange.getLowerBound() * 1000000) - logData.getStartMicroseconds()));
+            timeEndLabel.setText(formatTime((long) (chartRange.getUpperBound() * 1000000) - logData.getStartMicroseconds()));
         } else {
             timeStartField.setEnabled(true);
             timeEndField.setEnabled(true);
@@ -527,8 +519,8 @@ public class CamExportDialog extends JDialog {
                 if (timeStart < 0 || timeEnd <= timeStart) {
                     errorMsg = "Invalid export time range";
                 } else if (configuration != null) {
-                    configuration.setTimeStart(timeStart + logReader.getStartMicroseconds());
-                    configuration.setTimeEnd(timeEnd + logReader.getStartMicroseconds());
+                    configuration.setTimeStart(timeStart + logData.getStartMicroseconds());
+                    configuration.setTimeEnd(timeEnd + logData.getStartMicroseconds());
                 }
             }
         }
@@ -570,9 +562,9 @@ public class CamExportDialog extends JDialog {
     }
 
     private void updateDialogFromConfiguration() {
-        timeStartField.setText(stringFromMicroseconds(readerConfiguration.getTimeStart() - logReader.getStartMicroseconds()));
-        timeEndField.setText(stringFromMicroseconds(readerConfiguration.getTimeEnd() - logReader.getStartMicroseconds()));
-        logEndTimeValue.setText(String.format(" (log end: %s)", stringFromMicroseconds(logReader.getSizeMicroseconds())));
+        timeStartField.setText(stringFromMicroseconds(readerConfiguration.getTimeStart() - logData.getStartMicroseconds()));
+        timeEndField.setText(stringFromMicroseconds(readerConfiguration.getTimeEnd() - logData.getStartMicroseconds()));
+        logEndTimeValue.setText(String.format(" (log end: %s)", stringFromMicroseconds(logData.getSizeMicroseconds())));
         validateTimeRange(null);
 
         imageStartNumber.setText(String.valueOf(exporterConfiguration.getStartingNumber()));
@@ -1,10 +1,9 @@
 package me.drton.flightplot.export;
 
+import me.drton.flightplot.data.LogData;
 import me.drton.jmavlib.conversion.RotationConversion;
 import me.drton.jmavlib.geo.GlobalPositionProjector;
 import me.drton.jmavlib.geo.LatLonAlt;
-import me.drton.jmavlib.log.FormatErrorException;
-import me.drton.jmavlib.log.px4.PX4LogReader;
 
 import javax.vecmath.Matrix3d;
 import java.io.EOFException;
@@ -47,12 +46,12 @@ public class PX4TrackReader extends AbstractTrackReader {
 
     public List<TrackPoint> camTriggers = new ArrayList<TrackPoint>();
 
-    public PX4TrackReader(PX4LogReader reader, TrackReaderConfiguration config) throws IOException, FormatErrorException {
-        super(reader, config);
+    public PX4TrackReader(LogData logData, TrackReaderConfiguration config) {
+        super(logData, config);
     }
 
     @Override
-    public TrackPoint readNextPoint() throws IOException, FormatErrorException {
+    public TrackPoint readNextPoint() throws IOException {
         Map<String, Object> data = new HashMap<String, Object>();
         while (true) {
             data.clear();
@@ -112,19 +111,19 @@ public class PX4TrackReader extends AbstractTrackReader {
                      * is slew-rates (FOH). Unfortunately we will miss the last setpoint of a mission.
                      */
                     TrackPoint point = new TrackPoint(prev_setpoint.lat, prev_setpoint.lon, spAlt.doubleValue(),
-                            t + reader.getUTCTimeReferenceMicroseconds());
+                            t + logData.getUTCTimeReferenceMicroseconds());
                     point.setpoint = true;
                     point.spType = spType.intValue();
 
                     prev_setpoint = new TrackPoint(spLat.doubleValue(), spLon.doubleValue(), spAlt.doubleValue(),
-                            t + reader.getUTCTimeReferenceMicroseconds());
+                            t + logData.getUTCTimeReferenceMicroseconds());
                     return point;
                 }
             }
 
             if (lat != null && lon != null && alt != null) {
                 TrackPoint point = new TrackPoint(lat.doubleValue(), lon.doubleValue(), alt.doubleValue() + config.getAltitudeOffset(),
-                        t + reader.getUTCTimeReferenceMicroseconds(), flightMode);
+                        t + logData.getUTCTimeReferenceMicroseconds(), flightMode);
 
                 if (pitch != null && roll != null && heading != null) {
                     point.radPitch = pitch.doubleValue();
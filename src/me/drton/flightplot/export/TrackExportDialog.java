@@ -1,8 +1,7 @@
 package me.drton.flightplot.export;
 
 import me.drton.flightplot.PreferencesUtil;
-import me.drton.jmavlib.log.FormatErrorException;
-import me.drton.jmavlib.log.LogReader;
+import me.drton.flightplot.data.LogData;
 import org.jfree.data.Range;
 
 import javax.swing.*;
@@ -47,7 +46,7 @@ public class TrackExportDialog extends JDialog {
 
     private TrackExporterConfiguration exporterConfiguration = new TrackExporterConfiguration();
     private TrackReaderConfiguration readerConfiguration = new TrackReaderConfiguration();
-    private LogReader logReader;
+    private LogData logData;
     private Range chartRange;
 
     private class ExportFormatItem {
@@ -112,7 +111,7 @@ public class TrackExportDialog extends JDialog {
             @Override
             public void mouseClicked(MouseEvent mouseEvent) {
                 if (!exportDataInChartCheckBox.isSelected()) {
-                    timeEndField.setText(stringFromMicroseconds(logReader.getSizeMicroseconds()));
+                    timeEndField.setText(stringFromMicroseconds(logData.getSizeMicroseconds()));
                 }
             }
         });
@@ -193,20 +192,20 @@ public class TrackExportDialog extends JDialog {
                 (int) (s / 3600), s / 60 % 60, s % 60, ms);
     }
 
-    public void display(LogReader logReader, Range chartRange) {
-        if (logReader == null) {
+    public void display(LogData logData, Range chartRange) {
+        if (logData == null) {
             throw new RuntimeException("Log not opened");
         }
-        this.logReader = logReader;
+        this.logData = logData;
         this.chartRange = chartRange;
-        readerConfiguration.setTimeStart(logReader.getStartMicroseconds());
-        readerConfiguration.setTimeEnd(logReader.getStartMicroseconds() + logReader.getSizeMicroseconds());
+        readerConfiguration.setTimeStart(logData.getStartMicroseconds());
+        readerConfiguration.setTimeEnd(logData.getStartMicroseconds() + logData.getSizeMicroseconds());
         updateDialogFromConfiguration();
         setVisible(true);
     }
 
     private double getLogSizeInSeconds() {
-        return logReader.getSizeMicroseconds() / 1000000.0;
+        return logData.getSizeMicroseconds() / 1000000.0;
     }
 
     private File getDestinationFile(String extension, String description) {
@@ -251,7 +250,7 @@ public class TrackExportDialog extends JDialog {
                     @Override
                     public void run() {
                         try {
-                            TrackReader trackReader = TrackReaderFactory.getTrackReader(logReader, readerConfiguration);
+                            TrackReader trackReader = TrackReaderFactory.getTrackReader(logData, readerConfiguration);
                             String trackTitle = "Track";
                             exporter.export(trackReader, exporterConfiguration, file, trackTitle);
                             setStatus(String.format("Exported to \"%s\"", file), false);
@@ -290,8 +289,8 @@ public class TrackExportDialog extends JDialog {
         if (exportDataInChartCheckBox.isSelected()) {
             timeStartField.setEnabled(false);
             timeEndField.setEnabled(false);
-            timeStartLabel.setText(formatTime((long) (chartRange.getLowerBound() * 1000000) - logReader.getStartMicroseconds()));
-            timeEndLabel.setText(formatTime((long) (chartRange.getUpperBound() * 1000000) - logReader.getStartMicroseconds()));
+            timeStartLabel.setText(formatTime((long) (chartRange.getLowerBound() * 1000000) - logData.getStartMicroseconds()));
+            timeEndLabel.setText(formatTime((long) (chartRange.getUpperBound() * 1000000) - logData.getStartMicroseconds()));
         } else {
             timeStartField.setEnabled(true);
             timeEndField.setEnabled(true);
@@ -305,8 +304,8 @@ public class TrackExportDialog extends JDialog {
                 if (timeStart < 0 || timeEnd <= timeStart) {
                     errorMsg = "Invalid export time range";
                 } else if (configuration != null) {
-                    configuration.setTimeStart(timeStart + logReader.getStartMicroseconds());
-                    configuration.setTimeEnd(timeEnd + logReader.getStartMicroseconds());
+                    configuration.setTimeStart(timeStart + logData.getStartMicroseconds());
+                    configuration.setTimeEnd(timeEnd + logData.getStartMicroseconds());
                 }
             }
         }
@@ -365,12 +364,12 @@ public class TrackExportDialog extends JDialog {
                 }
             }
         }
-        timeStartField.setText(stringFromMicroseconds(readerConfiguration.getTimeStart() - logReader.getStartMicroseconds()));
-        timeEndField.setText(stringFromMicroseconds(readerConfiguration.getTimeEnd() - logReader.getStartMicroseconds()));
+        timeStartField.setText(stringFromMicroseconds(readerConfiguration.getTimeStart() - logData.getStartMicroseconds()));
+        timeEndField.setText(stringFromMicroseconds(readerConfiguration.getTimeEnd() - logData.getStartMicroseconds()));
         altOffsetField.setText(String.valueOf(readerConfiguration.getAltitudeOffset()));
 
         setTimeInterval(readerConfiguration.getTimeInterval());
-        logEndTimeValue.setText(String.format(" (log end: %s)", stringFromMicroseconds(logReader.getSizeMicroseconds())));
+        logEndTimeValue.setText(String.format(" (log end: %s)", stringFromMicroseconds(logData.getSizeMicroseconds())));
         validateTimeRange(null);
     }
 
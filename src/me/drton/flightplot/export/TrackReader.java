@@ -1,7 +1,6 @@
 package me.drton.flightplot.export;
 
-import me.drton.jmavlib.log.FormatErrorException;
-import me.drton.jmavlib.log.LogReader;
+import me.drton.flightplot.data.LogData;
 
 import java.io.IOException;
 
@@ -10,13 +9,17 @@ import java.io.IOException;
  */
 public interface TrackReader {
     /**
-     * Reads next track point from LogReader.
+     * Reads next track point from LogData.
      *
      * @return returns TrackPoint or null if no more points can be read.
      * @throws IOException
-     * @throws FormatErrorException
      */
-    TrackPoint readNextPoint() throws IOException, FormatErrorException;
+    TrackPoint readNextPoint() throws IOException;
 
-    LogReader getLogReader();
+    /**
+     * Continue reading from the given time.
+     */
+    void seek(long time);
+
+    LogData getLogData();
 }
@@ -1,24 +1,19 @@
 package me.drton.flightplot.export;
 
-import me.drton.jmavlib.log.FormatErrorException;
-import me.drton.jmavlib.log.LogReader;
-import me.drton.jmavlib.log.px4.PX4LogReader;
-import me.drton.jmavlib.log.ulog.ULogReader;
-
-import java.io.IOException;
+import me.drton.flightplot.data.LogData;
 
 /**
  * Created by ada on 24.12.13.
  */
 public class TrackReaderFactory {
-    public static TrackReader getTrackReader(LogReader reader, TrackReaderConfiguration config) throws IOException, FormatErrorException {
-        if (reader instanceof PX4LogReader) {
-            return new PX4TrackReader((PX4LogReader) reader, config);
-        } else if (reader instanceof ULogReader) {
-            return new ULogTrackReader((ULogReader) reader, config);
+    public static TrackReader getTrackReader(LogData logData, TrackReaderConfiguration config) {
+        if ("PX4".equals(logData.getFormat())) {
+            return new PX4TrackReader(logData, config);
+        } else if ("ULog".equals(logData.getFormat())) {
+            return new ULogTrackReader(logData, config);
         } else {
             throw new UnsupportedOperationException(
-                    String.format("No track reader for \"%s\" format available.", reader.getFormat()));
+                    String.format("No track reader for \"%s\" format available.", logData.getFormat()));
         }
     }
 }
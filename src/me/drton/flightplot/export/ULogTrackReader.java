@@ -1,7 +1,6 @@
 package me.drton.flightplot.export;
 
-import me.drton.jmavlib.log.FormatErrorException;
-import me.drton.jmavlib.log.ulog.ULogReader;
+import me.drton.flightplot.data.LogData;
 
 import java.io.EOFException;
 import java.io.IOException;
@@ -20,12 +19,12 @@ public class ULogTrackReader extends AbstractTrackReader {
 
     private String flightMode = null;
 
-    public ULogTrackReader(ULogReader reader, TrackReaderConfiguration config) throws IOException, FormatErrorException {
-        super(reader, config);
+    public ULogTrackReader(LogData logData, TrackReaderConfiguration config) {
+        super(logData, config);
     }
 
     @Override
-    public TrackPoint readNextPoint() throws IOException, FormatErrorException {
+    public TrackPoint readNextPoint() throws IOException {
         Map<String, Object> data = new HashMap<String, Object>();
         while (true) {
             data.clear();
@@ -45,7 +44,7 @@ public class ULogTrackReader extends AbstractTrackReader {
             Number alt = (Number) data.get(POS_ALT);
             if (valid != null && lat != null && lon != null && alt != null && valid.intValue() != 0) {
                 return new TrackPoint(lat.doubleValue(), lon.doubleValue(), alt.doubleValue() + config.getAltitudeOffset(),
-                        t + reader.getUTCTimeReferenceMicroseconds(), flightMode);
+                        t + logData.getUTCTimeReferenceMicroseconds(), flightMode);
             }
         }
         return null;
@@ -0,0 +1,187 @@
+package me.drton.flightplot.fleet;
+
+import me.drton.flightplot.MarkersList;
+import me.drton.flightplot.PlotItem;
+import me.drton.flightplot.Series;
+import me.drton.flightplot.processors.PlotProcessor;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Fleet level statistics of processor outputs. Each log is reduced to summaries of its series and markers, summaries
+ * of all logs are merged into the report by the full series title. Logs may be reduced and merged concurrently in any
+ * order, memory used by the report doesn't grow with the number of logs.
+ */
+public class FleetReport {
+    private static final double[] QUANTILES = new double[]{0.01, 0.05, 0.5, 0.95, 0.99};
+    private static final double[] LOG_QUANTILES = new double[]{0.05, 0.5, 0.95};
+
+    private long logs = 0;
+    private final Map<String, SeriesSummary> series = new TreeMap<String, SeriesSummary>();
+    private final Map<String, MarkersSummary> markers = new TreeMap<String, MarkersSummary>();
+
+    /**
+     * Reduce outputs of the processors of one log.
+     *
+     * @param titles titles of the processors
+     */
+    public static FleetReport of(List<String> titles, PlotProcessor[] processors) {
+        FleetReport report = new FleetReport();
+        report.logs = 1;
+        for (int i = 0; i < processors.length; i++) {
+            for (PlotItem item : processors[i].getSeriesList()) {
+                if (item instanceof Series) {
+                    report.series.put(((Series) item).getFullTitle(titles.get(i)), SeriesSummary.of((Series) item));
+                } else {
+                    MarkersList markersList = (MarkersList) item;
+                    report.markers.put(markersList.getFullTitle(titles.get(i)), MarkersSummary.of(markersList));
+                }
+            }
+        }
+        return report;
+    }
+
+    /**
+     * Add report of other logs.
+     */
+    public synchronized void merge(FleetReport other) {
+        logs += other.logs;
+        for (Map.Entry<String, SeriesSummary> entry : other.series.entrySet()) {
+            SeriesSummary summary = series.get(entry.getKey());
+            if (summary == null) {
+                series.put(entry.getKey(), entry.getValue());
+            } else {
+                summary.merge(entry.getValue());
+            }
+        }
+        for (Map.Entry<String, MarkersSummary> entry : other.markers.entrySet()) {
+            MarkersSummary summary = markers.get(entry.getKey());
+            if (summary == null) {
+                markers.put(entry.getKey(), entry.getValue());
+            } else {
+                summary.merge(entry.getValue());
+            }
+        }
+    }
+
+    public synchronized long getLogs() {
+        return logs;
+    }
+
+    public synchronized Map<String, SeriesSummary> getSeries() {
+        return series;
+    }
+
+    public synchronized Map<String, MarkersSummary> getMarkers() {
+        return markers;
+    }
+
+    /**
+     * Write the report to the directory: "series.csv" with statistics of the series, "markers.csv" with counts of
+     * markers by label and "histograms.csv" with histograms of the series values.
+     */
+    public synchronized void write(File dir) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Can't create report directory: " + dir);
+        }
+        writeSeries(new File(dir, "series.csv"));
+        writeMarkers(new File(dir, "markers.csv"));
+        writeHistograms(new File(dir, "histograms.csv"));
+    }
+
+    private void writeSeries(File file) throws IOException {
+        Writer writer = new BufferedWriter(new FileWriter(file));
+        try {
+            writer.write("series,logs,points,nan,mean,std,min,max");
+            for (double q : QUANTILES) {
+                writer.write(",p" + percentile(q));
+            }
+            for (String prefix : new String[]{"last", "log_min", "log_max"}) {
+                for (double q : LOG_QUANTILES) {
+                    writer.write("," + prefix + "_p" + percentile(q));
+                }
+            }
+            writer.write('\n');
+            for (Map.Entry<String, SeriesSummary> entry : series.entrySet()) {
+                SeriesSummary s = entry.getValue();
+                writer.write(quote(entry.getKey()));
+                writer.write("," + s.getLogs() + "," + s.getCount() + "," + s.getNaNCount());
+                writeValues(writer, s.getMean(), s.getStd(), s.getMin(), s.getMax());
+                writeQuantiles(writer, s.getValues(), QUANTILES);
+                writeQuantiles(writer, s.getLogLast(), LOG_QUANTILES);
+                writeQuantiles(writer, s.getLogMin(), LOG_QUANTILES);
+                writeQuantiles(writer, s.getLogMax(), LOG_QUANTILES);
+                writer.write('\n');
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    private void writeMarkers(File file) throws IOException {
+        Writer writer = new BufferedWriter(new FileWriter(file));
+        try {
+            writer.write("markers,label,count,logs,logs_with_markers,per_log_p50,per_log_p95,per_log_max\n");
+            for (Map.Entry<String, MarkersSummary> entry : markers.entrySet()) {
+                MarkersSummary s = entry.getValue();
+                String prefix = quote(entry.getKey()) + ",";
+                long total = 0;
+                for (Map.Entry<String, Long> label : s.getLabelCounts().entrySet()) {
+                    writer.write(prefix + quote(label.getKey()) + "," + label.getValue() + ",,,,,\n");
+                    total += label.getValue();
+                }
+                // Totals of all labels
+                writer.write(prefix + "," + total + "," + s.getLogs() + "," + s.getLogsWithMarkers());
+                writeQuantiles(writer, s.getLogCount(), new double[]{0.5, 0.95, 1.0});
+                writer.write('\n');
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    private void writeHistograms(File file) throws IOException {
+        Writer writer = new BufferedWriter(new FileWriter(file));
+        try {
+            writer.write("series,lower,upper,count\n");
+            for (Map.Entry<String, SeriesSummary> entry : series.entrySet()) {
+                String prefix = quote(entry.getKey());
+                for (double[] bin : entry.getValue().getValues().getHistogram()) {
+                    writer.write(prefix + "," + bin[0] + "," + bin[1] + "," + (long) bin[2] + "\n");
+                }
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static void writeValues(Writer writer, double... values) throws IOException {
+        for (double v : values) {
+            writer.write(',');
+            if (!Double.isNaN(v)) {
+                writer.write(Double.toString(v));
+            }
+        }
+    }
+
+    private static void writeQuantiles(Writer writer, QuantileSketch sketch, double[] quantiles) throws IOException {
+        for (double q : quantiles) {
+            writeValues(writer, sketch.getQuantile(q));
+        }
+    }
+
+    private static String percentile(double q) {
+        return String.format("%02d", Math.round(q * 100));
+    }
+
+    private static String quote(String s) {
+        return "\"" + s.replace("\"", "\"\"") + "\"";
+    }
+}
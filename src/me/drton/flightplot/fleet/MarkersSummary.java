@@ -0,0 +1,112 @@
+package me.drton.flightplot.fleet;
+
+import me.drton.flightplot.Marker;
+import me.drton.flightplot.MarkersList;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Mergeable summary of one markers list over many logs: total count of markers by label, number of logs with markers
+ * and sketch of the number of markers per log, e.g. sensor failures. Labels may contain values, e.g. text messages, so
+ * only the {@link #MAX_LABELS} most frequent labels are kept, markers with other labels are counted as
+ * {@link #OTHER_LABEL}.
+ */
+public class MarkersSummary {
+    public static final int MAX_LABELS = 50;
+    public static final String OTHER_LABEL = "(other)";
+
+    private long logs = 0;
+    private long logsWithMarkers = 0;
+    private final Map<String, Long> labelCounts = new TreeMap<String, Long>();
+    private final QuantileSketch logCount = new QuantileSketch();
+
+    /**
+     * @return summary of the markers of one log
+     */
+    public static MarkersSummary of(MarkersList markers) {
+        MarkersSummary summary = new MarkersSummary();
+        summary.logs = 1;
+        summary.logsWithMarkers = markers.isEmpty() ? 0 : 1;
+        for (Marker marker : markers) {
+            summary.addLabel(marker.label, 1);
+        }
+        summary.reduceLabels();
+        summary.logCount.add(markers.size());
+        return summary;
+    }
+
+    private void addLabel(String label, long n) {
+        Long c = labelCounts.get(label);
+        labelCounts.put(label, c == null ? n : c + n);
+    }
+
+    /**
+     * Keep {@link #MAX_LABELS} most frequent labels, count the rest as {@link #OTHER_LABEL}.
+     */
+    private void reduceLabels() {
+        Long otherCount = labelCounts.remove(OTHER_LABEL);
+        if (labelCounts.size() > MAX_LABELS) {
+            // Copy entries, entries of TreeMap may change on removal
+            List<Map.Entry<String, Long>> entries = new ArrayList<Map.Entry<String, Long>>();
+            for (Map.Entry<String, Long> entry : labelCounts.entrySet()) {
+                entries.add(new AbstractMap.SimpleEntry<String, Long>(entry));
+            }
+            Collections.sort(entries, new Comparator<Map.Entry<String, Long>>() {
+                @Override
+                public int compare(Map.Entry<String, Long> o1, Map.Entry<String, Long> o2) {
+                    return o2.getValue().compareTo(o1.getValue());
+                }
+            });
+            long other = otherCount == null ? 0 : otherCount;
+            for (Map.Entry<String, Long> entry : entries.subList(MAX_LABELS, entries.size())) {
+                other += entry.getValue();
+                labelCounts.remove(entry.getKey());
+            }
+            otherCount = other;
+        }
+        if (otherCount != null) {
+            labelCounts.put(OTHER_LABEL, otherCount);
+        }
+    }
+
+    /**
+     * Add summary of other logs.
+     */
+    public void merge(MarkersSummary other) {
+        logs += other.logs;
+        logsWithMarkers += other.logsWithMarkers;
+        for (Map.Entry<String, Long> entry : other.labelCounts.entrySet()) {
+            addLabel(entry.getKey(), entry.getValue());
+        }
+        reduceLabels();
+        logCount.merge(other.logCount);
+    }
+
+    public long getLogs() {
+        return logs;
+    }
+
+    public long getLogsWithMarkers() {
+        return logsWithMarkers;
+    }
+
+    /**
+     * @return total number of markers by label, {@link #OTHER_LABEL} for markers with less frequent labels
+     */
+    public Map<String, Long> getLabelCounts() {
+        return labelCounts;
+    }
+
+    /**
+     * @return sketch of the number of markers in each log
+     */
+    public QuantileSketch getLogCount() {
+        return logCount;
+    }
+}
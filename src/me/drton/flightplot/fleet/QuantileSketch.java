@@ -0,0 +1,144 @@
+package me.drton.flightplot.fleet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Mergeable quantile sketch with relative accuracy. Values are counted in logarithmic buckets, bucket i of positive
+ * values covers (gamma^(i-1), gamma^i], negative values are counted in the same buckets by magnitude. Size of the
+ * sketch doesn't depend on the number of values: when the number of buckets exceeds the limit, buckets of the smallest
+ * magnitude are collapsed. Sketches with the same accuracy are merged by adding bucket counts.
+ */
+public class QuantileSketch {
+    public static final double DEFAULT_ACCURACY = 0.01;
+    public static final int DEFAULT_MAX_BUCKETS = 2048;
+    /**
+     * Values with smaller magnitude are counted as zero
+     */
+    private static final double MIN_MAGNITUDE = 1e-9;
+
+    private final double accuracy;
+    private final double gamma;
+    private final double logGamma;
+    private final int maxBuckets;
+    private final TreeMap<Integer, Long> positive = new TreeMap<Integer, Long>();
+    private final TreeMap<Integer, Long> negative = new TreeMap<Integer, Long>();
+    private long zeroCount = 0;
+    private long count = 0;
+
+    public QuantileSketch() {
+        this(DEFAULT_ACCURACY, DEFAULT_MAX_BUCKETS);
+    }
+
+    /**
+     * @param accuracy   relative accuracy of the quantiles
+     * @param maxBuckets max number of buckets for positive and for negative values
+     */
+    public QuantileSketch(double accuracy, int maxBuckets) {
+        this.accuracy = accuracy;
+        this.gamma = (1.0 + accuracy) / (1.0 - accuracy);
+        this.logGamma = Math.log(gamma);
+        this.maxBuckets = maxBuckets;
+    }
+
+    /**
+     * Add value, NaN and infinite values are ignored.
+     */
+    public void add(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return;
+        }
+        double magnitude = Math.abs(value);
+        if (magnitude < MIN_MAGNITUDE) {
+            zeroCount++;
+        } else {
+            add(value > 0.0 ? positive : negative, (int) Math.ceil(Math.log(magnitude) / logGamma), 1);
+        }
+        count++;
+    }
+
+    private void add(TreeMap<Integer, Long> buckets, int index, long n) {
+        Long c = buckets.get(index);
+        buckets.put(index, c == null ? n : c + n);
+        while (buckets.size() > maxBuckets) {
+            // Collapse two buckets of the smallest magnitude
+            Map.Entry<Integer, Long> first = buckets.pollFirstEntry();
+            Map.Entry<Integer, Long> second = buckets.firstEntry();
+            buckets.put(second.getKey(), second.getValue() + first.getValue());
+        }
+    }
+
+    public void merge(QuantileSketch other) {
+        if (other.accuracy != accuracy) {
+            throw new IllegalArgumentException("Can't merge sketches with different accuracy");
+        }
+        for (Map.Entry<Integer, Long> entry : other.positive.entrySet()) {
+            add(positive, entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<Integer, Long> entry : other.negative.entrySet()) {
+            add(negative, entry.getKey(), entry.getValue());
+        }
+        zeroCount += other.zeroCount;
+        count += other.count;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    private double getValue(int index) {
+        // Center of the bucket with relative error not more than accuracy
+        return 2.0 * Math.pow(gamma, index) / (gamma + 1.0);
+    }
+
+    /**
+     * @param q quantile from 0 to 1
+     * @return approximate value of the quantile or NaN if the sketch is empty
+     */
+    public double getQuantile(double q) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long rank = (long) (q * (count - 1));
+        long n = 0;
+        for (Map.Entry<Integer, Long> entry : negative.descendingMap().entrySet()) {
+            n += entry.getValue();
+            if (n > rank) {
+                return -getValue(entry.getKey());
+            }
+        }
+        n += zeroCount;
+        if (n > rank) {
+            return 0.0;
+        }
+        for (Map.Entry<Integer, Long> entry : positive.entrySet()) {
+            n += entry.getValue();
+            if (n > rank) {
+                return getValue(entry.getKey());
+            }
+        }
+        return getValue(positive.lastKey());
+    }
+
+    /**
+     * @return histogram of the values with logarithmic bins, each bin is {lower bound, upper bound, count}, bins are
+     * in increasing order of the values
+     */
+    public List<double[]> getHistogram() {
+        List<double[]> bins = new ArrayList<double[]>();
+        for (Map.Entry<Integer, Long> entry : negative.descendingMap().entrySet()) {
+            int i = entry.getKey();
+            bins.add(new double[]{-Math.pow(gamma, i), -Math.pow(gamma, i - 1), entry.getValue()});
+        }
+        if (zeroCount > 0) {
+            bins.add(new double[]{-MIN_MAGNITUDE, MIN_MAGNITUDE, zeroCount});
+        }
+        for (Map.Entry<Integer, Long> entry : positive.entrySet()) {
+            int i = entry.getKey();
+            bins.add(new double[]{Math.pow(gamma, i - 1), Math.pow(gamma, i), entry.getValue()});
+        }
+        return bins;
+    }
+}
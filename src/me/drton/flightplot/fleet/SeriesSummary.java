@@ -0,0 +1,137 @@
+package me.drton.flightplot.fleet;
+
+import me.drton.flightplot.Series;
+
+/**
+ * Mergeable summary of one series over many logs: counts and moments of all points, sketch of all values and sketches
+ * of per-log last, min and max values, e.g. remaining battery capacity at landing. Size doesn't depend on the number
+ * of logs and points.
+ */
+public class SeriesSummary {
+    private long logs = 0;
+    private long count = 0;
+    private long nanCount = 0;
+    private double mean = 0.0;
+    private double m2 = 0.0;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+    private final QuantileSketch values = new QuantileSketch();
+    private final QuantileSketch logLast = new QuantileSketch();
+    private final QuantileSketch logMin = new QuantileSketch();
+    private final QuantileSketch logMax = new QuantileSketch();
+
+    /**
+     * @return summary of the series of one log
+     */
+    public static SeriesSummary of(Series series) {
+        SeriesSummary summary = new SeriesSummary();
+        summary.logs = 1;
+        double last = Double.NaN;
+        for (int i = 0; i < series.size(); i++) {
+            double v = series.getY(i);
+            if (Double.isNaN(v) || Double.isInfinite(v)) {
+                summary.nanCount++;
+                continue;
+            }
+            summary.count++;
+            double delta = v - summary.mean;
+            summary.mean += delta / summary.count;
+            summary.m2 += delta * (v - summary.mean);
+            if (!(v >= summary.min)) {
+                summary.min = v;
+            }
+            if (!(v <= summary.max)) {
+                summary.max = v;
+            }
+            summary.values.add(v);
+            last = v;
+        }
+        summary.logLast.add(last);
+        summary.logMin.add(summary.min);
+        summary.logMax.add(summary.max);
+        return summary;
+    }
+
+    /**
+     * Add summary of other logs.
+     */
+    public void merge(SeriesSummary other) {
+        long n = count + other.count;
+        if (n > 0) {
+            // Parallel algorithm for mean and sum of squared deviations
+            double delta = other.mean - mean;
+            m2 += other.m2 + delta * delta * count * other.count / n;
+            mean += delta * other.count / n;
+        }
+        count = n;
+        logs += other.logs;
+        nanCount += other.nanCount;
+        // Logs without finite points have NaN min and max
+        if (!Double.isNaN(other.min)) {
+            min = Double.isNaN(min) ? other.min : Math.min(min, other.min);
+        }
+        if (!Double.isNaN(other.max)) {
+            max = Double.isNaN(max) ? other.max : Math.max(max, other.max);
+        }
+        values.merge(other.values);
+        logLast.merge(other.logLast);
+        logMin.merge(other.logMin);
+        logMax.merge(other.logMax);
+    }
+
+    public long getLogs() {
+        return logs;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getNaNCount() {
+        return nanCount;
+    }
+
+    public double getMean() {
+        return count > 0 ? mean : Double.NaN;
+    }
+
+    public double getStd() {
+        return count > 1 ? Math.sqrt(m2 / (count - 1)) : Double.NaN;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * @return sketch of all values of all logs
+     */
+    public QuantileSketch getValues() {
+        return values;
+    }
+
+    /**
+     * @return sketch of the last value of each log
+     */
+    public QuantileSketch getLogLast() {
+        return logLast;
+    }
+
+    /**
+     * @return sketch of the min value of each log
+     */
+    public QuantileSketch getLogMin() {
+        return logMin;
+    }
+
+    /**
+     * @return sketch of the max value of each log
+     */
+    public QuantileSketch getLogMax() {
+        return logMax;
+    }
+}
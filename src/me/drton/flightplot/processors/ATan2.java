@@ -2,11 +2,12 @@ package me.drton.flightplot.processors;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * User: ton Date: 16.06.13 Time: 19:55
  */
-public class ATan2 extends PlotProcessor {
+public class ATan2 extends MapPlotProcessor {
     protected String param_Field_X;
     protected String param_Field_Y;
     protected double param_Angle_Offset;
@@ -28,6 +29,16 @@ public class ATan2 extends PlotProcessor {
         addSeries();
     }
 
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
+
+    @Override
+    public Set<String> getUsedFields() {
+        return fieldsSet(param_Field_X, param_Field_Y);
+    }
+
     @Override
     public void process(double time, Map<String, Object> update) {
         Object x = update.get(param_Field_X);
@@ -2,11 +2,12 @@ package me.drton.flightplot.processors;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * User: ton Date: 16.06.13 Time: 12:59
  */
-public class Abs extends PlotProcessor {
+public class Abs extends MapPlotProcessor {
     protected String[] param_Fields;
     protected double param_Scale;
 
@@ -25,6 +26,16 @@ public class Abs extends PlotProcessor {
         addSeries();
     }
 
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
+
+    @Override
+    public Set<String> getUsedFields() {
+        return fieldsSet(param_Fields);
+    }
+
     @Override
     public void process(double time, Map<String, Object> update) {
         double s = 0.0;
@@ -5,11 +5,12 @@ import me.drton.jmavlib.conversion.RotationConversion;
 import javax.vecmath.Matrix3d;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Created by ton on 05.01.15.
  */
-public class AirspeedFromDiffPress extends PlotProcessor {
+public class AirspeedFromDiffPress extends MapPlotProcessor {
     private String param_diff_press;
     private String param_baro_press;
     private String param_baro_press_pa;
@@ -52,6 +53,11 @@ public class AirspeedFromDiffPress extends PlotProcessor {
         addSeries("TAS");
     }
 
+    @Override
+    public Set<String> getUsedFields() {
+        return fieldsSet(param_diff_press, param_baro_press, param_baro_press_pa, param_temp);
+    }
+
     @Override
     public void process(double time, Map<String, Object> update) {
         double press = 0;
@@ -1,9 +1,13 @@
 package me.drton.flightplot.processors;
 
+import me.drton.flightplot.data.Aligner;
+import me.drton.flightplot.data.LogData;
+import me.drton.flightplot.data.UpdateView;
 import me.drton.flightplot.processors.tools.LowPassFilter;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * User: ton Date: 10.11.13 Time: 16:50
@@ -12,11 +16,15 @@ public class Battery extends PlotProcessor {
     private String param_Field_Voltage;
     private String param_Field_Current;
     private String param_Field_Discharged;
+    private int voltageId;
+    private int currentId;
+    private int dischargedId;
     private double param_Capacity;
     private double param_Resistance;
     private double param_N_Cells;
     private double param_V_Empty;
     private double param_V_Full;
+    private double param_Tolerance;
     private boolean showV;
     private boolean showRemainingV;
     private boolean showRemainingC;
@@ -35,19 +43,29 @@ public class Battery extends PlotProcessor {
         params.put("V Full", 4.0);
         params.put("LPF", 1.0);
         params.put("Show", "VC");
+        params.put("Tolerance", 0.0);
         return params;
     }
 
+    @Override
+    protected void resolveFieldIds() {
+        voltageId = getFieldId(param_Field_Voltage);
+        currentId = getFieldId(param_Field_Current);
+        dischargedId = getFieldId(param_Field_Discharged);
+    }
+
     @Override
     public void init() {
         param_Field_Voltage = (String) parameters.get("Field Voltage");
         param_Field_Current = (String) parameters.get("Field Current");
         param_Field_Discharged = (String) parameters.get("Field Discharged");
+        resolveFieldIds();
         param_Capacity = (Double) parameters.get("Capacity");
         param_Resistance = (Double) parameters.get("Resistance");
         param_N_Cells = (Integer) parameters.get("N Cells");
         param_V_Empty = (Double) parameters.get("V Empty");
         param_V_Full = (Double) parameters.get("V Full");
+        param_Tolerance = (Double) parameters.get("Tolerance");
         lpf = new LowPassFilter();
         lpf.setF((Double) parameters.get("LPF"));
         String show = ((String) parameters.get("Show")).toUpperCase();
@@ -58,33 +76,61 @@ public class Battery extends PlotProcessor {
     }
 
     @Override
-    public void process(double time, Map<String, Object> update) {
-        Number voltageNum = (Number) update.get(param_Field_Voltage);
-        Number currentNum = (Number) update.get(param_Field_Current);
-        Number dischargedNum = (Number) update.get(param_Field_Discharged);
-        if (voltageNum != null) {
-            double v = voltageNum.doubleValue();
-            double vFiltered = v;
-            if (currentNum != null) {
-                double current = currentNum.doubleValue();
-                if (current > 0.0) {
-                    // current < 0 means not available
-                    vFiltered += current * param_Resistance;
-                }
-            }
-            vFiltered = lpf.getOutput(time, vFiltered);
-            double remainingV = Math.min(1.0,
-                    Math.max(0.0, (vFiltered / param_N_Cells - param_V_Empty) / (param_V_Full - param_V_Empty)));
-            if (showRemainingV)
-                addPoint(0, time, remainingV * 100.0);
-            if (dischargedNum != null) {
-                double discharged = dischargedNum.doubleValue();
-                if (discharged > 0.0) {
-                    double remainingC = Math.min(1.0, Math.max(0.0, 1.0 - discharged / param_Capacity));
-                    if (showRemainingC)
-                        addPoint(1, time, remainingC * 100.0);
-                }
+    public Set<String> getUsedFields() {
+        return fieldsSet(param_Field_Voltage, param_Field_Current, param_Field_Discharged);
+    }
+
+    @Override
+    public void process(double time, UpdateView update) {
+        if (update.has(voltageId)) {
+            processValues(time, update.getDouble(voltageId),
+                    update.has(currentId) ? update.getDouble(currentId) : Double.NaN,
+                    update.has(dischargedId) ? update.getDouble(dischargedId) : Double.NaN);
+        }
+    }
+
+    /**
+     * Process voltage values, current and discharged values are aligned to voltage times.
+     */
+    @Override
+    public boolean processBatch(LogData data, int updateStart, int updateStop, long timeOffset) {
+        if (updateStart >= updateStop) {
+            return true;
+        }
+        long timeStart = data.getUpdateTime(updateStart);
+        long timeStop = data.getUpdateTime(updateStop - 1);
+        long[] times = data.getFieldTimes(voltageId);
+        Aligner aligner = new Aligner(data, new int[]{voltageId, currentId, dischargedId}, Aligner.Interpolation.HOLD,
+                (long) (param_Tolerance * 1e6));
+        double[][] values = new double[3][times.length];
+        aligner.align(times, 0, times.length, values);
+        for (int i = 0; i < times.length; i++) {
+            if (times[i] >= timeStart && times[i] <= timeStop) {
+                processValues((times[i] + timeOffset) * 1e-6, values[0][i], values[1][i], values[2][i]);
             }
         }
+        return true;
+    }
+
+    /**
+     * @param current    current or NaN if not available
+     * @param discharged discharged capacity or NaN if not available
+     */
+    private void processValues(double time, double v, double current, double discharged) {
+        double vFiltered = v;
+        if (current > 0.0) {
+            // current < 0 means not available
+            vFiltered += current * param_Resistance;
+        }
+        vFiltered = lpf.getOutput(time, vFiltered);
+        double remainingV = Math.min(1.0,
+                Math.max(0.0, (vFiltered / param_N_Cells - param_V_Empty) / (param_V_Full - param_V_Empty)));
+        if (showRemainingV)
+            addPoint(0, time, remainingV * 100.0);
+        if (discharged > 0.0) {
+            double remainingC = Math.min(1.0, Math.max(0.0, 1.0 - discharged / param_Capacity));
+            if (showRemainingC)
+                addPoint(1, time, remainingC * 100.0);
+        }
     }
 }
@@ -16,6 +16,11 @@ public class Derivative extends Simple {
         return params;
     }
 
+    @Override
+    public boolean isStateless() {
+        return false;
+    }
+
     @Override
     public void init() {
         super.init();
@@ -27,6 +32,13 @@ public class Derivative extends Simple {
         }
     }
 
+    @Override
+    protected void copyState() {
+        super.copyState();
+        valuesPrev = valuesPrev.clone();
+        timesPrev = timesPrev.clone();
+    }
+
     @Override
     protected double postProcessValue(int idx, double time, double in) {
         double out = Double.NaN;
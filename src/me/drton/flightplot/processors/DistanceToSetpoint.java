@@ -2,11 +2,12 @@ package me.drton.flightplot.processors;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * User: ton Date: 16.06.13 Time: 12:59
  */
-public class DistanceToSetpoint extends PlotProcessor {
+public class DistanceToSetpoint extends MapPlotProcessor {
     protected String[] param_Pos;
     protected String[] param_Target;
     protected double param_Scale;
@@ -31,6 +32,13 @@ public class DistanceToSetpoint extends PlotProcessor {
         distanceSeriesIndex = addSeries("Distance");
     }
 
+    @Override
+    public Set<String> getUsedFields() {
+        Set<String> fields = fieldsSet(param_Pos);
+        fields.addAll(fieldsSet(param_Target));
+        return fields;
+    }
+
     @Override
     public void process(double time, Map<String, Object> update) {
         double distance = 0;
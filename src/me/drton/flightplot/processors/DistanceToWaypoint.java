@@ -2,11 +2,12 @@ package me.drton.flightplot.processors;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * User: ton Date: 16.06.13 Time: 12:59
  */
-public class DistanceToWaypoint extends PlotProcessor {
+public class DistanceToWaypoint extends MapPlotProcessor {
     protected String param_PosLat;
     protected String param_PosLon;
     protected String param_TargetLat;
@@ -48,6 +49,13 @@ public class DistanceToWaypoint extends PlotProcessor {
         markerListIndex = addMarkersList("Markers");
     }
 
+    @Override
+    public Set<String> getUsedFields() {
+        Set<String> fields = fieldsSet(param_PosLat, param_PosLon, param_TargetLat, param_TargetLon, param_LandState);
+        fields.addAll(fieldsSet(param_Groundspeed));
+        return fields;
+    }
+
     @Override
     public void process(double time, Map<String, Object> update) {
         double lat_now = 0;
@@ -5,11 +5,12 @@ import me.drton.jmavlib.conversion.RotationConversion;
 import javax.vecmath.Matrix3d;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Created by ton on 05.01.15.
  */
-public class EulerFromQuaternion extends PlotProcessor {
+public class EulerFromQuaternion extends MapPlotProcessor {
     private String[] param_Fields;
     private double param_Scale;
     private double param_pitch_rotation;
@@ -48,6 +49,16 @@ public class EulerFromQuaternion extends PlotProcessor {
         rot_target = new Matrix3d();
     }
 
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
+
+    @Override
+    public Set<String> getUsedFields() {
+        return fieldsSet(param_Fields);
+    }
+
     @Override
     public void process(double time, Map<String, Object> update) {
         if (param_Fields.length < 4) {
@@ -1,27 +1,44 @@
 package me.drton.flightplot.processors;
 
+import me.drton.flightplot.data.Aligner;
+import me.drton.flightplot.data.FieldSampler;
+import me.drton.flightplot.data.LogData;
+import me.drton.flightplot.data.UpdateView;
 import me.drton.flightplot.processors.tools.LowPassFilter;
+import net.objecthunter.exp4j.CompiledExpression;
 import net.objecthunter.exp4j.ExpressionBuilder;
+import net.objecthunter.exp4j.compiled.Signals;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Created by markw on 1/22/15.
  */
 public class Expression extends PlotProcessor {
-    protected final Map<String, Object> data = new HashMap<String, Object>();
+    private static final int BATCH_SIZE = 4096;
     protected LowPassFilter lowPassFilter;
-    private net.objecthunter.exp4j.Expression expr;
+    private CompiledExpression expr;
+    private int[] variableIds;
 
     @Override
     public Map<String, Object> getDefaultParameters() {
         Map<String, Object> params = new HashMap<String, Object>();
         params.put("Expression", "BATT.C * BATT.V");
         params.put("LPF", 0.0);
+        params.put("Interpolation", Aligner.Interpolation.HOLD.name());
+        params.put("Tolerance", 0.0);
         return params;
     }
 
+    @Override
+    protected void resolveFieldIds() {
+        if (expr != null) {
+            variableIds = getFieldIds(expr.getVariableNames());
+        }
+    }
+
     @Override
     public void init() {
         String exprStr = (String) parameters.get("Expression");
@@ -29,8 +46,10 @@ public class Expression extends PlotProcessor {
         ExpressionBuilder expBuilder = new ExpressionBuilder(exprStr);
         if (fieldsList != null) {
             expBuilder.variables(fieldsList.keySet());
+            expBuilder.functions(Signals.getFunctions());
             try {
-                expr = expBuilder.build();
+                expr = expBuilder.build().compile();
+                resolveFieldIds();
             } catch (Exception e) {
                 e.printStackTrace();
             }
@@ -41,23 +60,91 @@ public class Expression extends PlotProcessor {
     }
 
     @Override
-    public void process(double time, Map<String, Object> update) {
+    public Set<String> getUsedFields() {
+        if (expr == null) {
+            return fieldsSet();
+        }
+        return fieldsSet(expr.getVariableNames());
+    }
+
+    @Override
+    public void process(double time, UpdateView update) {
         if (expr == null) {
             return;
         }
-        for (Map.Entry<String, Object> entry : update.entrySet()) {
-            Object val = entry.getValue();
-            if (val != null && val instanceof Number) {
-                expr.setVariable(entry.getKey(), ((Number) val).doubleValue());
+        for (int i = 0; i < variableIds.length; i++) {
+            if (update.hasNumber(variableIds[i])) {
+                expr.setVariable(i, update.getDouble(variableIds[i]));
             }
         }
+        if (!expr.isReady()) {
+            return;
+        }
         double res;
         try {
-            res = expr.evaluate();
+            res = expr.setTime(time).evaluate();
         } catch (Exception e) {
             return;
         }
         addPoint(0, time, lowPassFilter.getOutput(time, res));
 
     }
+
+    /**
+     * Evaluate the expression on the grid of log updates in batches. With HOLD interpolation and no tolerance inputs
+     * are sampled by update order, so points are the same as added by {@link #process(double, UpdateView)}. Otherwise
+     * inputs are aligned by time, update times are clamped to be non-decreasing as required by {@link Aligner}.
+     */
+    @Override
+    public boolean processBatch(LogData data, int updateStart, int updateStop, long timeOffset) {
+        if (expr == null) {
+            return true;
+        }
+        String[] names = expr.getVariableNames();
+        int[] ids = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            ids[i] = data.getFieldId(names[i]);
+        }
+        Aligner.Interpolation interpolation = Aligner.Interpolation.parse((String) parameters.get("Interpolation"));
+        if (interpolation == Aligner.Interpolation.SLERP) {
+            interpolation = Aligner.Interpolation.LINEAR;
+        }
+        long tolerance = (long) ((Double) parameters.get("Tolerance") * 1e6);
+        FieldSampler sampler = null;
+        Aligner aligner = null;
+        if (interpolation == Aligner.Interpolation.HOLD && tolerance == 0) {
+            sampler = new FieldSampler(data, ids);
+        } else {
+            aligner = new Aligner(data, ids, interpolation, tolerance);
+        }
+        double[][] columns = new double[names.length][BATCH_SIZE];
+        long[] gridTimes = new long[BATCH_SIZE];
+        long gridTime = Long.MIN_VALUE;
+        double[] times = new double[BATCH_SIZE];
+        double[] values = new double[BATCH_SIZE];
+        boolean[] failed = new boolean[BATCH_SIZE];
+        for (int start = updateStart; start < updateStop; start += BATCH_SIZE) {
+            int length = Math.min(BATCH_SIZE, updateStop - start);
+            for (int i = 0; i < length; i++) {
+                long t = data.getUpdateTime(start + i);
+                gridTime = Math.max(gridTime, t);
+                gridTimes[i] = gridTime;
+                times[i] = (t + timeOffset) * 1e-6;
+            }
+            // Skip updates before all variables got values
+            int first;
+            if (sampler != null) {
+                first = sampler.sample(start, start + length, columns);
+            } else {
+                first = aligner.align(gridTimes, 0, length, columns);
+            }
+            expr.evaluate(columns, times, first, length, values, failed);
+            for (int i = first; i < length; i++) {
+                if (!failed[i]) {
+                    addPoint(0, times[i], lowPassFilter.getOutput(times[i], values[i]));
+                }
+            }
+        }
+        return true;
+    }
 }
@@ -5,11 +5,12 @@ import me.drton.jmavlib.geo.LatLonAlt;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * User: ton Date: 11.07.13 Time: 22:14
  */
-public class GlobalPositionProjection extends PlotProcessor {
+public class GlobalPositionProjection extends MapPlotProcessor {
     private GlobalPositionProjector positionProjector = new GlobalPositionProjector();
     private String[] param_Fields;
     private String[] param_RefFields;
@@ -36,6 +37,13 @@ public class GlobalPositionProjection extends PlotProcessor {
         addSeries("Y");
     }
 
+    @Override
+    public Set<String> getUsedFields() {
+        Set<String> fields = fieldsSet(param_Fields);
+        fields.addAll(fieldsSet(param_RefFields));
+        return fields;
+    }
+
     @Override
     public void process(double time, Map<String, Object> update) {
         // GPS
@@ -17,6 +17,11 @@ public class Integral extends Simple {
         return params;
     }
 
+    @Override
+    public boolean isStateless() {
+        return false;
+    }
+
     @Override
     public void init() {
         super.init();
@@ -29,6 +34,13 @@ public class Integral extends Simple {
         }
     }
 
+    @Override
+    protected void copyState() {
+        super.copyState();
+        integrals = integrals.clone();
+        times = times.clone();
+    }
+
     @Override
     protected double preProcessValue(int idx, double time, double in) {
         if (!Double.isNaN(times[idx])) {
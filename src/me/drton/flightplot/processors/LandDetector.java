@@ -4,11 +4,12 @@ import me.drton.flightplot.processors.tools.LowPassFilter;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * User: ton Date: 25.07.13 Time: 14:20
  */
-public class LandDetector extends PlotProcessor {
+public class LandDetector extends MapPlotProcessor implements Cloneable {
     private String param_Field_Baro;
     private String param_Field_Thrust;
     private double param_Filter_Time;
@@ -58,6 +59,16 @@ public class LandDetector extends PlotProcessor {
         addSeries("AltDisp");
     }
 
+    @Override
+    protected void copyState() {
+        baroLPF = baroLPF.copy();
+    }
+
+    @Override
+    public Set<String> getUsedFields() {
+        return fieldsSet(param_Field_Baro, param_Field_Thrust);
+    }
+
     @Override
     public void process(double time, Map<String, Object> update) {
         Number baroNum = (Number) update.get(param_Field_Baro);
@@ -0,0 +1,20 @@
+package me.drton.flightplot.processors;
+
+import me.drton.flightplot.data.UpdateView;
+
+import java.util.Map;
+
+/**
+ * Processor that gets updates as map of field names to values instead of resolving field IDs in {@link #init()}.
+ */
+public abstract class MapPlotProcessor extends PlotProcessor {
+    /**
+     * Process update as map of the used fields. The map is reused, it's valid until the next update.
+     */
+    public abstract void process(double time, Map<String, Object> update);
+
+    @Override
+    public void process(double time, UpdateView update) {
+        process(time, update.asMap());
+    }
+}
@@ -2,11 +2,12 @@ package me.drton.flightplot.processors;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * User: ton Date: 16.06.13 Time: 12:59
  */
-public class MavlinkPX4CustomMode extends PlotProcessor {
+public class MavlinkPX4CustomMode extends MapPlotProcessor {
     protected String param_Field;
 
     /*
@@ -44,6 +45,16 @@ public class MavlinkPX4CustomMode extends PlotProcessor {
         addSeries();
     }
 
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
+
+    @Override
+    public Set<String> getUsedFields() {
+        return fieldsSet(param_Field);
+    }
+
     @Override
     public void process(double time, Map<String, Object> update) {
         int mode = -1;
@@ -7,11 +7,12 @@ import javax.vecmath.Matrix3d;
 import javax.vecmath.Vector3d;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * User: ton Date: 14.09.13 Time: 23:45
  */
-public class NEDFromBodyProjection extends PlotProcessor {
+public class NEDFromBodyProjection extends MapPlotProcessor {
     private String[] param_Fields;
     private String[] param_Fields_Att;
     private double param_Scale;
@@ -74,6 +75,13 @@ public class NEDFromBodyProjection extends PlotProcessor {
         }
     }
 
+    @Override
+    public Set<String> getUsedFields() {
+        Set<String> fields = fieldsSet(param_Fields);
+        fields.addAll(fieldsSet(param_Fields_Att));
+        return fields;
+    }
+
     @Override
     public void process(double time, Map<String, Object> update) {
         boolean act = false;
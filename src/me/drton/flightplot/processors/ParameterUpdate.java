@@ -3,11 +3,12 @@ package me.drton.flightplot.processors;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Created by ada on 20.08.17.
  */
-public class ParameterUpdate extends PlotProcessor {
+public class ParameterUpdate extends MapPlotProcessor {
     protected String paramField;
     protected String valueField;
     protected String typeField;
@@ -29,6 +30,11 @@ public class ParameterUpdate extends PlotProcessor {
         addMarkersList();
     }
 
+    @Override
+    public Set<String> getUsedFields() {
+        return fieldsSet("PARM");
+    }
+
     @Override
     public void process(double time, Map<String, Object> update) {
         Object v = update.get("PARM");
@@ -3,12 +3,16 @@ package me.drton.flightplot.processors;
 import me.drton.flightplot.MarkersList;
 import me.drton.flightplot.PlotItem;
 import me.drton.flightplot.Series;
-import me.drton.flightplot.XYPoint;
+import me.drton.flightplot.data.FieldRegistry;
+import me.drton.flightplot.data.LogData;
+import me.drton.flightplot.data.UpdateView;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * User: ton Date: 12.06.13 Time: 18:25
@@ -17,12 +21,13 @@ public abstract class PlotProcessor {
     protected static final String WHITESPACE_RE = "[ \t]+";
     protected Map<String, Object> parameters;
     protected Map<String, String> fieldsList = new HashMap<String, String>();
+    protected FieldRegistry fieldRegistry = null;
     private double skipOut = 0.0;
     private List<PlotItem> seriesList = new ArrayList<PlotItem>();
-    private List<XYPoint> lastPoints = new ArrayList<XYPoint>();
 
     protected PlotProcessor() {
         this.parameters = getDefaultParameters();
+        this.parameters.put("Decimation", Series.Decimation.M4.name());
     }
 
     public abstract void init();
@@ -35,6 +40,43 @@ public abstract class PlotProcessor {
         this.fieldsList = fieldsList;
     }
 
+    /**
+     * Set registry used to resolve field names to IDs in {@link #init()}.
+     */
+    public void setFieldRegistry(FieldRegistry fieldRegistry) {
+        this.fieldRegistry = fieldRegistry;
+    }
+
+    /**
+     * Resolve field names to IDs with the registry again, e.g. for a processor restored from checkpoints taken on an
+     * earlier snapshot of the log being decoded, fields that appeared after the checkpoint had no IDs then.
+     */
+    public void resolveFields(FieldRegistry fieldRegistry) {
+        this.fieldRegistry = fieldRegistry;
+        resolveFieldIds();
+    }
+
+    /**
+     * Resolve IDs of the fields used by the processor, processors using field IDs call it from {@link #init()}.
+     */
+    protected void resolveFieldIds() {
+    }
+
+    /**
+     * @return ID of the field or -1 if the field is not present in the log
+     */
+    protected int getFieldId(String field) {
+        return fieldRegistry == null ? -1 : fieldRegistry.getFieldId(field);
+    }
+
+    protected int[] getFieldIds(String[] fields) {
+        int[] ids = new int[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            ids[i] = getFieldId(fields[i]);
+        }
+        return ids;
+    }
+
     private static Object castValue(Object valueOld, Object valueNewObj) {
         String valueNewStr = valueNewObj.toString();
         Object valueNew = valueNewObj;
@@ -75,20 +117,42 @@ public abstract class PlotProcessor {
         }
     }
 
+    /**
+     * Fields used by the processor, other fields may be omitted in updates passed to {@link #process(double, UpdateView)}.
+     * Called after {@link #init()}.
+     *
+     * @return set of field names or null if the processor may use any field
+     */
+    public Set<String> getUsedFields() {
+        return null;
+    }
+
+    protected static Set<String> fieldsSet(String... fields) {
+        Set<String> set = new HashSet<String>();
+        for (String field : fields) {
+            if (field != null && !field.isEmpty()) {
+                set.add(field);
+            }
+        }
+        return set;
+    }
+
     protected int addSeries() {
         int idx = seriesList.size();
-        seriesList.add(new Series("", skipOut));
-        lastPoints.add(null);
+        seriesList.add(new Series("", skipOut, getDecimation()));
         return idx;
     }
 
     protected int addSeries(String label) {
         int idx = seriesList.size();
-        seriesList.add(new Series(label, skipOut));
-        lastPoints.add(null);
+        seriesList.add(new Series(label, skipOut, getDecimation()));
         return idx;
     }
 
+    private Series.Decimation getDecimation() {
+        return Series.Decimation.parse((String) parameters.get("Decimation"));
+    }
+
     protected int addMarkersList() {
         int idx = seriesList.size();
         seriesList.add(new MarkersList(""));
@@ -105,6 +169,14 @@ public abstract class PlotProcessor {
         return seriesList;
     }
 
+    /**
+     * Use already processed series instead of processing the log, e.g. cached results of the processor with the same
+     * parameters.
+     */
+    public void setSeriesList(List<PlotItem> seriesList) {
+        this.seriesList = seriesList;
+    }
+
     protected void addPoint(int seriesIdx, double time, double value) {
         ((Series) seriesList.get(seriesIdx)).addPoint(time, value);
     }
@@ -113,7 +185,117 @@ public abstract class PlotProcessor {
         ((MarkersList) seriesList.get(seriesIdx)).addMarker(time, label);
     }
 
-    public abstract void process(double time, Map<String, Object> update);
+    /**
+     * Process update accessed by field IDs. Processors that don't resolve field IDs in {@link #init()} extend
+     * {@link MapPlotProcessor} to get the update as map.
+     */
+    public abstract void process(double time, UpdateView update);
+
+    /**
+     * Process updates from updateStart to updateStop (exclusive) of the decoded log at once, instead of passing them
+     * one by one to {@link #process(double, UpdateView)}.
+     *
+     * @param timeOffset offset added to update times, in microseconds
+     * @return false if the processor doesn't support batch processing
+     */
+    public boolean processBatch(LogData data, int updateStart, int updateStop, long timeOffset) {
+        return false;
+    }
+
+    /**
+     * Stateless processor output for an update depends only on this update, so time chunks of the log can be
+     * processed independently by copies of the processor and concatenated.
+     */
+    public boolean isStateless() {
+        return false;
+    }
+
+    /**
+     * Create new initialized instance of the processor with the same parameters, series of the copy are not
+     * decimated.
+     */
+    public PlotProcessor createCopy() throws IllegalAccessException, InstantiationException {
+        PlotProcessor copy = getClass().newInstance();
+        copy.setFieldsList(fieldsList);
+        copy.setFieldRegistry(fieldRegistry);
+        copy.setParameters(parameters);
+        copy.init();
+        return copy;
+    }
+
+    /**
+     * Processor supports checkpoints if it implements {@link Cloneable} and copies its mutable state in
+     * {@link #copyState()}.
+     */
+    public boolean isCheckpointable() {
+        return this instanceof Cloneable;
+    }
+
+    /**
+     * Snapshot of the processor state after the processed updates, processing of the next updates may be continued
+     * by a copy of the snapshot. Series of the snapshot are empty.
+     *
+     * @return snapshot or null if checkpoints are not supported by the processor
+     */
+    public PlotProcessor createCheckpoint() {
+        if (!isCheckpointable()) {
+            return null;
+        }
+        PlotProcessor checkpoint;
+        try {
+            checkpoint = (PlotProcessor) clone();
+        } catch (CloneNotSupportedException e) {
+            return null;
+        }
+        checkpoint.seriesList = new ArrayList<PlotItem>();
+        for (PlotItem item : seriesList) {
+            if (item instanceof Series) {
+                checkpoint.seriesList.add(new Series(item.getTitle(), skipOut, ((Series) item).getDecimation()));
+            } else {
+                checkpoint.seriesList.add(new MarkersList(item.getTitle()));
+            }
+        }
+        checkpoint.copyState();
+        return checkpoint;
+    }
+
+    /**
+     * Replace mutable state of the clone created for checkpoint by copies, so it doesn't share state with the
+     * original processor.
+     */
+    protected void copyState() {
+    }
+
+    /**
+     * Append points and markers of the copy that processed the next time chunk.
+     */
+    public void append(PlotProcessor chunk) {
+        for (int i = 0; i < seriesList.size(); i++) {
+            PlotItem item = seriesList.get(i);
+            PlotItem chunkItem = chunk.seriesList.get(i);
+            if (item instanceof Series) {
+                Series series = (Series) item;
+                Series chunkSeries = (Series) chunkItem;
+                for (int j = 0; j < chunkSeries.size(); j++) {
+                    series.addPoint(chunkSeries.getX(j), chunkSeries.getY(j));
+                }
+            } else {
+                ((MarkersList) item).addAll((MarkersList) chunkItem);
+            }
+        }
+    }
+
+    /**
+     * Complete all series and build their pyramids, called after the last update processed.
+     */
+    public void finish() {
+        for (PlotItem item : seriesList) {
+            if (item instanceof Series) {
+                ((Series) item).flush();
+                ((Series) item).buildLevels();
+            }
+        }
+    }
 
     public String getProcessorType() {
         return getClass().getSimpleName();
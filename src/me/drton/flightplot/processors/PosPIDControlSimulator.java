@@ -5,11 +5,12 @@ import me.drton.flightplot.processors.tools.PID;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * User: ton Date: 20.06.13 Time: 6:06
  */
-public class PosPIDControlSimulator extends PlotProcessor {
+public class PosPIDControlSimulator extends MapPlotProcessor implements Cloneable {
     private double startTime;
     private double startSP;
     private double startSPRate;
@@ -65,6 +66,18 @@ public class PosPIDControlSimulator extends PlotProcessor {
         addSeries("Rate");
         addSeries("Acc");
         addSeries("Ctrl");
+        addSeries("Pos SP");
+    }
+
+    @Override
+    protected void copyState() {
+        propeller = propeller.copy();
+        pidPos = pidPos.copy();
+    }
+
+    @Override
+    public Set<String> getUsedFields() {
+        return fieldsSet("ATT.Roll");
     }
 
     @Override
@@ -90,6 +103,7 @@ public class PosPIDControlSimulator extends PlotProcessor {
                 if (accScale != 0.0)
                     addPoint(2, time, acc * accScale);
                 addPoint(3, time, pidPos.getIntegral() * 10);
+                addPoint(4, time, posSP);
             }
             timePrev = time;
         }
@@ -9,11 +9,12 @@ import me.drton.jmavlib.processing.Filter;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * User: ton Date: 20.06.13 Time: 6:06
  */
-public class PosRatePIDControlSimulator extends PlotProcessor {
+public class PosRatePIDControlSimulator extends MapPlotProcessor {
     private double timeStep;
     private double thrustK;
     private double accScale;
@@ -94,6 +95,13 @@ public class PosRatePIDControlSimulator extends PlotProcessor {
         }
     }
 
+    @Override
+    public Set<String> getUsedFields() {
+        Set<String> fields = fieldsSet(rateSpField, spField);
+        fields.addAll(fieldsSet(spField.split(" ")));
+        return fields;
+    }
+
     @Override
     public void process(double time, Map<String, Object> update) {
         if (timePrev < 0.0) {
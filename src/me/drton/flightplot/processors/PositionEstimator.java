@@ -14,7 +14,7 @@ import java.util.Map;
 /**
  * User: ton Date: 28.06.13 Time: 13:40
  */
-public class PositionEstimator extends PlotProcessor {
+public class PositionEstimator extends MapPlotProcessor {
     private static final double G = 9.81;
     private String[] param_Fields_GPS;
     private String param_Field_Baro;
@@ -1,5 +1,6 @@
 package me.drton.flightplot.processors;
 
+import me.drton.flightplot.data.UpdateView;
 import me.drton.jmavlib.conversion.RotationConversion;
 import me.drton.jmavlib.geo.GlobalPositionProjector;
 import me.drton.jmavlib.geo.LatLonAlt;
@@ -13,11 +14,12 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * User: ton Date: 30.05.14 Time: 23:49
  */
-public class PositionEstimatorKF extends PlotProcessor {
+public class PositionEstimatorKF extends PlotProcessor implements Cloneable {
     private static final double G = 9.81;
     private String[] param_Fields_GPS;
     private String param_Field_Baro;
@@ -31,6 +33,10 @@ public class PositionEstimatorKF extends PlotProcessor {
     private double param_Var_GPS_VV;
     private double param_Delay_GPS;
     private double param_EPH_Max;
+    private int[] gpsIds;
+    private int baroId;
+    private int[] accIds;
+    private int[] attIds;
 
     private double timePrev;
 
@@ -100,6 +106,14 @@ public class PositionEstimatorKF extends PlotProcessor {
         return params;
     }
 
+    @Override
+    protected void resolveFieldIds() {
+        gpsIds = getFieldIds(param_Fields_GPS);
+        baroId = getFieldId(param_Field_Baro);
+        accIds = getFieldIds(param_Fields_Acc);
+        attIds = getFieldIds(param_Fields_Att);
+    }
+
     @Override
     public void init() {
         timePrev = Double.NaN;
@@ -139,6 +153,7 @@ public class PositionEstimatorKF extends PlotProcessor {
         param_Fields_Acc = ((String) parameters.get("Fields Acc")).split(WHITESPACE_RE);
         param_Fields_Att = ((String) parameters.get("Fields Att")).split(WHITESPACE_RE);
         param_Field_Baro = (String) parameters.get("Field Baro");
+        resolveFieldIds();
         param_Var_Acc = (Double) parameters.get("Var Acc");
         param_Var_Acc_Bias = (Double) parameters.get("Var Acc Bias");
         param_Var_Baro = (Double) parameters.get("Var Baro");
@@ -184,23 +199,49 @@ public class PositionEstimatorKF extends PlotProcessor {
     }
 
     @Override
-    public void process(double time, Map<String, Object> update) {
+    protected void copyState() {
+        I = (GMatrix) I.clone();
+        x = (GVector) x.clone();
+        y = (GVector) y.clone();
+        P = (GMatrix) P.clone();
+        F = (GMatrix) F.clone();
+        H = (GMatrix) H.clone();
+        z = (GVector) z.clone();
+        R = (GMatrix) R.clone();
+        acc = (Vector3d) acc.clone();
+        rot = (Matrix3d) rot.clone();
+        accBias = (Vector3d) accBias.clone();
+        // Buffered states are not modified
+        xBuffer = new ArrayList<DelayLine.Tick<GVector>>(xBuffer);
+        if (!gpsInited) {
+            // Projector is not modified after initialization
+            positionProjector = new GlobalPositionProjector();
+        }
+    }
+
+    @Override
+    public Set<String> getUsedFields() {
+        Set<String> fields = fieldsSet(param_Fields_GPS);
+        fields.addAll(fieldsSet(param_Fields_Acc));
+        fields.addAll(fieldsSet(param_Fields_Att));
+        fields.add(param_Field_Baro);
+        return fields;
+    }
+
+    @Override
+    public void process(double time, UpdateView update) {
         boolean act = false;
         // Attitude
-        Number roll = (Number) update.get(param_Fields_Att[0]);
-        Number pitch = (Number) update.get(param_Fields_Att[1]);
-        Number yaw = (Number) update.get(param_Fields_Att[2]);
-        if (roll != null && pitch != null && yaw != null) {
-            rot.set(RotationConversion.rotationMatrixByEulerAngles(roll.doubleValue(), pitch.doubleValue(),
-                    yaw.doubleValue()));
+        if (update.has(attIds[0]) && update.has(attIds[1]) && update.has(attIds[2])) {
+            rot.set(RotationConversion.rotationMatrixByEulerAngles(update.getDouble(attIds[0]),
+                    update.getDouble(attIds[1]), update.getDouble(attIds[2])));
             act = true;
         }
 
         // Baro
         boolean baroUpdated = false;
-        Number baroNum = (Number) update.get(param_Field_Baro);
-        if (baroNum != null) {
-            double baro = baroNum.doubleValue();
+        if (update.has(baroId)) {
+            double baro = update.getDouble(baroId);
             if (!baroInited) {
                 baroInited = true;
                 // Set initial baro offset
@@ -211,22 +252,14 @@ public class PositionEstimatorKF extends PlotProcessor {
         }
 
         // GPS
-        Number latNum = (Number) update.get(param_Fields_GPS[0]);
-        Number lonNum = (Number) update.get(param_Fields_GPS[1]);
-        Number altNum = (Number) update.get(param_Fields_GPS[2]);
-        Number[] velGPSNum = new Number[]{
-                (Number) update.get(param_Fields_GPS[3]), (Number) update.get(param_Fields_GPS[4]),
-                (Number) update.get(param_Fields_GPS[5])};
-        Number ephNum = (Number) update.get(param_Fields_GPS[6]);
-        Number epvNum = (Number) update.get(param_Fields_GPS[7]);
         boolean gpsUpdated = false;
-        if (latNum != null && lonNum != null && altNum != null && velGPSNum[0] != null && velGPSNum[1] != null &&
-                velGPSNum[2] != null) {
-            double lat = latNum.doubleValue();
-            double lon = lonNum.doubleValue();
-            gpsEPH = ephNum.doubleValue();
-            gpsEPV = epvNum.doubleValue();
-            double alt = altNum.doubleValue();
+        if (update.has(gpsIds[0]) && update.has(gpsIds[1]) && update.has(gpsIds[2]) && update.has(gpsIds[3]) &&
+                update.has(gpsIds[4]) && update.has(gpsIds[5])) {
+            double lat = update.getDouble(gpsIds[0]);
+            double lon = update.getDouble(gpsIds[1]);
+            gpsEPH = update.getDouble(gpsIds[6]);
+            gpsEPV = update.getDouble(gpsIds[7]);
+            double alt = update.getDouble(gpsIds[2]);
             if (!gpsInited && baroInited) {
                 gpsInited = true;
                 positionProjector.init(new LatLonAlt(lat, lon, alt));
@@ -238,7 +271,7 @@ public class PositionEstimatorKF extends PlotProcessor {
                 z.setElement(1, gpsXYZ[1]);
                 z.setElement(2, -(alt - gpsRefAlt));
                 for (int axis = 0; axis < 3; axis++) {
-                    z.setElement(3 + axis, velGPSNum[axis].doubleValue());
+                    z.setElement(3 + axis, update.getDouble(gpsIds[3 + axis]));
                 }
                 if (time - gpsLast > gpsTimeout && Math.sqrt(P.getElement(0, 0) + P.getElement(1, 1)) > param_EPH_Max) {
                     // Reset position estimate
@@ -254,13 +287,10 @@ public class PositionEstimatorKF extends PlotProcessor {
             }
         }
         // Acceleration
-        Number accX = (Number) update.get(param_Fields_Acc[0]);
-        Number accY = (Number) update.get(param_Fields_Acc[1]);
-        Number accZ = (Number) update.get(param_Fields_Acc[2]);
-        if (accX != null && accY != null && accZ != null) {
-            acc.setX(accX.doubleValue() - accBias.getX());
-            acc.setY(accY.doubleValue() - accBias.getY());
-            acc.setZ(accZ.doubleValue() - accBias.getZ());
+        if (update.has(accIds[0]) && update.has(accIds[1]) && update.has(accIds[2])) {
+            acc.setX(update.getDouble(accIds[0]) - accBias.getX());
+            acc.setY(update.getDouble(accIds[1]) - accBias.getY());
+            acc.setZ(update.getDouble(accIds[2]) - accBias.getZ());
             act = true;
         }
         if (act && gpsInited) {
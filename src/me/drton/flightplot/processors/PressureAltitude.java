@@ -4,11 +4,12 @@ import me.drton.flightplot.processors.tools.LowPassFilter;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * User: ton Date: 15.06.13 Time: 12:04
  */
-public class PressureAltitude extends PlotProcessor {
+public class PressureAltitude extends MapPlotProcessor {
     protected String param_Pressure;
     protected String param_TempField;
     protected double param_QNH;
@@ -57,6 +58,11 @@ public class PressureAltitude extends PlotProcessor {
         return in;
     }
 
+    @Override
+    public Set<String> getUsedFields() {
+        return fieldsSet(param_Pressure, param_TempField);
+    }
+
     @Override
     public void process(double time, Map<String, Object> update) {
         Object v = update.get(param_TempField);
@@ -1,13 +1,21 @@
 package me.drton.flightplot.processors;
 
 import me.drton.flightplot.ColorSupplier;
+import me.drton.flightplot.PlotItem;
 import me.drton.flightplot.ProcessorPreset;
+import me.drton.flightplot.Series;
+import me.drton.flightplot.data.FieldRegistry;
 import org.omg.Dynamic.Parameter;
 
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * User: ton Date: 15.06.13 Time: 12:21
@@ -53,11 +61,18 @@ public class ProcessorsList {
 
     public PlotProcessor getProcessorInstance(ProcessorPreset processorPreset, double skipOut, Map<String, String> fieldsList)
             throws NoSuchMethodException, IllegalAccessException, InvocationTargetException, InstantiationException {
+        return getProcessorInstance(processorPreset, skipOut, fieldsList, null);
+    }
+
+    public PlotProcessor getProcessorInstance(ProcessorPreset processorPreset, double skipOut,
+                                              Map<String, String> fieldsList, FieldRegistry fieldRegistry)
+            throws NoSuchMethodException, IllegalAccessException, InvocationTargetException, InstantiationException {
         Class<? extends PlotProcessor> procClass = processors.get(processorPreset.getProcessorType());
         if (procClass != null) {
             PlotProcessor processor = procClass.newInstance();
             processor.setSkipOut(skipOut);
             processor.setFieldsList(fieldsList);
+            processor.setFieldRegistry(fieldRegistry);
             processor.setParameters(processorPreset.getParameters());
             processor.init();
             return processor;
@@ -65,4 +80,76 @@ public class ProcessorsList {
             return null;
         }
     }
+
+    /**
+     * Get outputs of the processor that other processors can use as fields, named as full titles of its series,
+     * e.g. "Title:Series".
+     */
+    public static Set<String> getOutputs(String title, PlotProcessor processor) {
+        Set<String> outputs = new LinkedHashSet<String>();
+        for (PlotItem item : processor.getSeriesList()) {
+            if (item instanceof Series) {
+                outputs.add(((Series) item).getFullTitle(title));
+            }
+        }
+        return outputs;
+    }
+
+    /**
+     * Find processors whose outputs are used by each processor.
+     *
+     * @param outputs outputs of the processors
+     * @return indexes of the processors used by each processor
+     */
+    public static List<Set<Integer>> getDependencies(List<Set<String>> outputs, List<PlotProcessor> processors) {
+        List<Set<Integer>> dependencies = new ArrayList<Set<Integer>>();
+        for (PlotProcessor processor : processors) {
+            Set<Integer> deps = new TreeSet<Integer>();
+            Set<String> usedFields = processor.getUsedFields();
+            if (usedFields != null) {
+                for (int j = 0; j < outputs.size(); j++) {
+                    for (String output : outputs.get(j)) {
+                        if (usedFields.contains(output)) {
+                            deps.add(j);
+                            break;
+                        }
+                    }
+                }
+            }
+            dependencies.add(deps);
+        }
+        return dependencies;
+    }
+
+    /**
+     * Sort processors topologically by dependencies.
+     *
+     * @param titles titles of the processors, used in error message
+     * @return levels of processors, processors of each level depend only on processors of the previous levels
+     * @throws IllegalArgumentException if processors depend on each other cyclically
+     */
+    public static List<List<Integer>> sortByDependencies(List<String> titles, List<Set<Integer>> dependencies) {
+        List<List<Integer>> levels = new ArrayList<List<Integer>>();
+        Set<Integer> sorted = new HashSet<Integer>();
+        while (sorted.size() < dependencies.size()) {
+            List<Integer> level = new ArrayList<Integer>();
+            for (int i = 0; i < dependencies.size(); i++) {
+                if (!sorted.contains(i) && sorted.containsAll(dependencies.get(i))) {
+                    level.add(i);
+                }
+            }
+            if (level.isEmpty()) {
+                List<String> cycle = new ArrayList<String>();
+                for (int i = 0; i < dependencies.size(); i++) {
+                    if (!sorted.contains(i)) {
+                        cycle.add(titles.get(i));
+                    }
+                }
+                throw new IllegalArgumentException("Cyclic dependency between processors: " + cycle);
+            }
+            sorted.addAll(level);
+            levels.add(level);
+        }
+        return levels;
+    }
 }
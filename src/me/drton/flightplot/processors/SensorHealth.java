@@ -3,11 +3,12 @@ package me.drton.flightplot.processors;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Created by ada on 01.06.18.
  */
-public class SensorHealth extends PlotProcessor {
+public class SensorHealth extends MapPlotProcessor {
     protected String paramField;
     private long sens = 0;
     private boolean init = false;
@@ -181,6 +182,11 @@ public class SensorHealth extends PlotProcessor {
         addMarkersList();
     }
 
+    @Override
+    public Set<String> getUsedFields() {
+        return fieldsSet(paramField);
+    }
+
     @Override
     public void process(double time, Map<String, Object> update) {
         Object v = update.get(paramField);
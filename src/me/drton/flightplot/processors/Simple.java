@@ -1,15 +1,18 @@
 package me.drton.flightplot.processors;
 
+import me.drton.flightplot.data.UpdateView;
 import me.drton.flightplot.processors.tools.LowPassFilter;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * User: ton Date: 15.06.13 Time: 12:04
  */
-public class Simple extends PlotProcessor {
+public class Simple extends PlotProcessor implements Cloneable {
     protected String[] param_Fields;
+    protected int[] fieldIds;
     protected double param_Scale;
     protected double param_Offset;
     protected double param_Delay;
@@ -26,9 +29,23 @@ public class Simple extends PlotProcessor {
         return params;
     }
 
+    /**
+     * Stateless if values are not filtered.
+     */
+    @Override
+    public boolean isStateless() {
+        return (Double) parameters.get("LPF") == 0.0;
+    }
+
+    @Override
+    protected void resolveFieldIds() {
+        fieldIds = getFieldIds(param_Fields);
+    }
+
     @Override
     public void init() {
         param_Fields = ((String) parameters.get("Fields")).split(WHITESPACE_RE);
+        resolveFieldIds();
         param_Scale = (Double) parameters.get("Scale");
         param_Offset = (Double) parameters.get("Offset");
         param_Delay = (Double) parameters.get("Delay");
@@ -43,6 +60,14 @@ public class Simple extends PlotProcessor {
         }
     }
 
+    @Override
+    protected void copyState() {
+        lowPassFilters = lowPassFilters.clone();
+        for (int i = 0; i < lowPassFilters.length; i++) {
+            lowPassFilters[i] = lowPassFilters[i].copy();
+        }
+    }
+
     protected double preProcessValue(int idx, double time, double in) {
         return in;
     }
@@ -52,12 +77,15 @@ public class Simple extends PlotProcessor {
     }
 
     @Override
-    public void process(double time, Map<String, Object> update) {
-        for (int i = 0; i < param_Fields.length; i++) {
-            String field = param_Fields[i];
-            Object v = update.get(field);
-            if (v != null && v instanceof Number) {
-                double out = preProcessValue(i, time, ((Number) v).doubleValue());
+    public Set<String> getUsedFields() {
+        return fieldsSet(param_Fields);
+    }
+
+    @Override
+    public void process(double time, UpdateView update) {
+        for (int i = 0; i < fieldIds.length; i++) {
+            if (update.hasNumber(fieldIds[i])) {
+                double out = preProcessValue(i, time, update.getDouble(fieldIds[i]));
                 if (Double.isNaN(out)) {
                     addPoint(i, time, Double.NaN);
                 } else {
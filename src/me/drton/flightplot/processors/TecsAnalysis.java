@@ -1,15 +1,18 @@
 package me.drton.flightplot.processors;
 
+import me.drton.flightplot.data.Aligner;
+import me.drton.flightplot.data.LogData;
 import me.drton.jmavlib.conversion.RotationConversion;
 
 import javax.vecmath.Matrix3d;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Created by ton on 05.01.15.
  */
-public class TecsAnalysis extends PlotProcessor {
+public class TecsAnalysis extends MapPlotProcessor {
     private double param_Scale;
     private double param_thrTimeConst;
     private double param_timeConst;
@@ -22,7 +25,10 @@ public class TecsAnalysis extends PlotProcessor {
     private double param_sinkMax;
     private double param_rollComp;
     private double roll;
+    private final double[] tecsValues = new double[TECS_FIELDS.length];
     private static double CONSTANTS_ONE_G = 9.80665;
+    private static final String[] TECS_FIELDS = {"TECS.ASP", "TECS.AsSP", "TECS.FSP", "TECS.AsF", "TECS.AsDSP",
+            "TECS.AF", "TECS.F", "TECS.AsD", "TECS.TI", "TECS.EE", "TECS.ERE"};
 
     @Override
     public Map<String, Object> getDefaultParameters() {
@@ -63,90 +69,78 @@ public class TecsAnalysis extends PlotProcessor {
     }
 
     @Override
-    public void process(double time, Map<String, Object> update) {
-        double _hgt_dem_adj = 0;
-        double _TAS_dem_adj = 0;
-        double _hgt_rate_dem = 0;
-        double _est_airspeed = 0;
-        double _TAS_rate_dem = 0;
-        double _est_height = 0;
-        double _est_height_rate = 0;
-        double _vel_dot = 0;
-        double throttle_int = 0;
-        double energy_error = 0;
-        double energy_rate_error = 0;
+    public Set<String> getUsedFields() {
+        Set<String> fields = fieldsSet(TECS_FIELDS);
+        fields.add("ATT.Roll");
+        return fields;
+    }
 
+    @Override
+    public void process(double time, Map<String, Object> update) {
         Object temp = update.get("ATT.Roll");
         if (temp != null && temp instanceof Number) {
             roll = ((Number)temp).doubleValue();
         }
 
-        temp = update.get("TECS.ASP");
-        if (temp != null && temp instanceof Number) {
-            _hgt_dem_adj = ((Number)temp).doubleValue();
-        } else {
-            return;
-        }
-        temp = update.get("TECS.AsSP");
-        if (temp != null && temp instanceof Number) {
-            _TAS_dem_adj = ((Number)temp).doubleValue();
-        } else {
-            return;
-        }
-        temp = update.get("TECS.FSP");
-        if (temp != null && temp instanceof Number) {
-            _hgt_rate_dem = ((Number)temp).doubleValue();
-        } else {
-            return;
-        }
-        temp = update.get("TECS.AsF");
-        if (temp != null && temp instanceof Number) {
-            _est_airspeed = ((Number)temp).doubleValue();
-        } else {
-            return;
-        }
-        temp = update.get("TECS.AsDSP");
-        if (temp != null && temp instanceof Number) {
-            _TAS_rate_dem = ((Number)temp).doubleValue();
-        } else {
-            return;
-        }
-        temp = update.get("TECS.AF");
-        if (temp != null && temp instanceof Number) {
-            _est_height = ((Number)temp).doubleValue();
-        } else {
-            return;
-        }
-        temp = update.get("TECS.F");
-        if (temp != null && temp instanceof Number) {
-            _est_height_rate = ((Number)temp).doubleValue();
-        } else {
-            return;
-        }
-        temp = update.get("TECS.AsD");
-        if (temp != null && temp instanceof Number) {
-            _vel_dot = ((Number)temp).doubleValue();
-        } else {
-            return;
+        for (int i = 0; i < TECS_FIELDS.length; i++) {
+            temp = update.get(TECS_FIELDS[i]);
+            if (temp != null && temp instanceof Number) {
+                tecsValues[i] = ((Number)temp).doubleValue();
+            } else {
+                return;
+            }
         }
-        temp = update.get("TECS.TI");
-        if (temp != null && temp instanceof Number) {
-            throttle_int = ((Number)temp).doubleValue();
-        } else {
-            return;
+        processValues(time, roll, tecsValues);
+    }
+
+    /**
+     * Process TECS messages, roll is interpolated to the time of the messages.
+     */
+    @Override
+    public boolean processBatch(LogData data, int updateStart, int updateStop, long timeOffset) {
+        int[] ids = new int[TECS_FIELDS.length + 1];
+        Aligner.Interpolation[] interpolations = new Aligner.Interpolation[ids.length];
+        for (int i = 0; i < TECS_FIELDS.length; i++) {
+            ids[i] = data.getFieldId(TECS_FIELDS[i]);
+            if (ids[i] < 0) {
+                return true;
+            }
+            interpolations[i] = Aligner.Interpolation.HOLD;
         }
-        temp = update.get("TECS.EE");
-        if (temp != null && temp instanceof Number) {
-            energy_error = ((Number)temp).doubleValue();
-        } else {
-            return;
+        ids[TECS_FIELDS.length] = data.getFieldId("ATT.Roll");
+        interpolations[TECS_FIELDS.length] = Aligner.Interpolation.LINEAR;
+        if (updateStart >= updateStop) {
+            return true;
         }
-        temp = update.get("TECS.ERE");
-        if (temp != null && temp instanceof Number) {
-            energy_rate_error = ((Number)temp).doubleValue();
-        } else {
-            return;
+        long timeStart = data.getUpdateTime(updateStart);
+        long timeStop = data.getUpdateTime(updateStop - 1);
+        long[] times = data.getFieldTimes(ids[0]);
+        double[][] values = new double[ids.length][times.length];
+        new Aligner(data, ids, interpolations, 0).align(times, 0, times.length, values);
+        for (int i = 0; i < times.length; i++) {
+            if (times[i] >= timeStart && times[i] <= timeStop) {
+                for (int j = 0; j < TECS_FIELDS.length; j++) {
+                    tecsValues[j] = values[j][i];
+                }
+                double r = values[TECS_FIELDS.length][i];
+                processValues((times[i] + timeOffset) * 1e-6, Double.isNaN(r) ? 0.0 : r, tecsValues);
+            }
         }
+        return true;
+    }
+
+    private void processValues(double time, double roll, double[] tecsValues) {
+        double _hgt_dem_adj = tecsValues[0];
+        double _TAS_dem_adj = tecsValues[1];
+        double _hgt_rate_dem = tecsValues[2];
+        double _est_airspeed = tecsValues[3];
+        double _TAS_rate_dem = tecsValues[4];
+        double _est_height = tecsValues[5];
+        double _est_height_rate = tecsValues[6];
+        double _vel_dot = tecsValues[7];
+        double throttle_int = tecsValues[8];
+        double energy_error = tecsValues[9];
+        double energy_rate_error = tecsValues[10];
 
         double _SPE_dem = _hgt_dem_adj * CONSTANTS_ONE_G;
         double _SKE_dem = 0.5 * _TAS_dem_adj * _TAS_dem_adj;
@@ -2,11 +2,12 @@ package me.drton.flightplot.processors;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Created by ton on 29.09.15.
  */
-public class Text extends PlotProcessor {
+public class Text extends MapPlotProcessor {
     protected String param_Field;
 
     @Override
@@ -22,6 +23,11 @@ public class Text extends PlotProcessor {
         addMarkersList();
     }
 
+    @Override
+    public Set<String> getUsedFields() {
+        return fieldsSet(param_Field);
+    }
+
     @Override
     public void process(double time, Map<String, Object> update) {
         Object v = update.get(param_Field);
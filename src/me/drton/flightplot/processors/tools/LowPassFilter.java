@@ -25,6 +25,19 @@ public class LowPassFilter {
         }
     }
 
+    /**
+     * @return filter with the same parameters and state
+     */
+    public LowPassFilter copy() {
+        LowPassFilter copy = new LowPassFilter();
+        copy.inLast = inLast;
+        copy.valueFiltered = valueFiltered;
+        copy.tLast = tLast;
+        copy.f = f;
+        copy.rc_inv = rc_inv;
+        return copy;
+    }
+
     public void reset() {
         tLast = Double.NaN;
     }
@@ -26,6 +26,17 @@ public class PID {
         this.mode = mode;
     }
 
+    /**
+     * @return controller with the same parameters and state
+     */
+    public PID copy() {
+        PID copy = new PID();
+        copy.setK(kP, kI, kD, limit, mode);
+        copy.integral = integral;
+        copy.errorLast = errorLast;
+        return copy;
+    }
+
     public void reset() {
         errorLast = 0.0;
         integral = 0.0;
@@ -0,0 +1,210 @@
+/* 
+ * Copyright 2014 Frank Asseg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package net.objecthunter.exp4j;
+
+import net.objecthunter.exp4j.compiled.Clock;
+import net.objecthunter.exp4j.compiled.Compiler;
+import net.objecthunter.exp4j.compiled.Node;
+import net.objecthunter.exp4j.compiled.Nodes;
+import net.objecthunter.exp4j.compiled.Optimizer;
+import net.objecthunter.exp4j.tokenizer.Token;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Expression compiled to a tree of specialized nodes. Variables are bound to indexed slots, evaluation doesn't
+ * allocate objects. The tree is optimized: constant subtrees are folded, common subexpressions are evaluated once.
+ * Stateful functions like lpf(x, f) keep their state between evaluations and use the time set by
+ * {@link #setTime(double)}. Expression can be evaluated for whole columns of variable values at once, pure expressions
+ * are evaluated in blocks of rows by tight loops over arrays. Instances are not thread safe.
+ */
+public class CompiledExpression {
+
+    private final Node root;
+
+    private final Nodes.Cached[] cachedNodes;
+
+    private final String[] variableNames;
+
+    private final double[] slots;
+
+    private final boolean[] variablesSet;
+
+    private int variablesUnset;
+
+    private final Clock clock = new Clock();
+
+    private final boolean vectorized;
+
+    private double[] blockValues;
+
+    CompiledExpression(final Token[] tokens) {
+        final Map<String, Integer> slotsMap = new LinkedHashMap<String, Integer>();
+        final Optimizer optimizer = new Optimizer();
+        this.root = optimizer.optimize(Compiler.compile(tokens, slotsMap, clock));
+        final List<Nodes.Cached> cached = optimizer.getCachedNodes();
+        this.cachedNodes = cached.toArray(new Nodes.Cached[cached.size()]);
+        this.variableNames = slotsMap.keySet().toArray(new String[slotsMap.size()]);
+        this.slots = new double[variableNames.length];
+        this.variablesSet = new boolean[variableNames.length];
+        this.variablesUnset = variableNames.length;
+        this.vectorized = isVectorized(root);
+    }
+
+    private static boolean isVectorized(final Node node) {
+        if (!node.isPure()) {
+            return false;
+        }
+        for (Node arg : node.getArgs()) {
+            if (!isVectorized(arg)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the names of the variables used in the expression
+     * @return the names indexed by variable slot
+     */
+    public String[] getVariableNames() {
+        return variableNames;
+    }
+
+    /**
+     * Get the slot of a variable
+     * @param name the name of the variable
+     * @return the slot or -1 if the variable is not used in the expression
+     */
+    public int getVariableIndex(final String name) {
+        for (int i = 0; i < variableNames.length; i++) {
+            if (variableNames[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public CompiledExpression setVariable(final int index, final double value) {
+        if (!variablesSet[index]) {
+            variablesSet[index] = true;
+            variablesUnset--;
+        }
+        slots[index] = value;
+        return this;
+    }
+
+    /**
+     * Set time of the next evaluation, used by stateful functions
+     * @param time the time in seconds
+     */
+    public CompiledExpression setTime(final double time) {
+        clock.setTime(time);
+        return this;
+    }
+
+    /**
+     * @return true if values of all variables have been set
+     */
+    public boolean isReady() {
+        return variablesUnset == 0;
+    }
+
+    public double evaluate() {
+        if (variablesUnset > 0) {
+            for (int i = 0; i < variableNames.length; i++) {
+                if (!variablesSet[i]) {
+                    throw new IllegalArgumentException("No value has been set for the setVariable '" + variableNames[i] + "'.");
+                }
+            }
+        }
+        for (Nodes.Cached node : cachedNodes) {
+            node.invalidate();
+        }
+        return root.evaluate(slots);
+    }
+
+    /**
+     * Evaluate the expression for rows of input columns. Values of the variables set by
+     * {@link #setVariable(int, double)} are not used and not changed. Expressions with custom or stateful functions
+     * are evaluated row by row.
+     * @param columns values of the variables, indexed by variable slot and row
+     * @param times time of the rows used by stateful functions, may be null if the expression has no such functions
+     * @param from index of the first row
+     * @param to index after the last row
+     * @param out output column, values are written at the same indexes as inputs
+     * @param failed output flags, set to true for the rows where evaluation failed, e.g. on division by zero
+     */
+    public void evaluate(final double[][] columns, final double[] times, final int from, final int to,
+                         final double[] out, final boolean[] failed) {
+        if (!vectorized) {
+            evaluateRows(columns, times, from, to, out, failed);
+            return;
+        }
+        if (blockValues == null) {
+            blockValues = new double[Node.BLOCK_SIZE];
+        }
+        for (int start = from; start < to; start += Node.BLOCK_SIZE) {
+            final int length = Math.min(Node.BLOCK_SIZE, to - start);
+            for (Nodes.Cached node : cachedNodes) {
+                node.invalidate();
+            }
+            try {
+                root.evaluateBlock(columns, start, length, blockValues);
+            } catch (ArithmeticException e) {
+                // Find the failed rows
+                evaluateRows(columns, times, start, start + length, out, failed);
+                continue;
+            }
+            System.arraycopy(blockValues, 0, out, start, length);
+            Arrays.fill(failed, start, start + length, false);
+        }
+    }
+
+    private void evaluateRows(final double[][] columns, final double[] times, final int from, final int to,
+                              final double[] out, final boolean[] failed) {
+        final double[] rowSlots = new double[slots.length];
+        for (int r = from; r < to; r++) {
+            for (int i = 0; i < rowSlots.length; i++) {
+                rowSlots[i] = columns[i][r];
+            }
+            if (times != null) {
+                clock.setTime(times[r]);
+            }
+            for (Nodes.Cached node : cachedNodes) {
+                node.invalidate();
+            }
+            try {
+                out[r] = root.evaluate(rowSlots);
+                failed[r] = false;
+            } catch (RuntimeException e) {
+                out[r] = Double.NaN;
+                failed[r] = true;
+            }
+        }
+    }
+
+    /**
+     * Dump the optimized expression tree for debugging
+     * @return the string representation of the tree
+     */
+    public String dump() {
+        return Optimizer.dump(root, variableNames);
+    }
+}
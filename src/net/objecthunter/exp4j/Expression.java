@@ -55,6 +55,16 @@ public class Expression {
         }
     }
 
+    public Set<String> getVariableNames() {
+        final Set<String> variables = new HashSet<String>();
+        for (final Token t : tokens) {
+            if (t.getType() == Token.TOKEN_VARIABLE) {
+                variables.add(((VariableToken) t).getName());
+            }
+        }
+        return variables;
+    }
+
     public Expression setVariables(Map<String, Double> variables) {
         for (Map.Entry<String, Double> v : variables.entrySet()) {
             this.setVariable(v.getKey(), v.getValue());
@@ -118,6 +128,14 @@ public class Expression {
         return validate(true);
     }
 
+    /**
+     * Compile the expression to a tree of specialized nodes for fast repeated evaluation
+     * @return a new {@link CompiledExpression} instance
+     */
+    public CompiledExpression compile() {
+        return new CompiledExpression(this.tokens);
+    }
+
     public Future<Double> evaluateAsync(ExecutorService executor) {
         return executor.submit(new Callable<Double>() {
             @Override
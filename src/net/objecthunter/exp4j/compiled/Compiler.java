@@ -0,0 +1,122 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.objecthunter.exp4j.compiled;
+
+import net.objecthunter.exp4j.function.Function;
+import net.objecthunter.exp4j.function.Functions;
+import net.objecthunter.exp4j.operator.Operator;
+import net.objecthunter.exp4j.operator.Operators;
+import net.objecthunter.exp4j.tokenizer.*;
+
+import java.util.Map;
+import java.util.Stack;
+
+/**
+ * Converts expression in reverse polish notation to tree of specialized nodes
+ */
+public class Compiler {
+
+    /**
+     * Compile the tokens to a tree of nodes
+     * @param tokens the tokens in reverse polish notation
+     * @param slots map of variable names to slots, new variables are added to the map
+     * @param clock the clock used by stateful nodes
+     * @return the root node
+     */
+    public static Node compile(Token[] tokens, Map<String, Integer> slots, Clock clock) {
+        final Stack<Node> stack = new Stack<Node>();
+        for (Token t : tokens) {
+            switch (t.getType()) {
+                case Token.TOKEN_NUMBER:
+                    stack.push(new Nodes.Constant(((NumberToken) t).getValue()));
+                    break;
+                case Token.TOKEN_VARIABLE:
+                    final String name = ((VariableToken) t).getName();
+                    Integer slot = slots.get(name);
+                    if (slot == null) {
+                        slot = slots.size();
+                        slots.put(name, slot);
+                    }
+                    stack.push(new Nodes.Variable(slot));
+                    break;
+                case Token.TOKEN_OPERATOR:
+                    final Operator op = ((OperatorToken) t).getOperator();
+                    stack.push(compileOperator(op, popArgs(stack, op.getNumOperands())));
+                    break;
+                case Token.TOKEN_FUNCTION:
+                    final Function func = ((FunctionToken) t).getFunction();
+                    stack.push(compileFunction(func, popArgs(stack, func.getNumArguments()), clock));
+                    break;
+            }
+        }
+        if (stack.size() != 1) {
+            throw new IllegalArgumentException("Invalid number of items on the output queue. Might be caused by an invalid number of arguments for a function.");
+        }
+        return stack.pop();
+    }
+
+    private static Node[] popArgs(Stack<Node> stack, int num) {
+        if (stack.size() < num) {
+            throw new IllegalArgumentException("Invalid number of operands available");
+        }
+        final Node[] args = new Node[num];
+        for (int i = num - 1; i >= 0; i--) {
+            args[i] = stack.pop();
+        }
+        return args;
+    }
+
+    private static Node compileOperator(Operator op, Node[] args) {
+        if (args.length == 2 && op == Operators.getBuiltinOperator(op.getSymbol().charAt(0), 2)) {
+            switch (op.getSymbol().charAt(0)) {
+                case '+':
+                    return new Nodes.Add(args[0], args[1]);
+                case '-':
+                    return new Nodes.Subtract(args[0], args[1]);
+                case '*':
+                    return new Nodes.Multiply(args[0], args[1]);
+                case '/':
+                    return new Nodes.Divide(args[0], args[1]);
+                case '%':
+                    return new Nodes.Modulo(args[0], args[1]);
+                case '^':
+                    return new Nodes.Power(args[0], args[1]);
+            }
+        } else if (args.length == 1 && op == Operators.getBuiltinOperator(op.getSymbol().charAt(0), 1)) {
+            switch (op.getSymbol().charAt(0)) {
+                case '-':
+                    return new Nodes.Negate(args[0]);
+                case '+':
+                    return args[0];
+            }
+        }
+        return new Nodes.OperatorCall(op, args);
+    }
+
+    private static Node compileFunction(Function func, Node[] args, Clock clock) {
+        if (func instanceof SignalFunction) {
+            return ((SignalFunction) func).createNode(args, clock);
+        }
+        if (func == Functions.getBuiltinFunction(func.getName())) {
+            if (args.length == 2 && func.getName().equals("pow")) {
+                return new Nodes.Power(args[0], args[1]);
+            }
+            int index = Nodes.MathFunction.getIndex(func.getName());
+            if (args.length == 1 && index >= 0) {
+                return new Nodes.MathFunction(index, args[0]);
+            }
+        }
+        return new Nodes.FunctionCall(func, args);
+    }
+}
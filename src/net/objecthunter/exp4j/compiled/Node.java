@@ -0,0 +1,106 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.objecthunter.exp4j.compiled;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Node of compiled expression tree
+ */
+public abstract class Node {
+    protected static final Node[] NO_ARGS = new Node[0];
+
+    /**
+     * Max number of rows evaluated at once by {@link #evaluateBlock(double[][], int, int, double[])}
+     */
+    public static final int BLOCK_SIZE = 1024;
+
+    /**
+     * Evaluate the node
+     * @param slots values of the variables, indexed by variable slot
+     * @return the value of the node
+     */
+    public abstract double evaluate(double[] slots);
+
+    /**
+     * Evaluate the node for a block of rows, by default row by row, nodes override it to process whole blocks
+     * @param columns values of the variables, indexed by variable slot and row
+     * @param offset index of the first row in the columns
+     * @param length number of rows, not more than {@link #BLOCK_SIZE}
+     * @param out the values of the rows, indexed from 0
+     */
+    public void evaluateBlock(double[][] columns, int offset, int length, double[] out) {
+        final List<Nodes.Cached> cached = new ArrayList<Nodes.Cached>();
+        collectCached(this, cached);
+        final double[] rowSlots = new double[columns.length];
+        for (int r = 0; r < length; r++) {
+            for (int i = 0; i < rowSlots.length; i++) {
+                rowSlots[i] = columns[i][offset + r];
+            }
+            for (Nodes.Cached node : cached) {
+                node.invalidate();
+            }
+            out[r] = evaluate(rowSlots);
+        }
+        // Cached nodes hold the value of the last row, not of the block
+        for (Nodes.Cached node : cached) {
+            node.invalidate();
+        }
+    }
+
+    private static void collectCached(Node node, List<Nodes.Cached> cached) {
+        for (Node arg : node.getArgs()) {
+            if (arg instanceof Nodes.Cached) {
+                cached.add((Nodes.Cached) arg);
+            }
+            collectCached(arg, cached);
+        }
+    }
+
+    /**
+     * Get the label of the node, nodes with the same label and the same arguments are equivalent if they are pure
+     * @return the label, e.g. operator symbol or function name
+     */
+    public abstract String getLabel();
+
+    public Node[] getArgs() {
+        return NO_ARGS;
+    }
+
+    /**
+     * Create the same node with other arguments
+     * @param args the new arguments
+     * @return the new node
+     */
+    public Node withArgs(Node[] args) {
+        return this;
+    }
+
+    /**
+     * Check if the node result depends only on its arguments, pure nodes may be folded and shared
+     * @return true if the node is pure
+     */
+    public boolean isPure() {
+        return true;
+    }
+
+    /**
+     * Check if order of two arguments doesn't change the result
+     * @return true if the node is commutative
+     */
+    public boolean isCommutative() {
+        return false;
+    }
+}
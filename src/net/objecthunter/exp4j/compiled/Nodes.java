@@ -0,0 +1,703 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.objecthunter.exp4j.compiled;
+
+import net.objecthunter.exp4j.function.Function;
+import net.objecthunter.exp4j.operator.Operator;
+
+import java.util.Arrays;
+
+/**
+ * Specialized nodes of compiled expression tree. Evaluation of the nodes doesn't allocate objects, block evaluation
+ * of pure nodes runs simple loops over arrays that JIT can vectorize.
+ */
+public class Nodes {
+    public abstract static class Binary extends Node {
+        protected final Node a, b;
+        private double[] buffer;
+
+        protected Binary(Node a, Node b) {
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        public Node[] getArgs() {
+            return new Node[]{a, b};
+        }
+
+        @Override
+        public void evaluateBlock(double[][] columns, int offset, int length, double[] out) {
+            if (buffer == null) {
+                buffer = new double[BLOCK_SIZE];
+            }
+            a.evaluateBlock(columns, offset, length, out);
+            b.evaluateBlock(columns, offset, length, buffer);
+            apply(out, buffer, length);
+        }
+
+        /**
+         * Apply the operation to the block: out[i] = out[i] op values[i]
+         */
+        protected abstract void apply(double[] out, double[] values, int length);
+    }
+
+    public static final class Constant extends Node {
+        private final double value;
+
+        public Constant(double value) {
+            this.value = value;
+        }
+
+        public double getValue() {
+            return value;
+        }
+
+        @Override
+        public String getLabel() {
+            return Double.toString(value);
+        }
+
+        @Override
+        public double evaluate(double[] slots) {
+            return value;
+        }
+
+        @Override
+        public void evaluateBlock(double[][] columns, int offset, int length, double[] out) {
+            Arrays.fill(out, 0, length, value);
+        }
+    }
+
+    public static final class Variable extends Node {
+        private final int slot;
+
+        public Variable(int slot) {
+            this.slot = slot;
+        }
+
+        public int getSlot() {
+            return slot;
+        }
+
+        @Override
+        public String getLabel() {
+            return "$" + slot;
+        }
+
+        @Override
+        public double evaluate(double[] slots) {
+            return slots[slot];
+        }
+
+        @Override
+        public void evaluateBlock(double[][] columns, int offset, int length, double[] out) {
+            System.arraycopy(columns[slot], offset, out, 0, length);
+        }
+    }
+
+    public static final class Add extends Binary {
+        public Add(Node a, Node b) {
+            super(a, b);
+        }
+
+        @Override
+        public String getLabel() {
+            return "+";
+        }
+
+        @Override
+        public boolean isCommutative() {
+            return true;
+        }
+
+        @Override
+        public Node withArgs(Node[] args) {
+            return new Add(args[0], args[1]);
+        }
+
+        @Override
+        public double evaluate(double[] slots) {
+            return a.evaluate(slots) + b.evaluate(slots);
+        }
+
+        @Override
+        protected void apply(double[] out, double[] values, int length) {
+            for (int i = 0; i < length; i++) {
+                out[i] += values[i];
+            }
+        }
+    }
+
+    public static final class Subtract extends Binary {
+        public Subtract(Node a, Node b) {
+            super(a, b);
+        }
+
+        @Override
+        public String getLabel() {
+            return "-";
+        }
+
+        @Override
+        public Node withArgs(Node[] args) {
+            return new Subtract(args[0], args[1]);
+        }
+
+        @Override
+        public double evaluate(double[] slots) {
+            return a.evaluate(slots) - b.evaluate(slots);
+        }
+
+        @Override
+        protected void apply(double[] out, double[] values, int length) {
+            for (int i = 0; i < length; i++) {
+                out[i] -= values[i];
+            }
+        }
+    }
+
+    public static final class Multiply extends Binary {
+        public Multiply(Node a, Node b) {
+            super(a, b);
+        }
+
+        @Override
+        public String getLabel() {
+            return "*";
+        }
+
+        @Override
+        public boolean isCommutative() {
+            return true;
+        }
+
+        @Override
+        public Node withArgs(Node[] args) {
+            return new Multiply(args[0], args[1]);
+        }
+
+        @Override
+        public double evaluate(double[] slots) {
+            return a.evaluate(slots) * b.evaluate(slots);
+        }
+
+        @Override
+        protected void apply(double[] out, double[] values, int length) {
+            for (int i = 0; i < length; i++) {
+                out[i] *= values[i];
+            }
+        }
+    }
+
+    public static final class Divide extends Binary {
+        public Divide(Node a, Node b) {
+            super(a, b);
+        }
+
+        @Override
+        public String getLabel() {
+            return "/";
+        }
+
+        @Override
+        public Node withArgs(Node[] args) {
+            return new Divide(args[0], args[1]);
+        }
+
+        @Override
+        public double evaluate(double[] slots) {
+            double divisor = b.evaluate(slots);
+            if (divisor == 0d) {
+                throw new ArithmeticException("Division by zero!");
+            }
+            return a.evaluate(slots) / divisor;
+        }
+
+        @Override
+        protected void apply(double[] out, double[] values, int length) {
+            for (int i = 0; i < length; i++) {
+                if (values[i] == 0d) {
+                    throw new ArithmeticException("Division by zero!");
+                }
+            }
+            for (int i = 0; i < length; i++) {
+                out[i] /= values[i];
+            }
+        }
+    }
+
+    public static final class Modulo extends Binary {
+        public Modulo(Node a, Node b) {
+            super(a, b);
+        }
+
+        @Override
+        public String getLabel() {
+            return "%";
+        }
+
+        @Override
+        public Node withArgs(Node[] args) {
+            return new Modulo(args[0], args[1]);
+        }
+
+        @Override
+        public double evaluate(double[] slots) {
+            double divisor = b.evaluate(slots);
+            if (divisor == 0d) {
+                throw new ArithmeticException("Division by zero!");
+            }
+            return a.evaluate(slots) % divisor;
+        }
+
+        @Override
+        protected void apply(double[] out, double[] values, int length) {
+            for (int i = 0; i < length; i++) {
+                if (values[i] == 0d) {
+                    throw new ArithmeticException("Division by zero!");
+                }
+            }
+            for (int i = 0; i < length; i++) {
+                out[i] %= values[i];
+            }
+        }
+    }
+
+    public static final class Power extends Binary {
+        public Power(Node a, Node b) {
+            super(a, b);
+        }
+
+        @Override
+        public String getLabel() {
+            return "^";
+        }
+
+        @Override
+        public Node withArgs(Node[] args) {
+            return new Power(args[0], args[1]);
+        }
+
+        @Override
+        public double evaluate(double[] slots) {
+            return Math.pow(a.evaluate(slots), b.evaluate(slots));
+        }
+
+        @Override
+        protected void apply(double[] out, double[] values, int length) {
+            for (int i = 0; i < length; i++) {
+                out[i] = Math.pow(out[i], values[i]);
+            }
+        }
+    }
+
+    public static final class Negate extends Node {
+        private final Node a;
+
+        public Negate(Node a) {
+            this.a = a;
+        }
+
+        @Override
+        public String getLabel() {
+            return "neg";
+        }
+
+        @Override
+        public Node[] getArgs() {
+            return new Node[]{a};
+        }
+
+        @Override
+        public Node withArgs(Node[] args) {
+            return new Negate(args[0]);
+        }
+
+        @Override
+        public double evaluate(double[] slots) {
+            return -a.evaluate(slots);
+        }
+
+        @Override
+        public void evaluateBlock(double[][] columns, int offset, int length, double[] out) {
+            a.evaluateBlock(columns, offset, length, out);
+            for (int i = 0; i < length; i++) {
+                out[i] = -out[i];
+            }
+        }
+    }
+
+    /**
+     * Builtin function of one argument
+     */
+    public static final class MathFunction extends Node {
+        public static final int SIN = 0;
+        public static final int COS = 1;
+        public static final int TAN = 2;
+        public static final int ASIN = 3;
+        public static final int ACOS = 4;
+        public static final int ATAN = 5;
+        public static final int SINH = 6;
+        public static final int COSH = 7;
+        public static final int TANH = 8;
+        public static final int ABS = 9;
+        public static final int LOG = 10;
+        public static final int LOG10 = 11;
+        public static final int LOG2 = 12;
+        public static final int LOG1P = 13;
+        public static final int CEIL = 14;
+        public static final int FLOOR = 15;
+        public static final int SQRT = 16;
+        public static final int CBRT = 17;
+        public static final int EXP = 18;
+        public static final int EXPM1 = 19;
+
+        private static final String[] NAMES = {"sin", "cos", "tan", "asin", "acos", "atan", "sinh", "cosh", "tanh",
+                "abs", "log", "log10", "log2", "log1p", "ceil", "floor", "sqrt", "cbrt", "exp", "expm1"};
+
+        private final int function;
+        private final Node a;
+
+        public MathFunction(int function, Node a) {
+            this.function = function;
+            this.a = a;
+        }
+
+        @Override
+        public String getLabel() {
+            return NAMES[function];
+        }
+
+        @Override
+        public Node[] getArgs() {
+            return new Node[]{a};
+        }
+
+        @Override
+        public Node withArgs(Node[] args) {
+            return new MathFunction(function, args[0]);
+        }
+
+        /**
+         * @return index of the function by name or -1 if it's not a builtin function of one argument
+         */
+        public static int getIndex(String name) {
+            for (int i = 0; i < NAMES.length; i++) {
+                if (NAMES[i].equals(name)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public double evaluate(double[] slots) {
+            double v = a.evaluate(slots);
+            switch (function) {
+                case SIN:
+                    return Math.sin(v);
+                case COS:
+                    return Math.cos(v);
+                case TAN:
+                    return Math.tan(v);
+                case ASIN:
+                    return Math.asin(v);
+                case ACOS:
+                    return Math.acos(v);
+                case ATAN:
+                    return Math.atan(v);
+                case SINH:
+                    return Math.sinh(v);
+                case COSH:
+                    return Math.cosh(v);
+                case TANH:
+                    return Math.tanh(v);
+                case ABS:
+                    return Math.abs(v);
+                case LOG:
+                    return Math.log(v);
+                case LOG10:
+                    return Math.log10(v);
+                case LOG2:
+                    return Math.log(v) / Math.log(2d);
+                case LOG1P:
+                    return Math.log1p(v);
+                case CEIL:
+                    return Math.ceil(v);
+                case FLOOR:
+                    return Math.floor(v);
+                case SQRT:
+                    return Math.sqrt(v);
+                case CBRT:
+                    return Math.cbrt(v);
+                case EXP:
+                    return Math.exp(v);
+                default:
+                    return Math.expm1(v);
+            }
+        }
+
+        @Override
+        public void evaluateBlock(double[][] columns, int offset, int length, double[] out) {
+            a.evaluateBlock(columns, offset, length, out);
+            switch (function) {
+                case SIN:
+                    for (int i = 0; i < length; i++) {
+                        out[i] = Math.sin(out[i]);
+                    }
+                    break;
+                case COS:
+                    for (int i = 0; i < length; i++) {
+                        out[i] = Math.cos(out[i]);
+                    }
+                    break;
+                case TAN:
+                    for (int i = 0; i < length; i++) {
+                        out[i] = Math.tan(out[i]);
+                    }
+                    break;
+                case ASIN:
+                    for (int i = 0; i < length; i++) {
+                        out[i] = Math.asin(out[i]);
+                    }
+                    break;
+                case ACOS:
+                    for (int i = 0; i < length; i++) {
+                        out[i] = Math.acos(out[i]);
+                    }
+                    break;
+                case ATAN:
+                    for (int i = 0; i < length; i++) {
+                        out[i] = Math.atan(out[i]);
+                    }
+                    break;
+                case SINH:
+                    for (int i = 0; i < length; i++) {
+                        out[i] = Math.sinh(out[i]);
+                    }
+                    break;
+                case COSH:
+                    for (int i = 0; i < length; i++) {
+                        out[i] = Math.cosh(out[i]);
+                    }
+                    break;
+                case TANH:
+                    for (int i = 0; i < length; i++) {
+                        out[i] = Math.tanh(out[i]);
+                    }
+                    break;
+                case ABS:
+                    for (int i = 0; i < length; i++) {
+                        out[i] = Math.abs(out[i]);
+                    }
+                    break;
+                case LOG:
+                    for (int i = 0; i < length; i++) {
+                        out[i] = Math.log(out[i]);
+                    }
+                    break;
+                case LOG10:
+                    for (int i = 0; i < length; i++) {
+                        out[i] = Math.log10(out[i]);
+                    }
+                    break;
+                case LOG2:
+                    for (int i = 0; i < length; i++) {
+                        out[i] = Math.log(out[i]) / Math.log(2d);
+                    }
+                    break;
+                case LOG1P:
+                    for (int i = 0; i < length; i++) {
+                        out[i] = Math.log1p(out[i]);
+                    }
+                    break;
+                case CEIL:
+                    for (int i = 0; i < length; i++) {
+                        out[i] = Math.ceil(out[i]);
+                    }
+                    break;
+                case FLOOR:
+                    for (int i = 0; i < length; i++) {
+                        out[i] = Math.floor(out[i]);
+                    }
+                    break;
+                case SQRT:
+                    for (int i = 0; i < length; i++) {
+                        out[i] = Math.sqrt(out[i]);
+                    }
+                    break;
+                case CBRT:
+                    for (int i = 0; i < length; i++) {
+                        out[i] = Math.cbrt(out[i]);
+                    }
+                    break;
+                case EXP:
+                    for (int i = 0; i < length; i++) {
+                        out[i] = Math.exp(out[i]);
+                    }
+                    break;
+                default:
+                    for (int i = 0; i < length; i++) {
+                        out[i] = Math.expm1(out[i]);
+                    }
+            }
+        }
+    }
+
+    /**
+     * Custom function, arguments are passed in preallocated array
+     */
+    public static final class FunctionCall extends Node {
+        private final Function function;
+        private final Node[] args;
+        private final double[] values;
+
+        public FunctionCall(Function function, Node[] args) {
+            this.function = function;
+            this.args = args;
+            this.values = new double[args.length];
+        }
+
+        @Override
+        public String getLabel() {
+            return function.getName();
+        }
+
+        @Override
+        public Node[] getArgs() {
+            return args.clone();
+        }
+
+        @Override
+        public Node withArgs(Node[] args) {
+            return new FunctionCall(function, args);
+        }
+
+        /**
+         * Custom functions may have state, they are never folded or shared
+         */
+        @Override
+        public boolean isPure() {
+            return false;
+        }
+
+        @Override
+        public double evaluate(double[] slots) {
+            for (int i = 0; i < args.length; i++) {
+                values[i] = args[i].evaluate(slots);
+            }
+            return function.apply(values);
+        }
+    }
+
+    /**
+     * Custom operator, operands are passed in preallocated array
+     */
+    public static final class OperatorCall extends Node {
+        private final Operator operator;
+        private final Node[] args;
+        private final double[] values;
+
+        public OperatorCall(Operator operator, Node[] args) {
+            this.operator = operator;
+            this.args = args;
+            this.values = new double[args.length];
+        }
+
+        @Override
+        public String getLabel() {
+            return operator.getSymbol();
+        }
+
+        @Override
+        public Node[] getArgs() {
+            return args.clone();
+        }
+
+        @Override
+        public Node withArgs(Node[] args) {
+            return new OperatorCall(operator, args);
+        }
+
+        @Override
+        public boolean isPure() {
+            return false;
+        }
+
+        @Override
+        public double evaluate(double[] slots) {
+            for (int i = 0; i < args.length; i++) {
+                values[i] = args[i].evaluate(slots);
+            }
+            return operator.apply(values);
+        }
+    }
+
+    /**
+     * Node used more than once in the expression, it's evaluated once per expression evaluation
+     */
+    public static final class Cached extends Node {
+        private final Node node;
+        private boolean valid = false;
+        private double value;
+        private double[] values;
+
+        public Cached(Node node) {
+            this.node = node;
+        }
+
+        public Node getNode() {
+            return node;
+        }
+
+        /**
+         * Invalidate the cached value, called before each evaluation of the expression or block of rows
+         */
+        public void invalidate() {
+            valid = false;
+        }
+
+        @Override
+        public String getLabel() {
+            return node.getLabel();
+        }
+
+        @Override
+        public Node[] getArgs() {
+            return node.getArgs();
+        }
+
+        @Override
+        public double evaluate(double[] slots) {
+            if (!valid) {
+                value = node.evaluate(slots);
+                valid = true;
+            }
+            return value;
+        }
+
+        @Override
+        public void evaluateBlock(double[][] columns, int offset, int length, double[] out) {
+            if (!valid) {
+                if (values == null) {
+                    values = new double[BLOCK_SIZE];
+                }
+                node.evaluateBlock(columns, offset, length, values);
+                valid = true;
+            }
+            System.arraycopy(values, 0, out, 0, length);
+        }
+    }
+}
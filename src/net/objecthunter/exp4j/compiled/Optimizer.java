@@ -0,0 +1,165 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.objecthunter.exp4j.compiled;
+
+import java.util.*;
+
+/**
+ * Optimization pass over compiled expression tree: constant subtrees are folded, identical pure subtrees are merged
+ * and nodes used more than once are wrapped in {@link Nodes.Cached} to evaluate them once per evaluation.
+ */
+public class Optimizer {
+    private final Map<String, Node> canonical = new HashMap<String, Node>();
+    private final Map<Node, String> keys = new IdentityHashMap<Node, String>();
+    private final Map<Node, Integer> uses = new IdentityHashMap<Node, Integer>();
+    private final Map<Node, Node> wrapped = new IdentityHashMap<Node, Node>();
+    private final List<Nodes.Cached> cachedNodes = new ArrayList<Nodes.Cached>();
+    private int uniqueKeys = 0;
+
+    /**
+     * Optimize the tree
+     * @param root the root node of the tree
+     * @return the root node of the optimized tree
+     */
+    public Node optimize(Node root) {
+        Node merged = merge(root);
+        countUses(merged);
+        return wrapShared(merged);
+    }
+
+    /**
+     * Get the nodes evaluated once per evaluation, they must be invalidated before each evaluation
+     * @return the cached nodes
+     */
+    public List<Nodes.Cached> getCachedNodes() {
+        return cachedNodes;
+    }
+
+    private Node merge(Node node) {
+        Node[] args = node.getArgs();
+        boolean constArgs = args.length > 0;
+        for (int i = 0; i < args.length; i++) {
+            args[i] = merge(args[i]);
+            constArgs &= args[i] instanceof Nodes.Constant;
+        }
+        if (node.isCommutative() && keys.get(args[0]).compareTo(keys.get(args[1])) > 0) {
+            Node tmp = args[0];
+            args[0] = args[1];
+            args[1] = tmp;
+        }
+        Node n = args.length > 0 ? node.withArgs(args) : node;
+        if (constArgs && n.isPure()) {
+            try {
+                n = new Nodes.Constant(n.evaluate(null));
+            } catch (ArithmeticException e) {
+                // Keep the node to throw the exception on evaluation
+            }
+        }
+        String key;
+        if (n.isPure()) {
+            StringBuilder sb = new StringBuilder(n.getLabel());
+            if (n.getArgs().length > 0) {
+                sb.append('(');
+                for (Node arg : n.getArgs()) {
+                    sb.append(keys.get(arg)).append(',');
+                }
+                sb.append(')');
+            }
+            key = sb.toString();
+        } else {
+            key = n.getLabel() + "#" + uniqueKeys++;
+        }
+        Node existing = canonical.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        canonical.put(key, n);
+        keys.put(n, key);
+        return n;
+    }
+
+    private void countUses(Node node) {
+        Integer count = uses.get(node);
+        uses.put(node, count == null ? 1 : count + 1);
+        if (count == null) {
+            for (Node arg : node.getArgs()) {
+                countUses(arg);
+            }
+        }
+    }
+
+    private Node wrapShared(Node node) {
+        Node result = wrapped.get(node);
+        if (result != null) {
+            return result;
+        }
+        Node[] args = node.getArgs();
+        result = node;
+        if (args.length > 0) {
+            for (int i = 0; i < args.length; i++) {
+                args[i] = wrapShared(args[i]);
+            }
+            result = node.withArgs(args);
+            if (uses.get(node) > 1) {
+                Nodes.Cached cached = new Nodes.Cached(result);
+                cachedNodes.add(cached);
+                result = cached;
+            }
+        }
+        wrapped.put(node, result);
+        return result;
+    }
+
+    /**
+     * Dump the tree in readable form, shared nodes are printed once as "#N=..." and referenced later as "#N"
+     * @param root the root node
+     * @param variableNames the names of the variables by slot
+     * @return the string representation of the tree
+     */
+    public static String dump(Node root, String[] variableNames) {
+        StringBuilder sb = new StringBuilder();
+        dump(root, variableNames, sb, new IdentityHashMap<Node, Integer>());
+        return sb.toString();
+    }
+
+    private static void dump(Node node, String[] variableNames, StringBuilder sb, Map<Node, Integer> shared) {
+        if (node instanceof Nodes.Cached) {
+            Integer id = shared.get(node);
+            if (id != null) {
+                sb.append('#').append(id);
+                return;
+            }
+            id = shared.size() + 1;
+            shared.put(node, id);
+            sb.append('#').append(id).append('=');
+            node = ((Nodes.Cached) node).getNode();
+        }
+        if (node instanceof Nodes.Variable) {
+            sb.append(variableNames[((Nodes.Variable) node).getSlot()]);
+            return;
+        }
+        sb.append(node.getLabel());
+        Node[] args = node.getArgs();
+        if (args.length > 0) {
+            sb.append('(');
+            for (int i = 0; i < args.length; i++) {
+                if (i > 0) {
+                    sb.append(", ");
+                }
+                dump(args[i], variableNames, sb, shared);
+            }
+            sb.append(')');
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.objecthunter.exp4j.compiled;
+
+import net.objecthunter.exp4j.function.Function;
+
+/**
+ * Function with state kept per call site. Such functions are compiled to {@link Signals} nodes and can't be used
+ * in interpreted expressions.
+ */
+public abstract class SignalFunction extends Function {
+
+    public SignalFunction(String name, int numArguments) {
+        super(name, numArguments);
+    }
+
+    /**
+     * Create node for one call site of the function
+     * @param args the argument nodes
+     * @param clock the clock of the expression
+     * @return the new node with initial state
+     */
+    public abstract Node createNode(Node[] args, Clock clock);
+
+    @Override
+    public double apply(double... args) {
+        throw new UnsupportedOperationException("Function '" + name + "' can be used only in compiled expressions");
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.objecthunter.exp4j.compiled;
+
+/**
+ * Stateful signal functions: lpf(x, f), deriv(x), integ(x), delay(x, d) and prev(x). Every call site has its own
+ * state that is updated on each evaluation using the time set in {@link Clock}, state is preallocated, so evaluation
+ * doesn't allocate objects (except rare growth of the delay buffer).
+ */
+public class Signals {
+    public static final SignalFunction LPF = new SignalFunction("lpf", 2) {
+        @Override
+        public Node createNode(Node[] args, Clock clock) {
+            return new LowPass(clock, args);
+        }
+    };
+
+    public static final SignalFunction DERIV = new SignalFunction("deriv", 1) {
+        @Override
+        public Node createNode(Node[] args, Clock clock) {
+            return new Derivative(clock, args);
+        }
+    };
+
+    public static final SignalFunction INTEG = new SignalFunction("integ", 1) {
+        @Override
+        public Node createNode(Node[] args, Clock clock) {
+            return new Integral(clock, args);
+        }
+    };
+
+    public static final SignalFunction DELAY = new SignalFunction("delay", 2) {
+        @Override
+        public Node createNode(Node[] args, Clock clock) {
+            return new Delay(clock, args);
+        }
+    };
+
+    public static final SignalFunction PREV = new SignalFunction("prev", 1) {
+        @Override
+        public Node createNode(Node[] args, Clock clock) {
+            return new Previous(clock, args);
+        }
+    };
+
+    /**
+     * Get all signal functions to register them in {@link net.objecthunter.exp4j.ExpressionBuilder}
+     * @return the functions
+     */
+    public static SignalFunction[] getFunctions() {
+        return new SignalFunction[]{LPF, DERIV, INTEG, DELAY, PREV};
+    }
+
+    /**
+     * Base class of the stateful nodes, they are never folded or shared
+     */
+    public abstract static class Signal extends Node {
+        protected final Clock clock;
+        protected final Node[] args;
+
+        protected Signal(Clock clock, Node[] args) {
+            this.clock = clock;
+            this.args = args;
+        }
+
+        @Override
+        public Node[] getArgs() {
+            return args.clone();
+        }
+
+        @Override
+        public boolean isPure() {
+            return false;
+        }
+    }
+
+    /**
+     * First order low pass filter with cutoff frequency in Hz, same as LowPassFilter of the processors
+     */
+    public static final class LowPass extends Signal {
+        private double inLast = 0.0;
+        private double valueFiltered = 0.0;
+        private double tLast = Double.NaN;
+
+        public LowPass(Clock clock, Node[] args) {
+            super(clock, args);
+        }
+
+        @Override
+        public String getLabel() {
+            return "lpf";
+        }
+
+        @Override
+        public Node withArgs(Node[] args) {
+            return new LowPass(clock, args);
+        }
+
+        @Override
+        public double evaluate(double[] slots) {
+            double in = args[0].evaluate(slots);
+            double rcInv = args[1].evaluate(slots) * 2 * Math.PI;
+            double t = clock.getTime();
+            if (rcInv == 0.0 || Double.isNaN(tLast)) {
+                valueFiltered = in;
+            } else {
+                valueFiltered += (1.0 - Math.exp(-(t - tLast) * rcInv)) * (inLast - valueFiltered);
+            }
+            inLast = in;
+            tLast = t;
+            return valueFiltered;
+        }
+    }
+
+    /**
+     * Derivative by time, NaN on the first evaluation and if time didn't change
+     */
+    public static final class Derivative extends Signal {
+        private double valuePrev = Double.NaN;
+        private double timePrev = Double.NaN;
+
+        public Derivative(Clock clock, Node[] args) {
+            super(clock, args);
+        }
+
+        @Override
+        public String getLabel() {
+            return "deriv";
+        }
+
+        @Override
+        public Node withArgs(Node[] args) {
+            return new Derivative(clock, args);
+        }
+
+        @Override
+        public double evaluate(double[] slots) {
+            double in = args[0].evaluate(slots);
+            double t = clock.getTime();
+            double out = Double.NaN;
+            if (!Double.isNaN(timePrev)) {
+                double dt = t - timePrev;
+                if (dt > 1.0e-5) {
+                    out = (in - valuePrev) / dt;
+                }
+            }
+            valuePrev = in;
+            timePrev = t;
+            return out;
+        }
+    }
+
+    /**
+     * Integral by time, starts from zero
+     */
+    public static final class Integral extends Signal {
+        private double integral = 0.0;
+        private double timePrev = Double.NaN;
+
+        public Integral(Clock clock, Node[] args) {
+            super(clock, args);
+        }
+
+        @Override
+        public String getLabel() {
+            return "integ";
+        }
+
+        @Override
+        public Node withArgs(Node[] args) {
+            return new Integral(clock, args);
+        }
+
+        @Override
+        public double evaluate(double[] slots) {
+            double in = args[0].evaluate(slots);
+            double t = clock.getTime();
+            if (!Double.isNaN(timePrev)) {
+                integral += in * (t - timePrev);
+            }
+            timePrev = t;
+            return integral;
+        }
+    }
+
+    /**
+     * Value of the argument delayed by the given time in seconds, NaN until the delay is passed. Values are kept in
+     * a ring buffer that grows only if more values fit in the delay.
+     */
+    public static final class Delay extends Signal {
+        private double[] times = new double[16];
+        private double[] values = new double[16];
+        private int head = 0;
+        private int size = 0;
+
+        public Delay(Clock clock, Node[] args) {
+            super(clock, args);
+        }
+
+        @Override
+        public String getLabel() {
+            return "delay";
+        }
+
+        @Override
+        public Node withArgs(Node[] args) {
+            return new Delay(clock, args);
+        }
+
+        @Override
+        public double evaluate(double[] slots) {
+            double in = args[0].evaluate(slots);
+            double t = clock.getTime();
+            double tDelayed = t - args[1].evaluate(slots);
+            if (size == times.length) {
+                grow();
+            }
+            int tail = (head + size) % times.length;
+            times[tail] = t;
+            values[tail] = in;
+            size++;
+            // Keep the last value not newer than delayed time
+            while (size > 1 && times[(head + 1) % times.length] <= tDelayed) {
+                head = (head + 1) % times.length;
+                size--;
+            }
+            return times[head] <= tDelayed ? values[head] : Double.NaN;
+        }
+
+        private void grow() {
+            double[] timesNew = new double[times.length * 2];
+            double[] valuesNew = new double[values.length * 2];
+            for (int i = 0; i < size; i++) {
+                timesNew[i] = times[(head + i) % times.length];
+                valuesNew[i] = values[(head + i) % values.length];
+            }
+            times = timesNew;
+            values = valuesNew;
+            head = 0;
+        }
+    }
+
+    /**
+     * Value of the argument on the previous evaluation, NaN on the first evaluation
+     */
+    public static final class Previous extends Signal {
+        private double valuePrev = Double.NaN;
+
+        public Previous(Clock clock, Node[] args) {
+            super(clock, args);
+        }
+
+        @Override
+        public String getLabel() {
+            return "prev";
+        }
+
+        @Override
+        public Node withArgs(Node[] args) {
+            return new Previous(clock, args);
+        }
+
+        @Override
+        public double evaluate(double[] slots) {
+            double out = valuePrev;
+            valuePrev = args[0].evaluate(slots);
+            return out;
+        }
+    }
+}
@@ -149,7 +149,8 @@ public class Tokenizer {
                 (isAlphabetic(expression[offset + len - 1]) ||
                         Character.isDigit(expression[offset + len - 1]) ||
                         expression[offset + len - 1] == '_' ||
-                        expression[offset + len - 1] == '.')) {
+                        expression[offset + len - 1] == '.' ||
+                        expression[offset + len - 1] == ':')) {
             String name = new String(expression, offset, len);
             if (variableNames != null && variableNames.contains(name)) {
                 lastValidLen = len;